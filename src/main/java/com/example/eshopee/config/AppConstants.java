@@ -6,9 +6,15 @@ public class AppConstants {
 	public static final String PAGE_SIZE = "5";
 	public static final String SORT_CATEGORIES_BY = "categoryId";
 	public static final String SORT_PRODUCTS_BY = "productId";
+	public static final String SORT_SEARCH_BY = "relevance";
 	public static final String SORT_USERS_BY = "userId";
 	public static final String SORT_ORDERS_BY = "totalAmount";
+	public static final String SORT_CARTS_BY = "cartId";
 	public static final String SORT_DIR = "asc";
+	public static final String SUGGESTION_LIMIT = "5";
+	public static final String ORDER_PENDING = "Order Pending";
+	public static final String ORDER_ACCEPTED = "Order Accepted !";
+	public static final String ORDER_FAILED = "Order Failed";
 	public static final Long ADMIN_ID = 101L;
 	public static final Long USER_ID = 102L;
 	public static final long JWT_TOKEN_VALIDITY = 86400000;
@@ -0,0 +1,44 @@
+package com.example.eshopee.controllers;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.eshopee.payloads.CacheStatsDTO;
+import com.example.eshopee.payloads.SuggestionStatsDTO;
+import com.example.eshopee.services.ProductCache;
+import com.example.eshopee.services.ProductSuggester;
+
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+
+@RestController
+@RequestMapping("/api")
+@SecurityRequirement(name = "E-Commerce Application")
+public class CacheController {
+
+	@Autowired
+	private ProductCache productCache;
+
+	@Autowired
+	private ProductSuggester productSuggester;
+
+	@GetMapping("/admin/caches")
+	public ResponseEntity<List<CacheStatsDTO>> getCacheStats() {
+		List<CacheStatsDTO> stats = List.of(productCache.stats());
+
+		return new ResponseEntity<List<CacheStatsDTO>>(stats, HttpStatus.OK);
+	}
+
+	@GetMapping("/admin/caches/suggestions")
+	public ResponseEntity<SuggestionStatsDTO> getSuggestionStats() {
+		SuggestionStatsDTO stats = productSuggester.stats();
+
+		return new ResponseEntity<SuggestionStatsDTO>(stats, HttpStatus.OK);
+	}
+
+}
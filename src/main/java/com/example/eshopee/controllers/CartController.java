@@ -1,19 +1,31 @@
 package com.example.eshopee.controllers;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.eshopee.config.AppConstants;
 import com.example.eshopee.payloads.CartDTO;
+import com.example.eshopee.payloads.CartItemOperation;
+import com.example.eshopee.payloads.CartResponse;
+import com.example.eshopee.payloads.RepriceProgressDTO;
+import com.example.eshopee.payloads.ReservationSweepStatsDTO;
+import com.example.eshopee.services.CartExecutor;
+import com.example.eshopee.services.CartReservationSweeper;
+import com.example.eshopee.services.CartRepricer;
 import com.example.eshopee.services.CartService;
 
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -26,19 +38,47 @@ public class CartController {
 	@Autowired
 	private CartService cartService;
 
+	@Autowired
+	private CartRepricer cartRepricer;
+
+	@Autowired
+	private CartExecutor cartExecutor;
+
+	@Autowired
+	private CartReservationSweeper cartReservationSweeper;
+
 	@PostMapping("/public/carts/{cartId}/products/{productId}/quantity/{quantity}")
-	public ResponseEntity<CartDTO> addProductToCart(@PathVariable Long cartId, @PathVariable Long productId, @PathVariable Integer quantity) {
-		CartDTO cartDTO = cartService.addProductToCart(cartId, productId, quantity);
-		
-		return new ResponseEntity<CartDTO>(cartDTO, HttpStatus.CREATED);
+	public CompletableFuture<ResponseEntity<CartDTO>> addProductToCart(@PathVariable Long cartId, @PathVariable Long productId, @PathVariable Integer quantity) {
+		return cartExecutor.submit(cartId, () -> cartService.addProductToCart(cartId, productId, quantity))
+				.thenApply(cartDTO -> new ResponseEntity<CartDTO>(cartDTO, HttpStatus.CREATED));
 	}
 	
 	@GetMapping("/admin/carts")
-	public ResponseEntity<List<CartDTO>> getCarts() {
+	public ResponseEntity<CartResponse> getCarts(
+			@RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
+			@RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+			@RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_CARTS_BY, required = false) String sortBy,
+			@RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder,
+			@RequestParam(name = "nonEmpty", defaultValue = "false", required = false) boolean nonEmpty,
+			@RequestParam(name = "minTotal", required = false) Double minTotal) {
 		
-		List<CartDTO> cartDTOs = cartService.getAllCarts();
+		CartResponse cartResponse = cartService.getAllCarts(pageNumber, pageSize, sortBy, sortOrder, nonEmpty, minTotal);
 		
-		return new ResponseEntity<List<CartDTO>>(cartDTOs, HttpStatus.FOUND);
+		return new ResponseEntity<CartResponse>(cartResponse, HttpStatus.FOUND);
+	}
+
+	@GetMapping("/admin/carts/repricing")
+	public ResponseEntity<List<RepriceProgressDTO>> getRepricingProgress() {
+		List<RepriceProgressDTO> progress = cartRepricer.progress();
+
+		return new ResponseEntity<List<RepriceProgressDTO>>(progress, HttpStatus.OK);
+	}
+
+	@GetMapping("/admin/carts/reservations")
+	public ResponseEntity<ReservationSweepStatsDTO> getReservationSweepStats() {
+		ReservationSweepStatsDTO stats = cartReservationSweeper.stats();
+
+		return new ResponseEntity<ReservationSweepStatsDTO>(stats, HttpStatus.OK);
 	}
 	
 	@GetMapping("/public/users/{emailId}/carts/{cartId}")
@@ -49,16 +89,21 @@ public class CartController {
 	}
 	
 	@PutMapping("/public/carts/{cartId}/products/{productId}/quantity/{quantity}")
-	public ResponseEntity<CartDTO> updateCartProduct(@PathVariable Long cartId, @PathVariable Long productId, @PathVariable Integer quantity) {
-		CartDTO cartDTO = cartService.updateProductQuantityInCart(cartId, productId, quantity);
-		
-		return new ResponseEntity<CartDTO>(cartDTO, HttpStatus.OK);
+	public CompletableFuture<ResponseEntity<CartDTO>> updateCartProduct(@PathVariable Long cartId, @PathVariable Long productId, @PathVariable Integer quantity) {
+		return cartExecutor.submit(cartId, () -> cartService.updateProductQuantityInCart(cartId, productId, quantity))
+				.thenApply(cartDTO -> new ResponseEntity<CartDTO>(cartDTO, HttpStatus.OK));
 	}
 	
+	@PatchMapping("/public/carts/{cartId}/items")
+	public CompletableFuture<ResponseEntity<CartDTO>> updateCartItems(@PathVariable Long cartId,
+			@RequestBody List<CartItemOperation> operations) {
+		return cartExecutor.submit(cartId, () -> cartService.updateCartItems(cartId, operations))
+				.thenApply(cartDTO -> new ResponseEntity<CartDTO>(cartDTO, HttpStatus.OK));
+	}
+
 	@DeleteMapping("/public/carts/{cartId}/product/{productId}")
-	public ResponseEntity<String> deleteProductFromCart(@PathVariable Long cartId, @PathVariable Long productId) {
-		String status = cartService.deleteProductFromCart(cartId, productId);
-		
-		return new ResponseEntity<String>(status, HttpStatus.OK);
+	public CompletableFuture<ResponseEntity<String>> deleteProductFromCart(@PathVariable Long cartId, @PathVariable Long productId) {
+		return cartExecutor.submit(cartId, () -> cartService.deleteProductFromCart(cartId, productId))
+				.thenApply(status -> new ResponseEntity<String>(status, HttpStatus.OK));
 	}
 }
@@ -42,9 +42,12 @@ public class CategoryController {
 			@RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
 			@RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
 			@RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_CATEGORIES_BY, required = false) String sortBy,
-			@RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder) {
+			@RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder,
+			@RequestParam(name = "after", required = false) String after) {
 		
-		CategoryResponse categoryResponse = categoryService.getCategories(pageNumber, pageSize, sortBy, sortOrder);
+		CategoryResponse categoryResponse = after == null
+				? categoryService.getCategories(pageNumber, pageSize, sortBy, sortOrder)
+				: categoryService.getCategoriesAfter(after, pageSize, sortBy, sortOrder);
 
 		return new ResponseEntity<CategoryResponse>(categoryResponse, HttpStatus.FOUND);
 	}
@@ -1,21 +1,31 @@
 package com.example.eshopee.controllers;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
 
 import com.example.eshopee.config.AppConstants;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import com.example.eshopee.payloads.OrderDTO;
 import com.example.eshopee.payloads.OrderResponse;
+import com.example.eshopee.payloads.OrderStatusDTO;
+import com.example.eshopee.services.DataExporter;
+import com.example.eshopee.services.OrderIdempotency;
+import com.example.eshopee.services.OrderQueue;
 import com.example.eshopee.services.OrderService;
 
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -27,12 +37,34 @@ public class OrderController {
 
 	@Autowired
 	public OrderService orderService;
+
+	@Autowired
+	private DataExporter dataExporter;
+
+	@Autowired
+	private OrderIdempotency orderIdempotency;
+
+	@Autowired
+	private OrderQueue orderQueue;
 	
 	@PostMapping("/public/users/{emailId}/carts/{cartId}/payments/{paymentMethod}/order")
-	public ResponseEntity<OrderDTO> orderProducts(@PathVariable String emailId, @PathVariable Long cartId, @PathVariable String paymentMethod) {
-		OrderDTO order = orderService.placeOrder(emailId, cartId, paymentMethod);
-		
-		return new ResponseEntity<OrderDTO>(order, HttpStatus.CREATED);
+	public CompletableFuture<ResponseEntity<OrderDTO>> orderProducts(@PathVariable String emailId, @PathVariable Long cartId, @PathVariable String paymentMethod,
+			@RequestHeader(name = "Prefer", required = false) String prefer,
+			@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+		if (prefer != null && prefer.contains("respond-async")) {
+			orderQueue.checkCapacity();
+
+			return orderIdempotency.place(idempotencyKey, emailId, cartId, paymentMethod,
+					() -> orderService.placeOrderAsync(emailId, cartId, paymentMethod))
+					.thenApply(order -> ResponseEntity.status(HttpStatus.ACCEPTED)
+							.location(UriComponentsBuilder.fromPath("/api/public/users/{emailId}/orders/{orderId}/status")
+									.buildAndExpand(emailId, order.getOrderId()).encode().toUri())
+							.body(order));
+		}
+
+		return orderIdempotency.place(idempotencyKey, emailId, cartId, paymentMethod,
+				() -> orderService.placeOrder(emailId, cartId, paymentMethod))
+				.thenApply(order -> new ResponseEntity<OrderDTO>(order, HttpStatus.CREATED));
 	}
 
 	@GetMapping("/admin/orders")
@@ -40,18 +72,36 @@ public class OrderController {
 			@RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
 			@RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
 			@RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_ORDERS_BY, required = false) String sortBy,
-			@RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder) {
+			@RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder,
+			@RequestParam(name = "after", required = false) String after) {
 		
-		OrderResponse orderResponse = orderService.getAllOrders(pageNumber, pageSize, sortBy, sortOrder);
+		OrderResponse orderResponse = after == null
+				? orderService.getAllOrders(pageNumber, pageSize, sortBy, sortOrder)
+				: orderService.getAllOrdersAfter(after, pageSize, sortBy, sortOrder);
 
 		return new ResponseEntity<OrderResponse>(orderResponse, HttpStatus.FOUND);
 	}
 	
+	@GetMapping("/admin/orders/export")
+	public ResponseEntity<StreamingResponseBody> exportOrders(
+			@RequestParam(name = "format", defaultValue = "ndjson", required = false) String format,
+			@RequestParam(name = "since", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+
+		DataExporter.Format exportFormat = DataExporter.Format.of(format);
+
+		StreamingResponseBody body = out -> dataExporter.exportOrders(since, exportFormat, out);
+
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(exportFormat.getContentType())).body(body);
+	}
+
 	@GetMapping("public/users/{emailId}/orders")
-	public ResponseEntity<List<OrderDTO>> getOrdersByUser(@PathVariable String emailId) {
-		List<OrderDTO> orders = orderService.getOrdersByUser(emailId);
+	public ResponseEntity<OrderResponse> getOrdersByUser(@PathVariable String emailId,
+			@RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+			@RequestParam(name = "after", required = false) String after,
+			@RequestParam(name = "summary", defaultValue = "false", required = false) boolean summary) {
+		OrderResponse orderResponse = orderService.getOrdersByUser(emailId, after, pageSize, summary);
 		
-		return new ResponseEntity<List<OrderDTO>>(orders, HttpStatus.FOUND);
+		return new ResponseEntity<OrderResponse>(orderResponse, HttpStatus.FOUND);
 	}
 	
 	@GetMapping("public/users/{emailId}/orders/{orderId}")
@@ -61,6 +111,13 @@ public class OrderController {
 		return new ResponseEntity<OrderDTO>(order, HttpStatus.FOUND);
 	}
 	
+	@GetMapping("public/users/{emailId}/orders/{orderId}/status")
+	public ResponseEntity<OrderStatusDTO> getOrderStatus(@PathVariable String emailId, @PathVariable Long orderId) {
+		OrderStatusDTO status = orderService.getOrderStatus(emailId, orderId);
+
+		return new ResponseEntity<OrderStatusDTO>(status, HttpStatus.OK);
+	}
+	
 	@PutMapping("admin/users/{emailId}/orders/{orderId}/orderStatus/{orderStatus}")
 	public ResponseEntity<OrderDTO> updateOrderByUser(@PathVariable String emailId, @PathVariable Long orderId, @PathVariable String orderStatus) {
 		OrderDTO order = orderService.updateOrderStatus(emailId, orderId, orderStatus);
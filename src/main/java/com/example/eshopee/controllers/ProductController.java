@@ -1,10 +1,16 @@
 package com.example.eshopee.controllers;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
 
 import com.example.eshopee.config.AppConstants;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,15 +18,26 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.example.eshopee.entites.Product;
+import com.example.eshopee.exceptions.APIException;
+import com.example.eshopee.payloads.HotStockDTO;
 import com.example.eshopee.payloads.ProductDTO;
+import com.example.eshopee.payloads.ProductFilter;
+import com.example.eshopee.payloads.ProductImportReport;
 import com.example.eshopee.payloads.ProductResponse;
+import com.example.eshopee.payloads.SuggestionDTO;
+import com.example.eshopee.services.DataExporter;
+import com.example.eshopee.services.HotStockCounters;
+import com.example.eshopee.services.ProductImporter;
 import com.example.eshopee.services.ProductService;
+import com.example.eshopee.services.ProductSuggester;
 
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
@@ -33,6 +50,18 @@ public class ProductController {
 	@Autowired
 	private ProductService productService;
 
+	@Autowired
+	private ProductImporter productImporter;
+
+	@Autowired
+	private DataExporter dataExporter;
+
+	@Autowired
+	private ProductSuggester productSuggester;
+
+	@Autowired
+	private HotStockCounters hotStockCounters;
+
 	@PostMapping("/admin/categories/{categoryId}/product")
 	public ResponseEntity<ProductDTO> addProduct(@Valid @RequestBody Product product, @PathVariable Long categoryId) {
 
@@ -41,14 +70,49 @@ public class ProductController {
 		return new ResponseEntity<ProductDTO>(savedProduct, HttpStatus.CREATED);
 	}
 
+	@PostMapping(value = "/admin/products/import", consumes = { ProductImporter.CSV, ProductImporter.NDJSON })
+	public ResponseEntity<ProductImportReport> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+			InputStream body) throws IOException {
+
+		ProductImportReport report = productImporter.importProducts(body, contentType);
+
+		return new ResponseEntity<ProductImportReport>(report, HttpStatus.OK);
+	}
+
+	@GetMapping("/admin/products/export")
+	public ResponseEntity<StreamingResponseBody> exportProducts(
+			@RequestParam(name = "format", defaultValue = "ndjson", required = false) String format,
+			@RequestParam(name = "since", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+
+		DataExporter.Format exportFormat = DataExporter.Format.of(format);
+
+		StreamingResponseBody body = out -> dataExporter.exportProducts(since, exportFormat, out);
+
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(exportFormat.getContentType())).body(body);
+	}
+
 	@GetMapping("/public/products")
 	public ResponseEntity<ProductResponse> getAllProducts(
 			@RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
 			@RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
 			@RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_PRODUCTS_BY, required = false) String sortBy,
-			@RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder) {
+			@RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder,
+			@RequestParam(name = "after", required = false) String after,
+			@RequestParam(name = "categoryId", required = false) Long categoryId,
+			@RequestParam(name = "minPrice", required = false) Double minPrice,
+			@RequestParam(name = "maxPrice", required = false) Double maxPrice,
+			@RequestParam(name = "discountBand", required = false) String discountBand,
+			@RequestParam(name = "inStock", required = false) Boolean inStock) {
 
-		ProductResponse productResponse = productService.getAllProducts(pageNumber, pageSize, sortBy, sortOrder);
+		ProductFilter filter = new ProductFilter(categoryId, minPrice, maxPrice, discountBand, inStock);
+
+		if (after != null && !filter.isEmpty()) {
+			throw new APIException("Filtered products are paged by pageNumber, not after");
+		}
+
+		ProductResponse productResponse = after == null
+				? productService.getFilteredProducts(filter, pageNumber, pageSize, sortBy, sortOrder)
+				: productService.getAllProductsAfter(after, pageSize, sortBy, sortOrder);
 
 		return new ResponseEntity<ProductResponse>(productResponse, HttpStatus.FOUND);
 	}
@@ -58,19 +122,31 @@ public class ProductController {
 			@RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
 			@RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
 			@RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_PRODUCTS_BY, required = false) String sortBy,
-			@RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder) {
+			@RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder,
+			@RequestParam(name = "after", required = false) String after) {
 
-		ProductResponse productResponse = productService.searchByCategory(categoryId, pageNumber, pageSize, sortBy,
-				sortOrder);
+		ProductResponse productResponse = after == null
+				? productService.searchByCategory(categoryId, pageNumber, pageSize, sortBy, sortOrder)
+				: productService.searchByCategoryAfter(categoryId, after, pageSize, sortBy, sortOrder);
 
 		return new ResponseEntity<ProductResponse>(productResponse, HttpStatus.FOUND);
 	}
 	
+	@GetMapping("/public/products/suggest")
+	public ResponseEntity<List<SuggestionDTO>> getSuggestions(@RequestParam(name = "prefix") String prefix,
+			@RequestParam(name = "limit", defaultValue = AppConstants.SUGGESTION_LIMIT, required = false) Integer limit) {
+
+		List<SuggestionDTO> suggestions = productSuggester.suggest(prefix,
+				Math.min(limit, ProductSuggester.MAX_SUGGESTIONS));
+
+		return new ResponseEntity<List<SuggestionDTO>>(suggestions, HttpStatus.FOUND);
+	}
+
 	@GetMapping("/public/products/keyword/{keyword}")
 	public ResponseEntity<ProductResponse> getProductsByKeyword(@PathVariable String keyword,
 			@RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
 			@RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
-			@RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_PRODUCTS_BY, required = false) String sortBy,
+			@RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_SEARCH_BY, required = false) String sortBy,
 			@RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder) {
 
 		ProductResponse productResponse = productService.searchProductByKeyword(keyword, pageNumber, pageSize, sortBy,
@@ -87,6 +163,27 @@ public class ProductController {
 		return new ResponseEntity<ProductDTO>(updatedProduct, HttpStatus.OK);
 	}
 	
+	@GetMapping("/admin/products/hot-stock")
+	public ResponseEntity<List<HotStockDTO>> getHotStock() {
+		List<HotStockDTO> hotStock = hotStockCounters.stats();
+
+		return new ResponseEntity<List<HotStockDTO>>(hotStock, HttpStatus.OK);
+	}
+
+	@PutMapping("/admin/products/{productId}/hot-stock")
+	public ResponseEntity<HotStockDTO> enableHotStock(@PathVariable Long productId) {
+		HotStockDTO hotStock = hotStockCounters.enable(productId);
+
+		return new ResponseEntity<HotStockDTO>(hotStock, HttpStatus.OK);
+	}
+
+	@DeleteMapping("/admin/products/{productId}/hot-stock")
+	public ResponseEntity<HotStockDTO> disableHotStock(@PathVariable Long productId) {
+		HotStockDTO hotStock = hotStockCounters.disable(productId);
+
+		return new ResponseEntity<HotStockDTO>(hotStock, HttpStatus.OK);
+	}
+
 	@PutMapping("/admin/products/{productId}/image")
 	public ResponseEntity<ProductDTO> updateProductImage(@PathVariable Long productId, @RequestParam("image") MultipartFile image) throws IOException {
 		ProductDTO updatedProduct = productService.updateProductImage(productId, image);
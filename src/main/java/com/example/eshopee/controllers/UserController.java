@@ -33,9 +33,12 @@ public class UserController {
 			@RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
 			@RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
 			@RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_USERS_BY, required = false) String sortBy,
-			@RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder) {
+			@RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder,
+			@RequestParam(name = "after", required = false) String after) {
 		
-		UserResponse userResponse = userService.getAllUsers(pageNumber, pageSize, sortBy, sortOrder);
+		UserResponse userResponse = after == null
+				? userService.getAllUsers(pageNumber, pageSize, sortBy, sortOrder)
+				: userService.getAllUsersAfter(after, pageSize, sortBy, sortOrder);
 		
 		return new ResponseEntity<UserResponse>(userResponse, HttpStatus.FOUND);
 	}
@@ -12,6 +12,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.*;
 
 @Entity
@@ -36,4 +37,8 @@ public class Cart {
 	private List<CartItem> cartItems = new ArrayList<>();
 
 	private Double totalPrice = 0.0;
+
+	// The bulk statements of background writers bump it too, so a request that read the cart before them fails and is run again
+	@Version
+	private long version;
 }
\ No newline at end of file
@@ -1,16 +1,23 @@
 package com.example.eshopee.entites;
 
+import java.time.LocalDateTime;
+
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.*;
 
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items", indexes = {
+		@Index(name = "idx_cart_items_product_cart", columnList = "product_id, cart_id"),
+		@Index(name = "idx_cart_items_reserved_at", columnList = "reserved_at, cart_item_id") },
+		uniqueConstraints = @UniqueConstraint(name = "uk_cart_items_cart_product", columnNames = { "cart_id", "product_id" }))
 @Getter
 @Setter
 @ToString
@@ -33,5 +40,8 @@ public class CartItem {
 	private Integer quantity;
 	private double discount;
 	private double productPrice;
+
+	// When the line last took stock; CartReservationSweeper returns it once this is older than the TTL
+	private LocalDateTime reservedAt;
 	
 }
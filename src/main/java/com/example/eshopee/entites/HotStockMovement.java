@@ -0,0 +1,28 @@
+package com.example.eshopee.entites;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.*;
+
+@Entity
+@Table(name = "hot_stock_movements")
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotStockMovement {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long movementId;
+
+	private Long productId;
+
+	// Units added to the product's stock; negative when they were taken
+	private long delta;
+
+}
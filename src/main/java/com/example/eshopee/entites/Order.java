@@ -1,15 +1,19 @@
 package com.example.eshopee.entites;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.UpdateTimestamp;
+
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
@@ -18,7 +22,9 @@ import jakarta.validation.constraints.Email;
 import lombok.*;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+		@Index(name = "idx_orders_email_order_date", columnList = "email, order_date, order_id"),
+		@Index(name = "idx_orders_updated_at", columnList = "updated_at, order_id") })
 @Getter
 @Setter
 @ToString
@@ -46,4 +52,8 @@ public class Order {
 	
 	private Double totalAmount;
 	private String orderStatus;
+
+	// Drives incremental exports, so status changes after the order was placed are exported again
+	@UpdateTimestamp
+	private LocalDateTime updatedAt;
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.example.eshopee.entites;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.*;
+
+@Entity
+@Table(name = "order_idempotency_keys",
+		uniqueConstraints = @UniqueConstraint(name = "uk_order_idempotency_keys_email_key", columnNames = { "email", "idempotency_key" }),
+		indexes = @Index(name = "idx_order_idempotency_keys_claimed_at", columnList = "claimed_at"))
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderIdempotencyKey {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(nullable = false)
+	private String email;
+
+	@Column(name = "idempotency_key", nullable = false)
+	private String idempotencyKey;
+
+	// The request the key was first used for; a retry must repeat it
+	private Long cartId;
+	private String paymentMethod;
+
+	// When the order placement started; a key with no response claimed longer than a lease ago was abandoned
+	private LocalDateTime claimedAt;
+
+	// The OrderDTO returned, as JSON; null while the order is being placed
+	@Lob
+	@ToString.Exclude
+	private String response;
+
+}
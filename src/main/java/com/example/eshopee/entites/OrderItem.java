@@ -19,7 +19,7 @@ import lombok.*;
 public class OrderItem {
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.AUTO)
 	private Long orderItemId;
 	
 	@ManyToOne
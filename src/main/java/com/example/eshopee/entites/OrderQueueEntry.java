@@ -0,0 +1,34 @@
+package com.example.eshopee.entites;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.*;
+
+@Entity
+@Table(name = "order_queue", indexes = @Index(name = "idx_order_queue_available_at", columnList = "available_at, order_id"))
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderQueueEntry {
+
+	// The pending order this entry finalizes
+	@Id
+	private Long orderId;
+
+	private Long cartId;
+	private String email;
+	private String paymentMethod;
+	private LocalDateTime enqueuedAt;
+
+	// When a worker may claim the entry; a claim moves it one lease ahead, so a crashed worker's entries come back
+	private LocalDateTime availableAt;
+
+	private int attempts;
+
+}
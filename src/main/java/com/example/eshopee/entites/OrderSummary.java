@@ -0,0 +1,69 @@
+package com.example.eshopee.entites;
+
+import java.time.LocalDate;
+
+import org.springframework.data.domain.Persistable;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.*;
+
+/**
+ * Read model of an order for the listings: one row per order, written with the order, so a
+ * page of orders is one query on this table.
+ */
+@Entity
+@Table(name = "order_summary", indexes = {
+		@Index(name = "idx_order_summary_email_order_date", columnList = "email, order_date, order_id"),
+		@Index(name = "idx_order_summary_total_amount", columnList = "total_amount, order_id") })
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummary implements Persistable<Long> {
+
+	// The order summarized
+	@Id
+	private Long orderId;
+
+	private String email;
+	private LocalDate orderDate;
+	private String orderStatus;
+	private Double totalAmount;
+	private int itemCount;
+	private Long paymentId;
+	private String paymentMethod;
+
+	// The order items as a JSON array of OrderItemSnapshot
+	@Lob
+	@ToString.Exclude
+	private String items;
+
+	// Set for a summary built for an order that has none yet, so saving it inserts without a SELECT first
+	@Transient
+	private boolean created;
+
+	@Override
+	public Long getId() {
+		return orderId;
+	}
+
+	@Override
+	public boolean isNew() {
+		return created;
+	}
+
+	@PostLoad
+	@PostPersist
+	void markStored() {
+		created = false;
+	}
+
+}
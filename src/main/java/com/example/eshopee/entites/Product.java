@@ -1,24 +1,40 @@
 package com.example.eshopee.entites;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
+
+import org.hibernate.annotations.UpdateTimestamp;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.*;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+		@Index(name = "idx_products_category_product", columnList = "category_id, product_id"),
+		@Index(name = "idx_products_category_price", columnList = "category_id, price"),
+		@Index(name = "idx_products_updated_at", columnList = "updated_at, product_id") })
 @Getter
 @Setter
 @ToString
@@ -45,15 +61,58 @@ public class Product {
 	private double discount;
 	private double specialPrice;
 
+	// Normalized (category, name, description) hash, unique so duplicate checks are one index lookup
+	@Column(unique = true, length = 64)
+	private String fingerprint;
+
+	// Drives incremental exports of catalog changes; the stock UPDATEs of carts do not set it
+	@UpdateTimestamp
+	private LocalDateTime updatedAt;
+
+	// Set while HotStockCounters holds the stock; quantity then lags by the unflushed ledger
+	@JsonIgnore
+	private boolean hotStock;
+
 	@ManyToOne
 	@JoinColumn(name = "category_id")
 	private Category category;
 	
-	@OneToMany(mappedBy = "product", cascade = { CascadeType.PERSIST, CascadeType.MERGE }, fetch = FetchType.EAGER)
+	// Lazy: a popular product can sit in a huge number of carts; use CartItemRepo/CartRepo for that fan-out
+	@OneToMany(mappedBy = "product", cascade = { CascadeType.PERSIST, CascadeType.MERGE })
+	@ToString.Exclude
 	private List<CartItem> products = new ArrayList<>();
 	
 	@OneToMany(mappedBy = "product", cascade = { CascadeType.PERSIST, CascadeType.MERGE })
 	@ToString.Exclude
 	private List<OrderItem> orderItems = new ArrayList<>();
 
+	@PrePersist
+	void computeFingerprint() {
+		fingerprint = fingerprintOf(category == null ? null : category.getCategoryId(), productName, description);
+	}
+
+	// A legacy duplicate keeps its null fingerprint, which the unique constraint would otherwise reject
+	@PreUpdate
+	void refreshFingerprint() {
+		if (fingerprint != null) {
+			computeFingerprint();
+		}
+	}
+
+	public static String fingerprintOf(Long categoryId, String productName, String description) {
+		String normalized = categoryId + "\u0000" + normalize(productName) + "\u0000" + normalize(description);
+
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+			return HexFormat.of().formatHex(digest.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String normalize(String text) {
+		return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+	}
+
 }
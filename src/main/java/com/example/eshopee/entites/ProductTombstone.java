@@ -0,0 +1,27 @@
+package com.example.eshopee.entites;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.*;
+
+@Entity
+@Table(name = "product_tombstones", indexes = @Index(name = "idx_product_tombstones_deleted_at", columnList = "deleted_at, product_id"))
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductTombstone {
+
+	// The deleted product; product ids are never reused
+	@Id
+	private Long productId;
+
+	// Drives incremental exports of deletes, as updatedAt does for products
+	private LocalDateTime deletedAt;
+
+}
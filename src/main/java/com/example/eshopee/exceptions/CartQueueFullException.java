@@ -0,0 +1,13 @@
+package com.example.eshopee.exceptions;
+
+public class CartQueueFullException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public CartQueueFullException() {
+	}
+
+	public CartQueueFullException(String message) {
+		super(message);
+	}
+}
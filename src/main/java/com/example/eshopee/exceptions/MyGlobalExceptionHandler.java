@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.AuthenticationException;
@@ -20,6 +21,9 @@ import jakarta.validation.ConstraintViolationException;
 @RestControllerAdvice
 public class MyGlobalExceptionHandler {
 
+	// The unique key on cart_items (cart_id, product_id), as named in the database's message
+	private static final String CART_LINE_KEY = "uk_cart_items_cart_product";
+
 	@ExceptionHandler(ResourceNotFoundException.class)
 	public ResponseEntity<APIResponse> myResourceNotFoundException(ResourceNotFoundException e) {
 		String message = e.getMessage();
@@ -83,8 +87,37 @@ public class MyGlobalExceptionHandler {
 	
 	@ExceptionHandler(DataIntegrityViolationException.class)
 	public ResponseEntity<APIResponse> myDataIntegrityException(DataIntegrityViolationException e) {
+		// Two instances added the same product to one cart at once; a retry finds the line and adds to it
+		if (String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase().contains(CART_LINE_KEY)) {
+			APIResponse res = new APIResponse("The product is being added to this cart by another request, please retry",
+					false);
+
+			return ResponseEntity.status(HttpStatus.CONFLICT).header(HttpHeaders.RETRY_AFTER, "1").body(res);
+		}
+
 		APIResponse res = new APIResponse(e.getMessage(), false);
 
 		return new ResponseEntity<APIResponse>(res, HttpStatus.BAD_REQUEST);
 	}
+
+	@ExceptionHandler(OrderQueueFullException.class)
+	public ResponseEntity<APIResponse> myOrderQueueFullException(OrderQueueFullException e) {
+		APIResponse res = new APIResponse(e.getMessage(), false);
+
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(res);
+	}
+
+	@ExceptionHandler(CartQueueFullException.class)
+	public ResponseEntity<APIResponse> myCartQueueFullException(CartQueueFullException e) {
+		APIResponse res = new APIResponse(e.getMessage(), false);
+
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(res);
+	}
+
+	@ExceptionHandler(OrderInFlightException.class)
+	public ResponseEntity<APIResponse> myOrderInFlightException(OrderInFlightException e) {
+		APIResponse res = new APIResponse(e.getMessage(), false);
+
+		return ResponseEntity.status(HttpStatus.CONFLICT).header(HttpHeaders.RETRY_AFTER, "1").body(res);
+	}
 }
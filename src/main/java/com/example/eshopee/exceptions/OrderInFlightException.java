@@ -0,0 +1,13 @@
+package com.example.eshopee.exceptions;
+
+public class OrderInFlightException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public OrderInFlightException() {
+	}
+
+	public OrderInFlightException(String message) {
+		super(message);
+	}
+}
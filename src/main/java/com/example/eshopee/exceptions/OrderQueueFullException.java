@@ -0,0 +1,13 @@
+package com.example.eshopee.exceptions;
+
+public class OrderQueueFullException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public OrderQueueFullException() {
+	}
+
+	public OrderQueueFullException(String message) {
+		super(message);
+	}
+}
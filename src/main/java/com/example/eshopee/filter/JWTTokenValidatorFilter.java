@@ -95,6 +95,12 @@ public class JWTTokenValidatorFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // Async results (cart mutations, exports) are written on an async dispatch, which needs the authentication again
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
         //do not filter if the request is for public urls which is stored in AppConstants
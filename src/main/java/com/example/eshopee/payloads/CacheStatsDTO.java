@@ -0,0 +1,20 @@
+package com.example.eshopee.payloads;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsDTO {
+
+	private String name;
+	private Long size;
+	private Long maximumSize;
+	private Long hitCount;
+	private Long missCount;
+	private Double hitRate;
+	private Long evictionCount;
+
+}
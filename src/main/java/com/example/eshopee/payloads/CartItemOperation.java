@@ -0,0 +1,20 @@
+package com.example.eshopee.payloads;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line change of a batch cart update: op is add (quantity more units), update (set the
+ * line to quantity units) or remove (drop the line; quantity is ignored).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartItemOperation {
+
+	private String op;
+	private Long productId;
+	private Integer quantity;
+
+}
@@ -0,0 +1,21 @@
+package com.example.eshopee.payloads;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartResponse {
+
+	private List<CartDTO> content;
+	private Integer pageNumber;
+	private Integer pageSize;
+	private Long totalElements;
+	private Integer totalPages;
+	private boolean lastPage;
+
+}
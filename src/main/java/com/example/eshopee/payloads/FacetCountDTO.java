@@ -0,0 +1,15 @@
+package com.example.eshopee.payloads;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetCountDTO {
+
+	private String value;
+	private Long count;
+
+}
@@ -0,0 +1,19 @@
+package com.example.eshopee.payloads;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetsDTO {
+
+	private List<FacetCountDTO> categories;
+	private List<FacetCountDTO> priceBands;
+	private List<FacetCountDTO> discountBands;
+	private Long inStock;
+
+}
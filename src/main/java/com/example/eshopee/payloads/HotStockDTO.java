@@ -0,0 +1,17 @@
+package com.example.eshopee.payloads;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotStockDTO {
+
+	private Long productId;
+	private Long available;
+	private Integer shards;
+	private Long unflushedMovements;
+
+}
@@ -0,0 +1,19 @@
+package com.example.eshopee.payloads;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderItemSnapshot {
+
+	private Long orderItemId;
+	private Long productId;
+	private String productName;
+	private Integer quantity;
+	private double discount;
+	private double orderedProductPrice;
+
+}
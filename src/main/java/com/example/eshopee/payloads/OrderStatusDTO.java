@@ -0,0 +1,19 @@
+package com.example.eshopee.payloads;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusDTO {
+
+	private Long orderId;
+	private String orderStatus;
+	private Double totalAmount;
+
+	// Orders queued before this one, while it is pending; null once it is finalized
+	private Long ordersAhead;
+
+}
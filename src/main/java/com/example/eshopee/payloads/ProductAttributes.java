@@ -0,0 +1,19 @@
+package com.example.eshopee.payloads;
+
+import lombok.Value;
+
+/**
+ * Read-mostly attributes of a product, as held by the product cache. Stock is deliberately
+ * left out: it changes on every add-to-cart and is always read from the database.
+ */
+@Value
+public class ProductAttributes {
+
+	Long productId;
+	String productName;
+	double price;
+	double discount;
+	double specialPrice;
+	Long categoryId;
+
+}
@@ -0,0 +1,23 @@
+package com.example.eshopee.payloads;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilter {
+
+	private Long categoryId;
+	private Double minPrice;
+	private Double maxPrice;
+	private String discountBand;
+	private Boolean inStock;
+
+	public boolean isEmpty() {
+		return categoryId == null && minPrice == null && maxPrice == null && discountBand == null
+				&& !Boolean.TRUE.equals(inStock);
+	}
+
+}
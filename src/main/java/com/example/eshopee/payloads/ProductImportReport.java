@@ -0,0 +1,22 @@
+package com.example.eshopee.payloads;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportReport {
+
+	private long totalRows;
+	private long importedRows;
+	private long duplicateRows;
+	private long failedRows;
+	// Capped, so a completely broken file cannot grow the report without bound
+	private List<ProductImportError> errors = new ArrayList<>();
+
+}
@@ -17,5 +17,7 @@ public class ProductResponse {
 	private Long totalElements;
 	private Integer totalPages;
 	private boolean lastPage;
+	private String nextCursor;
+	private FacetsDTO facets;
 	
 }
@@ -0,0 +1,21 @@
+package com.example.eshopee.payloads;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RepriceProgressDTO {
+
+	private Long productId;
+	private String status;
+	private Long totalCarts;
+	private Long repricedCarts;
+	private LocalDateTime startedAt;
+	private LocalDateTime finishedAt;
+
+}
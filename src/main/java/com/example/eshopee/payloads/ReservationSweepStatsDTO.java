@@ -0,0 +1,25 @@
+package com.example.eshopee.payloads;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationSweepStatsDTO {
+
+	private Long ttlMinutes;
+	private Long runs;
+	private LocalDateTime lastRunAt;
+	private Long lastRunMillis;
+	private Long lastRunLines;
+	private Long lastRunUnits;
+	private Long totalLines;
+	private Long totalUnits;
+	private Long totalMillis;
+	private Double linesPerSecond;
+
+}
@@ -0,0 +1,18 @@
+package com.example.eshopee.payloads;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionStatsDTO {
+
+	private Long entries;
+	private Long nodes;
+	private Long estimatedBytes;
+	private Long maxBytes;
+	private Long evictedEntries;
+
+}
@@ -1,12 +1,20 @@
 package com.example.eshopee.repositories;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import com.example.eshopee.entites.CartItem;
 import com.example.eshopee.entites.Product;
 
+import jakarta.persistence.LockModeType;
+
 public interface CartItemRepo extends JpaRepository<CartItem, Long>{
 	
 	@Query("SELECT ci.product FROM CartItem ci WHERE ci.product.id = ?1")
@@ -24,7 +32,62 @@ public interface CartItemRepo extends JpaRepository<CartItem, Long>{
 //	@Query("SELECT ci.order FROM CartItem ci WHERE ci.order.user.email = ?1 AND ci.order.id = ?2")
 //	Order findOrderByEmailAndOrderId(String email, Integer orderId);
 	
+	/**
+	 * cartId and the ProductDTO of every line of the carts, in one query.
+	 */
+	@Query("SELECT ci.cart.id, new com.example.eshopee.payloads.ProductDTO(p.productId, p.productName, p.image, "
+			+ "p.description, p.quantity, p.price, p.discount, p.specialPrice) FROM CartItem ci JOIN ci.product p "
+			+ "WHERE ci.cart.id IN ?1 ORDER BY ci.cartItemId")
+	List<Object[]> findProductDTOsByCartIdIn(Collection<Long> cartIds);
+
 	@Modifying
     @Query("DELETE FROM CartItem ci WHERE ci.cart.id = ?1 AND ci.product.id = ?2")
     void deleteCartItemByProductIdAndCartId(Long productId, Long cartId);
+
+	@Query("SELECT COUNT(ci) FROM CartItem ci WHERE ci.product.id = ?1")
+	long countByProductId(Long productId);
+
+	@Query("SELECT ci.cart.id FROM CartItem ci WHERE ci.product.id = ?1 AND ci.cart.id > ?2 ORDER BY ci.cart.id")
+	List<Long> findCartIdsByProductIdAfter(Long productId, Long cartId, Pageable pageable);
+
+	@Modifying(flushAutomatically = true)
+	@Query("UPDATE CartItem ci SET ci.productPrice = (SELECT p.specialPrice FROM Product p WHERE p.id = ?1) "
+			+ "WHERE ci.product.id = ?1 AND ci.cart.id BETWEEN ?2 AND ?3")
+	int repriceProduct(Long productId, Long fromCartId, Long toCartId);
+
+	@Modifying(flushAutomatically = true)
+	@Query("DELETE FROM CartItem ci WHERE ci.product.id = ?1")
+	int deleteByProductId(Long productId);
+
+	/**
+	 * cartItemId, cartId, productId, quantity and reservedAt of the lines reserved before the
+	 * cutoff, in (reservedAt, cartItemId) order after the given line. A range scan of
+	 * idx_cart_items_reserved_at.
+	 */
+	@Query("SELECT ci.cartItemId, ci.cart.id, ci.product.id, ci.quantity, ci.reservedAt FROM CartItem ci "
+			+ "WHERE ci.reservedAt < ?1 "
+			+ "AND (ci.reservedAt > ?2 OR (ci.reservedAt = ?2 AND ci.cartItemId > ?3)) "
+			+ "ORDER BY ci.reservedAt, ci.cartItemId")
+	List<Object[]> findExpiredReservationsAfter(LocalDateTime cutoff, LocalDateTime reservedAt, Long cartItemId,
+			Pageable pageable);
+
+	/**
+	 * cartItemId, productId and quantity of those of the lines still reserved before the cutoff,
+	 * locked until the transaction ends.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT ci.cartItemId, ci.product.id, ci.quantity FROM CartItem ci "
+			+ "WHERE ci.cartItemId IN ?1 AND ci.reservedAt < ?2")
+	List<Object[]> findExpiredIn(Collection<Long> cartItemIds, LocalDateTime cutoff);
+
+	@Modifying
+	@Query("UPDATE CartItem ci SET ci.reservedAt = ?1 WHERE ci.reservedAt IS NULL")
+	int stampUnreserved(LocalDateTime reservedAt);
+
+	@Query("SELECT DISTINCT ci.cart.id FROM CartItem ci GROUP BY ci.cart.id, ci.product.id HAVING COUNT(ci) > 1")
+	List<Long> findCartIdsWithDuplicateLines();
+
+	@Modifying(flushAutomatically = true)
+	@Query("DELETE FROM CartItem ci WHERE ci.cartItemId IN ?1")
+	int deleteByIdIn(Collection<Long> cartItemIds);
 }
@@ -1,8 +1,12 @@
 package com.example.eshopee.repositories;
 
-import java.util.List;
+import java.util.Collection;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -14,6 +18,39 @@ public interface CartRepo extends JpaRepository<Cart, Long> {
 	@Query("SELECT c FROM Cart c WHERE c.user.email = ?1 AND c.id = ?2")
 	Cart findCartByEmailAndCartId(String email, Long cartId);
 
-	@Query("SELECT c FROM Cart c JOIN FETCH c.cartItems ci JOIN FETCH ci.product p WHERE p.id = ?1")
-	List<Cart> findCartsByProductId(Long productId);
+	/**
+	 * cartId and totalPrice of a page of carts, optionally only those with lines and those
+	 * worth at least minTotal; no lines or users are loaded.
+	 */
+	@Query(value = "SELECT c.cartId, c.totalPrice FROM Cart c WHERE (?1 = false OR EXISTS "
+			+ "(SELECT 1 FROM CartItem ci WHERE ci.cart = c)) AND (?2 IS NULL OR c.totalPrice >= ?2)",
+			countQuery = "SELECT COUNT(c) FROM Cart c WHERE (?1 = false OR EXISTS "
+					+ "(SELECT 1 FROM CartItem ci WHERE ci.cart = c)) AND (?2 IS NULL OR c.totalPrice >= ?2)")
+	Page<Object[]> findCartTotals(boolean nonEmpty, Double minTotal, Pageable pageDetails);
+
+	/**
+	 * Moves the totals of the carts in [fromCartId, toCartId] holding the product to its current
+	 * special price. Run before {@link CartItemRepo#repriceProduct}, which the delta is taken from.
+	 */
+	@Modifying(flushAutomatically = true)
+	@Query("UPDATE Cart c SET c.version = c.version + 1, c.totalPrice = ROUND(c.totalPrice + "
+			+ "(SELECT SUM((p.specialPrice - ci.productPrice) * ci.quantity) "
+			+ "FROM CartItem ci JOIN ci.product p WHERE ci.cart = c AND p.id = ?1), 2) "
+			+ "WHERE c.id IN (SELECT ci.cart.id FROM CartItem ci WHERE ci.product.id = ?1 AND ci.cart.id BETWEEN ?2 AND ?3)")
+	int repriceProductInCarts(Long productId, Long fromCartId, Long toCartId);
+
+	@Modifying(flushAutomatically = true)
+	@Query("UPDATE Cart c SET c.version = c.version + 1, c.totalPrice = ROUND(c.totalPrice - "
+			+ "(SELECT SUM(ci.productPrice * ci.quantity) FROM CartItem ci WHERE ci.cart = c AND ci.product.id = ?1), 2) "
+			+ "WHERE c.id IN (SELECT ci.cart.id FROM CartItem ci WHERE ci.product.id = ?1)")
+	int deductProductFromCarts(Long productId);
+
+	/**
+	 * Takes the lines from the totals of their carts. Run before the lines are deleted.
+	 */
+	@Modifying(flushAutomatically = true)
+	@Query("UPDATE Cart c SET c.version = c.version + 1, c.totalPrice = ROUND(c.totalPrice - "
+			+ "(SELECT SUM(ci.productPrice * ci.quantity) FROM CartItem ci WHERE ci.cart = c AND ci.cartItemId IN ?1), 2) "
+			+ "WHERE c.id IN (SELECT ci.cart.id FROM CartItem ci WHERE ci.cartItemId IN ?1)")
+	int deductItemsFromCarts(Collection<Long> cartItemIds);
 }
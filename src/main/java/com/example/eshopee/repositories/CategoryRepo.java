@@ -1,12 +1,13 @@
 package com.example.eshopee.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
 import com.example.eshopee.entites.Category;
 
 @Repository
-public interface CategoryRepo extends JpaRepository<Category, Long> {
+public interface CategoryRepo extends JpaRepository<Category, Long>, JpaSpecificationExecutor<Category> {
 
 	Category findByCategoryName(String categoryName);
 
@@ -0,0 +1,34 @@
+package com.example.eshopee.repositories;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.example.eshopee.entites.HotStockMovement;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface HotStockMovementRepo extends JpaRepository<HotStockMovement, Long> {
+
+	/**
+	 * The oldest movements, locked until the transaction ends so two instances cannot apply the
+	 * same ones.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT m FROM HotStockMovement m ORDER BY m.movementId")
+	List<HotStockMovement> findOldest(Pageable pageable);
+
+	long countByProductId(Long productId);
+
+	@Modifying(flushAutomatically = true)
+	@Query("DELETE FROM HotStockMovement m WHERE m.movementId IN ?1")
+	int deleteByMovementIdIn(Collection<Long> movementIds);
+
+}
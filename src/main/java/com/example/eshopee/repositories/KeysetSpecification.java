@@ -0,0 +1,81 @@
+package com.example.eshopee.repositories;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+
+/**
+ * Null-aware keyset predicate for the cursor listings.
+ *
+ * Nulls sort lowest, which is how MySQL (and H2) order them: first going up, last going down.
+ * Spring Data's own keyset scrolling compares a null key with {@code >}, which matches no row, so
+ * the listings scroll from the initial position with this predicate in the specification instead.
+ */
+public final class KeysetSpecification {
+
+	private KeysetSpecification() {
+	}
+
+	/**
+	 * Rows after the position in the sort, or every row for the initial position.
+	 */
+	public static <T> Specification<T> after(KeysetScrollPosition position, Sort sort) {
+		return (root, query, cb) -> position.isInitial() ? null : after(cb, root, sort, position.getKeys());
+	}
+
+	/**
+	 * (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ..., with > turned into < for descending keys.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	static Predicate after(CriteriaBuilder cb, Path<?> root, Sort sort, Map<String, Object> keys) {
+		List<Predicate> alternatives = new ArrayList<>();
+		List<Predicate> equalSoFar = new ArrayList<>();
+
+		for (Sort.Order order : sort) {
+			Expression<Comparable> key = path(root, order.getProperty());
+			Comparable value = (Comparable) keys.get(order.getProperty());
+
+			List<Predicate> alternative = new ArrayList<>(equalSoFar);
+			alternative.add(order.isAscending() ? above(cb, key, value) : below(cb, key, value));
+			alternatives.add(cb.and(alternative.toArray(new Predicate[0])));
+
+			equalSoFar.add(value == null ? cb.isNull(key) : cb.equal(key, value));
+		}
+
+		return cb.or(alternatives.toArray(new Predicate[0]));
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Predicate above(CriteriaBuilder cb, Expression<Comparable> key, Comparable value) {
+		// Every value sorts above null, and null sorts above nothing
+		return value == null ? cb.isNotNull(key) : cb.greaterThan(key, value);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Predicate below(CriteriaBuilder cb, Expression<Comparable> key, Comparable value) {
+		return value == null ? cb.disjunction() : cb.or(cb.lessThan(key, value), cb.isNull(key));
+	}
+
+	private static <X> Path<X> path(Path<?> root, String property) {
+		Path<?> path = root;
+
+		for (String segment : property.split("\\.")) {
+			path = path.get(segment);
+		}
+
+		@SuppressWarnings("unchecked")
+		Path<X> typed = (Path<X>) path;
+
+		return typed;
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.example.eshopee.repositories;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.example.eshopee.entites.OrderIdempotencyKey;
+
+@Repository
+public interface OrderIdempotencyKeyRepo extends JpaRepository<OrderIdempotencyKey, Long> {
+
+	Optional<OrderIdempotencyKey> findByEmailAndIdempotencyKey(String email, String idempotencyKey);
+
+	/**
+	 * Leases the key again from now, if it is still leased at claimedAt and has no response; 0
+	 * when another request has taken it over or the order was placed. Takes over an abandoned
+	 * key, and renews the lease of one whose placement starts.
+	 */
+	@Modifying
+	@Query("UPDATE OrderIdempotencyKey k SET k.claimedAt = ?3 WHERE k.id = ?1 AND k.claimedAt = ?2 AND k.response IS NULL")
+	int lease(Long id, LocalDateTime claimedAt, LocalDateTime now);
+
+	@Modifying
+	@Query("UPDATE OrderIdempotencyKey k SET k.response = ?2 WHERE k.id = ?1")
+	int complete(Long id, String response);
+
+	/**
+	 * Frees a key whose placement failed, unless another request has taken it over since or
+	 * its order was placed.
+	 */
+	@Modifying
+	@Query("DELETE FROM OrderIdempotencyKey k WHERE k.id = ?1 AND k.claimedAt = ?2 AND k.response IS NULL")
+	int release(Long id, LocalDateTime claimedAt);
+
+	@Modifying
+	@Query("DELETE FROM OrderIdempotencyKey k WHERE k.claimedAt < ?1")
+	int deleteClaimedBefore(LocalDateTime cutoff);
+
+}
@@ -1,6 +1,10 @@
 package com.example.eshopee.repositories;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.example.eshopee.entites.OrderItem;
@@ -8,4 +12,17 @@ import com.example.eshopee.entites.OrderItem;
 @Repository
 public interface OrderItemRepo extends JpaRepository<OrderItem, Long> {
 
+	@Query("SELECT oi.product.productId, SUM(oi.quantity) FROM OrderItem oi GROUP BY oi.product.productId")
+	List<Object[]> sumQuantityByProduct();
+
+	/**
+	 * The items of the orders with their products, in one query.
+	 */
+	@Query("SELECT oi FROM OrderItem oi JOIN FETCH oi.product p JOIN FETCH p.category "
+			+ "WHERE oi.order.orderId IN ?1 ORDER BY oi.orderItemId")
+	List<OrderItem> findAllByOrderIdIn(Collection<Long> orderIds);
+
+	@Query("SELECT MAX(oi.orderItemId) FROM OrderItem oi")
+	Long findMaxId();
+
 }
@@ -0,0 +1,40 @@
+package com.example.eshopee.repositories;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.example.eshopee.entites.OrderQueueEntry;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface OrderQueueRepo extends JpaRepository<OrderQueueEntry, Long> {
+
+	/**
+	 * The oldest entries available at now, locked until the transaction ends so two instances
+	 * cannot claim the same ones.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT e FROM OrderQueueEntry e WHERE e.availableAt <= ?1 ORDER BY e.availableAt, e.orderId")
+	List<OrderQueueEntry> findAvailable(LocalDateTime now, Pageable pageable);
+
+	@Modifying(flushAutomatically = true)
+	@Query("UPDATE OrderQueueEntry e SET e.availableAt = ?2, e.attempts = e.attempts + 1 WHERE e.orderId IN ?1")
+	int claim(Collection<Long> orderIds, LocalDateTime leaseUntil);
+
+	@Query("SELECT COUNT(e) FROM OrderQueueEntry e WHERE e.orderId < ?1")
+	long countAhead(Long orderId);
+
+	@Modifying(flushAutomatically = true)
+	@Query("DELETE FROM OrderQueueEntry e WHERE e.orderId IN ?1")
+	int deleteByOrderIdIn(Collection<Long> orderIds);
+
+}
@@ -1,19 +1,39 @@
 package com.example.eshopee.repositories;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import com.example.eshopee.entites.Order;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
-public interface OrderRepo extends JpaRepository<Order, Long> {
+public interface OrderRepo extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
 	
 	@Query("SELECT o FROM Order o WHERE o.email = ?1 AND o.id = ?2")
 	Order findOrderByEmailAndOrderId(String email, Long cartId);
 
 	List<Order> findAllByEmail(String emailId);
+
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+	@Query("SELECT o FROM Order o LEFT JOIN FETCH o.payment ORDER BY o.orderId")
+	Stream<Order> streamAll();
+
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+	@Query("SELECT o FROM Order o LEFT JOIN FETCH o.payment WHERE o.updatedAt >= ?1 ORDER BY o.updatedAt, o.orderId")
+	Stream<Order> streamUpdatedSince(LocalDateTime since);
+
+	@Query("SELECT o FROM Order o LEFT JOIN FETCH o.payment WHERE o.orderId > ?1 "
+			+ "AND NOT EXISTS (SELECT 1 FROM OrderSummary s WHERE s.orderId = o.orderId) ORDER BY o.orderId")
+	List<Order> findUnsummarizedAfter(Long orderId, Pageable pageable);
 	
 }
@@ -0,0 +1,20 @@
+package com.example.eshopee.repositories;
+
+import java.util.Collection;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.example.eshopee.entites.OrderSummary;
+
+@Repository
+public interface OrderSummaryRepo extends JpaRepository<OrderSummary, Long>, JpaSpecificationExecutor<OrderSummary> {
+
+	@Modifying(flushAutomatically = true)
+	@Query("UPDATE OrderSummary s SET s.orderStatus = ?2 WHERE s.orderId IN ?1")
+	int updateOrderStatus(Collection<Long> orderIds, String orderStatus);
+
+}
@@ -1,15 +1,125 @@
 package com.example.eshopee.repositories;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import com.example.eshopee.entites.Product;
+import com.example.eshopee.payloads.ProductAttributes;
+import com.example.eshopee.payloads.ProductDTO;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 
 @Repository
-public interface ProductRepo extends JpaRepository<Product, Long> {
+public interface ProductRepo extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>, ProductRepoCustom {
+
+	String SELECT_PRODUCT_DTO = "SELECT new com.example.eshopee.payloads.ProductDTO(p.productId, p.productName, "
+			+ "p.image, p.description, p.quantity, p.price, p.discount, p.specialPrice) FROM Product p";
+
+	@Query(value = SELECT_PRODUCT_DTO, countQuery = "SELECT COUNT(p) FROM Product p")
+	Page<ProductDTO> findAllProductDTOs(Pageable pageDetails);
+
+	@Query(value = SELECT_PRODUCT_DTO + " WHERE p.category.categoryId = ?1",
+			countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category.categoryId = ?1")
+	Page<ProductDTO> findProductDTOsByCategoryId(Long categoryId, Pageable pageDetails);
+
+	@Query(SELECT_PRODUCT_DTO + " WHERE p.productId IN ?1")
+	List<ProductDTO> findProductDTOsByIdIn(Collection<Long> productIds);
+
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+	@Query("SELECT p FROM Product p LEFT JOIN FETCH p.category ORDER BY p.productId")
+	Stream<Product> streamAll();
+
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+	@Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.updatedAt >= ?1 ORDER BY p.updatedAt, p.productId")
+	Stream<Product> streamUpdatedSince(LocalDateTime since);
+
+	boolean existsByFingerprint(String fingerprint);
+
+	boolean existsByFingerprintAndProductIdNot(String fingerprint, Long productId);
+
+	@Query("SELECT p.fingerprint FROM Product p WHERE p.fingerprint IN ?1")
+	List<String> findFingerprintsIn(Collection<String> fingerprints);
+
+	@Query("SELECT p.productId, p.productName, p.description FROM Product p WHERE p.productId > ?1 ORDER BY p.productId")
+	List<Object[]> findSearchableProductsAfter(Long productId, Pageable pageable);
+
+	@Query("SELECT p.productId, p.productName, c.categoryId FROM Product p LEFT JOIN p.category c "
+			+ "WHERE p.productId > ?1 ORDER BY p.productId")
+	List<Object[]> findSuggestableProductsAfter(Long productId, Pageable pageable);
+
+	@Query("SELECT p.productId, p.price, p.specialPrice, p.discount, p.quantity, c.categoryId FROM Product p "
+			+ "LEFT JOIN p.category c WHERE p.productId > ?1 ORDER BY p.productId")
+	List<Object[]> findFacetRowsAfter(Long productId, Pageable pageable);
+
+	@Query("SELECT p.productId, c.categoryId, p.productName, p.description FROM Product p LEFT JOIN p.category c "
+			+ "WHERE p.fingerprint IS NULL AND p.productId > ?1 ORDER BY p.productId")
+	List<Object[]> findUnfingerprintedAfter(Long productId, Pageable pageable);
+
+	@Modifying
+	@Query("UPDATE Product p SET p.fingerprint = ?2 WHERE p.productId = ?1")
+	int updateFingerprint(Long productId, String fingerprint);
+
+	@Query("SELECT new com.example.eshopee.payloads.ProductAttributes(p.productId, p.productName, p.price, p.discount, "
+			+ "p.specialPrice, c.categoryId) FROM Product p LEFT JOIN p.category c WHERE p.productId = ?1")
+	Optional<ProductAttributes> findAttributesById(Long productId);
+
+	@Query("SELECT new com.example.eshopee.payloads.ProductAttributes(p.productId, p.productName, p.price, p.discount, "
+			+ "p.specialPrice, c.categoryId) FROM Product p LEFT JOIN p.category c WHERE p.productId IN ?1")
+	List<ProductAttributes> findAttributesByIdIn(Collection<Long> productIds);
+
+	@Query("SELECT p.quantity FROM Product p WHERE p.productId = ?1")
+	Integer findQuantityById(Long productId);
+
+	@Query("SELECT p.productId, p.quantity FROM Product p WHERE p.productId IN ?1")
+	List<Object[]> findQuantitiesByIdIn(Collection<Long> productIds);
+
+	@Modifying(flushAutomatically = true)
+	@Query("UPDATE Product p SET p.quantity = p.quantity + ?2 WHERE p.productId = ?1")
+	int addQuantity(Long productId, int delta);
+
+	@Modifying(flushAutomatically = true)
+	@Query("UPDATE Product p SET p.quantity = p.quantity - ?2 "
+			+ "WHERE p.productId = ?1 AND p.quantity >= ?2 "
+			+ "AND p.hotStock = false")
+	int reserveQuantity(Long productId, int quantity);
+
+	/**
+	 * Returns the units of the cart lines to the stock of their products. Run before the lines
+	 * are deleted.
+	 */
+	@Modifying(flushAutomatically = true)
+	@Query("UPDATE Product p SET p.quantity = p.quantity + (SELECT SUM(ci.quantity) FROM CartItem ci "
+			+ "WHERE ci.product = p AND ci.cartItemId IN ?1) "
+			+ "WHERE p.productId IN (SELECT ci.product.id FROM CartItem ci WHERE ci.cartItemId IN ?1)")
+	int returnQuantityOfItems(Collection<Long> cartItemIds);
+
+	@Modifying(flushAutomatically = true)
+	@Query("UPDATE Product p SET p.hotStock = ?2 WHERE p.productId = ?1 AND p.hotStock <> ?2")
+	int updateHotStock(Long productId, boolean hotStock);
+
+	@Query("SELECT p.productId, p.quantity FROM Product p WHERE p.hotStock = true")
+	List<Object[]> findHotStock();
 
-	Page<Product> findByProductNameLike(String keyword, Pageable pageDetails);
+	/**
+	 * The product, its row locked against a concurrent price change until the transaction ends.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_READ)
+	@Query("SELECT p FROM Product p WHERE p.productId = ?1")
+	Optional<Product> findByIdForPriceRead(Long productId);
 
 }
@@ -0,0 +1,16 @@
+package com.example.eshopee.repositories;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import com.example.eshopee.payloads.ProductDTO;
+
+public interface ProductRepoCustom {
+
+	/**
+	 * Keyset-scrolls products straight into {@link ProductDTO}s, optionally within one category.
+	 */
+	Window<ProductDTO> scrollProductDTOs(Long categoryId, Sort sort, KeysetScrollPosition position, int limit);
+
+}
@@ -0,0 +1,79 @@
+package com.example.eshopee.repositories;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.exceptions.APIException;
+import com.example.eshopee.payloads.ProductDTO;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+class ProductRepoImpl implements ProductRepoCustom {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public Window<ProductDTO> scrollProductDTOs(Long categoryId, Sort sort, KeysetScrollPosition position, int limit) {
+		BeanWrapperImpl dtoProperties = new BeanWrapperImpl(ProductDTO.class);
+
+		for (Sort.Order order : sort) {
+			if (!dtoProperties.isReadableProperty(order.getProperty())) {
+				throw new APIException("Products cannot be sorted by: " + order.getProperty());
+			}
+		}
+
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<ProductDTO> query = cb.createQuery(ProductDTO.class);
+		Root<Product> p = query.from(Product.class);
+
+		query.select(cb.construct(ProductDTO.class, p.get("productId"), p.get("productName"), p.get("image"),
+				p.get("description"), p.get("quantity"), p.get("price"), p.get("discount"), p.get("specialPrice")));
+
+		List<Predicate> where = new ArrayList<>();
+
+		if (categoryId != null) {
+			where.add(cb.equal(p.get("category").get("categoryId"), categoryId));
+		}
+
+		if (!position.isInitial()) {
+			where.add(KeysetSpecification.after(cb, p, sort, position.getKeys()));
+		}
+
+		query.where(where.toArray(new Predicate[0])).orderBy(QueryUtils.toOrders(sort, p, cb));
+
+		List<ProductDTO> rows = entityManager.createQuery(query).setMaxResults(limit + 1).getResultList();
+
+		boolean hasNext = rows.size() > limit;
+		List<ProductDTO> content = hasNext ? rows.subList(0, limit) : rows;
+
+		return Window.from(content, i -> ScrollPosition.forward(keysOf(content.get(i), sort)), hasNext);
+	}
+
+	private Map<String, Object> keysOf(ProductDTO product, Sort sort) {
+		BeanWrapperImpl properties = new BeanWrapperImpl(product);
+		Map<String, Object> keys = new LinkedHashMap<>();
+
+		for (Sort.Order order : sort) {
+			keys.put(order.getProperty(), properties.getPropertyValue(order.getProperty()));
+		}
+
+		return keys;
+	}
+
+}
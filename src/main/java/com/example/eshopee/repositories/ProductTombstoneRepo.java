@@ -0,0 +1,23 @@
+package com.example.eshopee.repositories;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import com.example.eshopee.entites.ProductTombstone;
+
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface ProductTombstoneRepo extends JpaRepository<ProductTombstone, Long> {
+
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+	@Query("SELECT t FROM ProductTombstone t WHERE t.deletedAt >= ?1 ORDER BY t.deletedAt, t.productId")
+	Stream<ProductTombstone> streamDeletedSince(LocalDateTime since);
+
+}
@@ -4,13 +4,14 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.example.eshopee.entites.User;
 
 @Repository
-public interface UserRepo extends JpaRepository<User, Long> {
+public interface UserRepo extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
 	
 	@Query("SELECT u FROM User u JOIN FETCH u.addresses a WHERE a.addressId = ?1")
 	List<User> findByAddress(Long addressId);
@@ -0,0 +1,200 @@
+package com.example.eshopee.services;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import com.example.eshopee.exceptions.CartQueueFullException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs the mutations of one cart one at a time, in arrival order, without database locks.
+ *
+ * Each cart with work pending has a mailbox. A mailbox is scheduled on a fixed pool of workers
+ * while it has tasks, so different carts run in parallel and one cart never runs on two
+ * workers at once. A double-clicked add is applied twice in turn instead of both requests
+ * reading the same total and the same missing cart line. A busy mailbox gives up its worker
+ * after a few tasks, so one cart cannot starve the others. An empty mailbox is removed, so
+ * idle carts cost nothing.
+ *
+ * The tasks block on JDBC, so the pool defaults to one worker per database connection rather
+ * than per core. Requests are refused with {@link CartQueueFullException} once queue-capacity
+ * tasks are waiting. Order finalization queues here as well, so its writes to a cart never
+ * interleave with a request's read-modify-write of it; it bounds its own batches and is never
+ * refused. The cart repricer and the reservation sweeper instead run set-based statements over
+ * many carts at a time. They bump carts.version, so a task that read a cart before one of them
+ * committed fails its version check; it is run again, up to three times.
+ *
+ * This only serializes the requests of one instance; the cart_items unique key still stops
+ * duplicate lines across instances.
+ */
+@Component
+public class CartExecutor {
+
+	private static final int TASKS_PER_TURN = 16;
+
+	private static final int ATTEMPTS = 3;
+
+	@Value("${project.cart.executor.threads:0}")
+	private int threads;
+
+	@Value("${project.cart.executor.queue-capacity:10000}")
+	private int queueCapacity;
+
+	@Value("${spring.datasource.hikari.maximum-pool-size:10}")
+	private int connections;
+
+	private ThreadPoolExecutor workers;
+
+	// Tasks submitted and not yet started, across all mailboxes
+	private final AtomicInteger queued = new AtomicInteger();
+
+	// A mailbox is only read or changed inside compute() on its cartId, which serializes them
+	private final Map<Long, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	void init() {
+		int size = threads > 0 ? threads : connections;
+		AtomicInteger count = new AtomicInteger();
+
+		// Holds at most one entry per mailbox, so it is bounded by the queued tasks
+		workers = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+				runnable -> new Thread(runnable, "cart-executor-" + count.incrementAndGet()));
+	}
+
+	@PreDestroy
+	void shutdown() {
+		workers.shutdown();
+	}
+
+	/**
+	 * Queues the task behind the cart's earlier tasks. The future completes with its result,
+	 * or exceptionally with what it threw.
+	 *
+	 * @throws CartQueueFullException if queue-capacity tasks are already waiting
+	 */
+	public <T> CompletableFuture<T> submit(Long cartId, Supplier<T> task) {
+		if (queued.get() >= queueCapacity) {
+			throw new CartQueueFullException("Too many cart updates are waiting, please retry shortly");
+		}
+
+		return enqueue(cartId, task);
+	}
+
+	/**
+	 * Queues a background writer's task like {@link #submit}, even when the queue is full.
+	 */
+	public <T> CompletableFuture<T> submitBackground(Long cartId, Supplier<T> task) {
+		return enqueue(cartId, task);
+	}
+
+	/**
+	 * Carts with tasks queued or running.
+	 */
+	public int activeCarts() {
+		return mailboxes.size();
+	}
+
+	private <T> CompletableFuture<T> enqueue(Long cartId, Supplier<T> task) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+
+		Runnable job = () -> {
+			try {
+				result.complete(run(task));
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		};
+
+		mailboxes.compute(cartId, (id, mailbox) -> {
+			if (mailbox == null) {
+				mailbox = new Mailbox(id);
+			}
+
+			mailbox.tasks.add(job);
+			queued.incrementAndGet();
+
+			if (!mailbox.scheduled) {
+				mailbox.scheduled = true;
+				workers.execute(mailbox);
+			}
+
+			return mailbox;
+		});
+
+		return result;
+	}
+
+	private static <T> T run(Supplier<T> task) {
+		for (int attempt = 1;; attempt++) {
+			try {
+				return task.get();
+			} catch (OptimisticLockingFailureException e) {
+				// A bulk statement changed the cart since the task read it; the task rolled back, so it can start over
+				if (attempt == ATTEMPTS) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	private final class Mailbox implements Runnable {
+
+		private final Long cartId;
+		private final Queue<Runnable> tasks = new ArrayDeque<>();
+		private boolean scheduled;
+
+		Mailbox(Long cartId) {
+			this.cartId = cartId;
+		}
+
+		@Override
+		public void run() {
+			for (int i = 0; i < TASKS_PER_TURN; i++) {
+				Runnable task = next();
+
+				if (task == null) {
+					return;
+				}
+
+				task.run();
+			}
+
+			workers.execute(this);
+		}
+
+		// The next task, or null after removing the mailbox once it is empty
+		private Runnable next() {
+			Runnable[] next = new Runnable[1];
+
+			mailboxes.compute(cartId, (id, mailbox) -> {
+				next[0] = tasks.poll();
+
+				if (next[0] == null) {
+					scheduled = false;
+					return null;
+				}
+
+				queued.decrementAndGet();
+
+				return mailbox;
+			});
+
+			return next[0];
+		}
+	}
+
+}
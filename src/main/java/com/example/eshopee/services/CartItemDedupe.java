@@ -0,0 +1,111 @@
+package com.example.eshopee.services;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.entites.CartItem;
+import com.example.eshopee.repositories.CartItemRepo;
+import com.example.eshopee.repositories.CartRepo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Merges duplicate cart lines and then adds uk_cart_items_cart_product if it is missing.
+ *
+ * ddl-auto only adds the unique key when no cart holds two lines of one product, and skips it
+ * otherwise, so a database with such lines from before the key would stay without it. Each
+ * duplicate is folded into the cart's oldest line of the product, whose price it keeps, as its
+ * stock was reserved when it was added; the cart total is then recomputed from the lines. One
+ * batch of carts per transaction. Runs while the context starts, before the web server takes
+ * requests.
+ */
+@Component
+public class CartItemDedupe {
+
+	private static final String UNIQUE_KEY = "uk_cart_items_cart_product";
+
+	private static final int BATCH_SIZE = 500;
+
+	@Autowired
+	private CartItemRepo cartItemRepo;
+
+	@Autowired
+	private CartRepo cartRepo;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@PostConstruct
+	public void dedupe() {
+		List<Long> cartIds = cartItemRepo.findCartIdsWithDuplicateLines();
+
+		for (int from = 0; from < cartIds.size(); from += BATCH_SIZE) {
+			List<Long> batch = cartIds.subList(from, Math.min(from + BATCH_SIZE, cartIds.size()));
+
+			transactionTemplate.executeWithoutResult(status -> cartRepo.findAllById(batch).forEach(this::merge));
+		}
+
+		transactionTemplate.executeWithoutResult(status -> {
+			if (!hasUniqueKey()) {
+				entityManager.createNativeQuery(
+						"ALTER TABLE cart_items ADD CONSTRAINT " + UNIQUE_KEY + " UNIQUE (cart_id, product_id)")
+						.executeUpdate();
+			}
+		});
+	}
+
+	private void merge(Cart cart) {
+		List<CartItem> items = new ArrayList<>(cart.getCartItems());
+		items.sort(Comparator.comparing(CartItem::getCartItemId));
+
+		Map<Long, CartItem> kept = new HashMap<>();
+
+		for (CartItem item : items) {
+			CartItem first = kept.putIfAbsent(item.getProduct().getProductId(), item);
+
+			if (first != null) {
+				first.setQuantity(first.getQuantity() + item.getQuantity());
+				cart.getCartItems().remove(item);
+			}
+		}
+
+		cart.setTotalPrice(Pricing.total(cart.getCartItems(), CartItem::getProductPrice, CartItem::getQuantity));
+	}
+
+	private boolean hasUniqueKey() {
+		return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+			DatabaseMetaData metaData = connection.getMetaData();
+			String table = metaData.storesUpperCaseIdentifiers() ? "CART_ITEMS" : "cart_items";
+
+			try (ResultSet indexes = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), table, true,
+					true)) {
+				while (indexes.next()) {
+					String name = indexes.getString("INDEX_NAME");
+
+					if (name != null && name.toLowerCase().startsWith(UNIQUE_KEY)) {
+						return true;
+					}
+				}
+			}
+
+			return false;
+		});
+	}
+
+}
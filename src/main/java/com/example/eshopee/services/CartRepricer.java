@@ -0,0 +1,195 @@
+package com.example.eshopee.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.payloads.RepriceProgressDTO;
+import com.example.eshopee.repositories.CartItemRepo;
+import com.example.eshopee.repositories.CartRepo;
+import com.example.eshopee.repositories.ProductRepo;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Moves the cart lines of a product, and the totals of their carts, to the product's current
+ * special price.
+ *
+ * Up to one chunk of carts is repriced with two set-based statements inside the caller's
+ * transaction. Larger fan-outs are repriced after the caller commits, with the same statements
+ * over one chunk of carts per transaction, so no single transaction locks every cart holding a
+ * popular product. The statements bump carts.version, so a cart request that read a cart before
+ * a chunk committed fails its version check and is run again by {@link CartExecutor}. Their
+ * progress is reported by {@link #progress()}.
+ *
+ * The statements read the price from the product row rather than taking it as a parameter, so
+ * overlapping runs for the same product converge on the last committed price. Each chunk locks
+ * the product row first, so a price change cannot commit between its two statements and leave
+ * the totals at one price and the lines at another.
+ */
+@Component
+public class CartRepricer {
+
+	private static final int HISTORY_SIZE = 100;
+
+	@Autowired
+	private CartRepo cartRepo;
+
+	@Autowired
+	private CartItemRepo cartItemRepo;
+
+	@Autowired
+	private ProductRepo productRepo;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Value("${project.cart.reprice.chunk-size:1000}")
+	private int chunkSize;
+
+	private final ExecutorService executor = Executors
+			.newSingleThreadExecutor(runnable -> new Thread(runnable, "cart-repricer"));
+
+	private final Map<Long, Job> jobs = new LinkedHashMap<>() {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Job> eldest) {
+			return size() > HISTORY_SIZE;
+		}
+	};
+
+	public void reprice(Long productId) {
+		long carts = cartItemRepo.countByProductId(productId);
+
+		if (carts <= chunkSize) {
+			repriceCarts(productId, 0L, Long.MAX_VALUE);
+			return;
+		}
+
+		Job job = new Job(productId, carts);
+
+		synchronized (jobs) {
+			// A newer job covers every cart, so an older one still running for the product stops
+			jobs.remove(productId);
+			jobs.put(productId, job);
+		}
+
+		Runnable start = () -> executor.execute(() -> run(job));
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					start.run();
+				}
+			});
+		} else {
+			start.run();
+		}
+	}
+
+	/**
+	 * Background repricing runs, latest first, including finished ones.
+	 */
+	public List<RepriceProgressDTO> progress() {
+		List<RepriceProgressDTO> progress = new ArrayList<>();
+
+		synchronized (jobs) {
+			jobs.values().forEach(job -> progress.add(0, job.toDTO()));
+		}
+
+		return progress;
+	}
+
+	private void run(Job job) {
+		job.status = "RUNNING";
+
+		try {
+			Long lastCartId = 0L;
+			List<Long> cartIds;
+
+			do {
+				if (isSuperseded(job)) {
+					job.finish("SUPERSEDED");
+					return;
+				}
+
+				cartIds = cartItemRepo.findCartIdsByProductIdAfter(job.productId, lastCartId,
+						PageRequest.of(0, chunkSize));
+
+				if (cartIds.isEmpty()) {
+					break;
+				}
+
+				Long fromCartId = cartIds.get(0);
+				lastCartId = cartIds.get(cartIds.size() - 1);
+
+				Long toCartId = lastCartId;
+
+				transactionTemplate.executeWithoutResult(status -> repriceCarts(job.productId, fromCartId, toCartId));
+
+				job.repricedCarts += cartIds.size();
+			} while (cartIds.size() == chunkSize);
+
+			job.finish("COMPLETED");
+		} catch (RuntimeException e) {
+			job.finish("FAILED");
+			throw e;
+		}
+	}
+
+	private void repriceCarts(Long productId, Long fromCartId, Long toCartId) {
+		productRepo.findByIdForPriceRead(productId);
+
+		cartRepo.repriceProductInCarts(productId, fromCartId, toCartId);
+		cartItemRepo.repriceProduct(productId, fromCartId, toCartId);
+	}
+
+	private boolean isSuperseded(Job job) {
+		synchronized (jobs) {
+			return jobs.get(job.productId) != job;
+		}
+	}
+
+	@PreDestroy
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private static final class Job {
+
+		private final Long productId;
+		private final long totalCarts;
+		private final LocalDateTime startedAt = LocalDateTime.now();
+
+		private volatile String status = "QUEUED";
+		private volatile long repricedCarts;
+		private volatile LocalDateTime finishedAt;
+
+		Job(Long productId, long totalCarts) {
+			this.productId = productId;
+			this.totalCarts = totalCarts;
+		}
+
+		void finish(String finalStatus) {
+			finishedAt = LocalDateTime.now();
+			status = finalStatus;
+		}
+
+		RepriceProgressDTO toDTO() {
+			return new RepriceProgressDTO(productId, status, totalCarts, repricedCarts, startedAt, finishedAt);
+		}
+	}
+
+}
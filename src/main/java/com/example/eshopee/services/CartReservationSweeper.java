@@ -0,0 +1,214 @@
+package com.example.eshopee.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.payloads.ReservationSweepStatsDTO;
+import com.example.eshopee.repositories.CartItemRepo;
+import com.example.eshopee.repositories.CartRepo;
+import com.example.eshopee.repositories.ProductRepo;
+
+/**
+ * Returns the stock held by cart lines nobody has touched for the reservation TTL, and drops
+ * those lines from their carts.
+ *
+ * cart_items.reserved_at is set whenever a line takes stock or its quantity changes. Every
+ * sweep interval the expired lines are walked in (reserved_at, cart_item_id) order, a range
+ * scan of its index, one batch per transaction. A batch locks its lines still expired and then
+ * runs a fixed set of statements whatever its size: one UPDATE returning the units to products,
+ * one deducting the lines from their cart totals and one DELETE. Units of products in hot stock
+ * mode go back through {@link HotStockCounters} instead. The cart statement bumps
+ * carts.version, so a request that read one of the carts before the batch committed fails its
+ * version check and is run again by {@link CartExecutor}.
+ *
+ * Lines of carts held in memory by {@link CartStore} are left alone, as their rows may be
+ * behind; they are swept once the store evicts the cart. The store cannot load the other carts
+ * of a batch until its transaction has completed, so it never holds lines already returned.
+ * Each batch publishes a {@link StockChangedEvent} for the products whose rows it returned
+ * units to.
+ *
+ * A ttl-minutes of 0 turns expiry off.
+ */
+@Component
+public class CartReservationSweeper {
+
+	// Lines with no reservation yet are stamped from here at startup
+	private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+	@Autowired
+	private CartItemRepo cartItemRepo;
+
+	@Autowired
+	private CartRepo cartRepo;
+
+	@Autowired
+	private ProductRepo productRepo;
+
+	@Autowired
+	private HotStockCounters hotStockCounters;
+
+	@Autowired
+	private CartStore cartStore;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Value("${project.cart.reservation.ttl-minutes:30}")
+	private long ttlMinutes;
+
+	@Value("${project.cart.reservation.batch-size:500}")
+	private int batchSize;
+
+	private volatile long runs;
+	private volatile LocalDateTime lastRunAt;
+	private volatile long lastRunMillis;
+	private volatile long lastRunLines;
+	private volatile long lastRunUnits;
+	private volatile long totalLines;
+	private volatile long totalUnits;
+	private volatile long totalMillis;
+
+	/**
+	 * Starts the TTL of lines added before reservations were tracked.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void stampUnreserved() {
+		transactionTemplate.execute(status -> cartItemRepo.stampUnreserved(LocalDateTime.now()));
+	}
+
+	@Scheduled(fixedDelayString = "${project.cart.reservation.sweep-interval-ms:60000}")
+	public synchronized void sweep() {
+		if (ttlMinutes <= 0) {
+			return;
+		}
+
+		LocalDateTime startedAt = LocalDateTime.now();
+		LocalDateTime cutoff = startedAt.minusMinutes(ttlMinutes);
+		long begin = System.nanoTime();
+
+		Batch batch = new Batch(BEGINNING, 0L);
+
+		do {
+			batch = sweepBatch(cutoff, batch);
+		} while (batch.scanned == batchSize);
+
+		long millis = (System.nanoTime() - begin) / 1_000_000;
+
+		lastRunAt = startedAt;
+		lastRunMillis = millis;
+		lastRunLines = batch.totalLines;
+		lastRunUnits = batch.totalUnits;
+		totalLines += batch.totalLines;
+		totalUnits += batch.totalUnits;
+		totalMillis += millis;
+		runs++;
+	}
+
+	public ReservationSweepStatsDTO stats() {
+		long millis = totalMillis;
+
+		return new ReservationSweepStatsDTO(ttlMinutes, runs, lastRunAt, lastRunMillis, lastRunLines, lastRunUnits,
+				totalLines, totalUnits, millis, millis == 0 ? 0.0 : totalLines * 1000.0 / millis);
+	}
+
+	private Batch sweepBatch(LocalDateTime cutoff, Batch after) {
+		List<Object[]> rows = cartItemRepo.findExpiredReservationsAfter(cutoff, after.reservedAt, after.cartItemId,
+				PageRequest.of(0, batchSize));
+
+		Map<Long, List<Long>> linesByCart = new LinkedHashMap<>();
+
+		for (Object[] row : rows) {
+			linesByCart.computeIfAbsent((Long) row[1], cartId -> new ArrayList<>()).add((Long) row[0]);
+		}
+
+		Expired expired = cartStore.unlessHeld(linesByCart.keySet(), cartIds -> expire(
+				cartIds.stream().flatMap(cartId -> linesByCart.get(cartId).stream()).toList(), cutoff));
+
+		if (expired == null) {
+			expired = new Expired(0, 0);
+		}
+
+		Batch next = rows.isEmpty() ? new Batch(after.reservedAt, after.cartItemId)
+				: new Batch((LocalDateTime) rows.get(rows.size() - 1)[4], (Long) rows.get(rows.size() - 1)[0]);
+
+		next.scanned = rows.size();
+		next.totalLines = after.totalLines + expired.lines();
+		next.totalUnits = after.totalUnits + expired.units();
+
+		return next;
+	}
+
+	/**
+	 * Expires those of the lines still past the cutoff, in the current transaction.
+	 */
+	private Expired expire(List<Long> cartItemIds, LocalDateTime cutoff) {
+		List<Long> expired = new ArrayList<>();
+		List<Long> returnedToRows = new ArrayList<>();
+		Set<Long> restocked = new HashSet<>();
+		long units = 0;
+
+		for (Object[] row : cartItemRepo.findExpiredIn(cartItemIds, cutoff)) {
+			Long cartItemId = (Long) row[0];
+			Long productId = (Long) row[1];
+			int quantity = row[2] == null ? 0 : (Integer) row[2];
+
+			if (!hotStockCounters.release(productId, quantity)) {
+				returnedToRows.add(cartItemId);
+				restocked.add(productId);
+			}
+
+			expired.add(cartItemId);
+			units += quantity;
+		}
+
+		if (!returnedToRows.isEmpty()) {
+			productRepo.returnQuantityOfItems(returnedToRows);
+
+			eventPublisher.publishEvent(new StockChangedEvent(restocked));
+		}
+
+		if (!expired.isEmpty()) {
+			cartRepo.deductItemsFromCarts(expired);
+			cartItemRepo.deleteByIdIn(expired);
+		}
+
+		return new Expired(expired.size(), units);
+	}
+
+	private record Expired(int lines, long units) {
+	}
+
+	// Position of the walk after a batch, with the lines swept so far in the run
+	private static final class Batch {
+
+		private final LocalDateTime reservedAt;
+		private final Long cartItemId;
+		private int scanned;
+		private long totalLines;
+		private long totalUnits;
+
+		Batch(LocalDateTime reservedAt, Long cartItemId) {
+			this.reservedAt = reservedAt;
+			this.cartItemId = cartItemId;
+		}
+	}
+
+}
@@ -3,18 +3,21 @@ package com.example.eshopee.services;
 import java.util.List;
 
 import com.example.eshopee.payloads.CartDTO;
+import com.example.eshopee.payloads.CartItemOperation;
+import com.example.eshopee.payloads.CartResponse;
 
 public interface CartService {
 	
 	CartDTO addProductToCart(Long cartId, Long productId, Integer quantity);
 	
-	List<CartDTO> getAllCarts();
+	CartResponse getAllCarts(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder, boolean nonEmpty,
+			Double minTotal);
 	
 	CartDTO getCart(String emailId, Long cartId);
 	
 	CartDTO updateProductQuantityInCart(Long cartId, Long productId, Integer quantity);
-	
-	void updateProductInCarts(Long cartId, Long productId);
+
+	CartDTO updateCartItems(Long cartId, List<CartItemOperation> operations);
 	
 	String deleteProductFromCart(Long cartId, Long productId);
 	
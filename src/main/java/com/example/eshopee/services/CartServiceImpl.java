@@ -1,6 +1,14 @@
 package com.example.eshopee.services;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.example.eshopee.repositories.CartItemRepo;
@@ -8,14 +16,19 @@ import com.example.eshopee.repositories.CartRepo;
 import com.example.eshopee.repositories.ProductRepo;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import com.example.eshopee.entites.Cart;
 import com.example.eshopee.entites.CartItem;
-import com.example.eshopee.entites.Product;
 import com.example.eshopee.exceptions.APIException;
 import com.example.eshopee.exceptions.ResourceNotFoundException;
 import com.example.eshopee.payloads.CartDTO;
+import com.example.eshopee.payloads.CartItemOperation;
+import com.example.eshopee.payloads.CartResponse;
+import com.example.eshopee.payloads.ProductAttributes;
 import com.example.eshopee.payloads.ProductDTO;
 
 import jakarta.transaction.Transactional;
@@ -36,14 +49,36 @@ public class CartServiceImpl implements CartService {
 	@Autowired
 	private ModelMapper modelMapper;
 
+	@Autowired
+	private ProductCache productCache;
+
+	@Autowired
+	private Inventory inventory;
+
+	@Autowired
+	private CartStore cartStore;
+
 	@Override
 	public CartDTO addProductToCart(Long cartId, Long productId, Integer quantity) {
 
+		if (cartStore.handles(cartId)) {
+			CartStore.Lines lines = cartStore.edit(cartId);
+			ProductAttributes product = productCache.get(productId);
+
+			reserveStock(product, quantity, 0);
+
+			lines.put(productId, lines.quantity(productId) + quantity, product.getSpecialPrice(),
+					product.getDiscount());
+
+			return toCartDTO(lines);
+		}
+
 		Cart cart = cartRepo.findById(cartId)
 				.orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
 
-		Product product = productRepo.findById(productId)
-				.orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
+		ProductAttributes product = productCache.get(productId);
+
+		reserveStock(product, quantity, 0);
 
 		CartItem cartItem = cartItemRepo.findCartItemByProductIdAndCartId(cartId, productId);
 		CartItem newCartItem;
@@ -54,29 +89,20 @@ public class CartServiceImpl implements CartService {
 
 		} else {
 
-			if (product.getQuantity() == 0) {
-				throw new APIException(product.getProductName() + " is not available");
-			}
-
-			if (product.getQuantity() < quantity) {
-				throw new APIException("Please, make an order of the " + product.getProductName()
-						+ " less than or equal to the quantity " + product.getQuantity() + ".");
-			}
-
 			newCartItem = new CartItem();
 
-			newCartItem.setProduct(product);
+			newCartItem.setProduct(productRepo.getReferenceById(productId));
 			newCartItem.setCart(cart);
 			newCartItem.setQuantity(quantity);
 			newCartItem.setDiscount(product.getDiscount());
 			newCartItem.setProductPrice(product.getSpecialPrice());
 		}
 
-		cartItemRepo.save(newCartItem);
+		newCartItem.setReservedAt(LocalDateTime.now());
 
-		product.setQuantity(product.getQuantity() - quantity);
+		cartItemRepo.save(newCartItem);
 
-		cart.setTotalPrice(cart.getTotalPrice() + (product.getSpecialPrice() * quantity));
+		cart.setTotalPrice(Pricing.addLine(cart.getTotalPrice(), product.getSpecialPrice(), quantity));
 
 		CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
 
@@ -90,30 +116,62 @@ public class CartServiceImpl implements CartService {
 	}
 
 	@Override
-	public List<CartDTO> getAllCarts() {
-		List<Cart> carts = cartRepo.findAll();
+	public CartResponse getAllCarts(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder,
+			boolean nonEmpty, Double minTotal) {
+		if (!sortBy.equals("cartId") && !sortBy.equals("totalPrice")) {
+			throw new APIException("Carts can only be sorted by cartId or totalPrice");
+		}
+
+		if (cartStore.isEnabled()) {
+			cartStore.flush();
+		}
+
+		Pageable pageDetails = PageRequest.of(pageNumber, pageSize, KeysetCursor.sort(sortBy, sortOrder, "cartId"));
 
-		if (carts.isEmpty()) {
+		Page<Object[]> pageCarts = cartRepo.findCartTotals(nonEmpty, minTotal, pageDetails);
+
+		if (pageCarts.getContent().isEmpty()) {
 			throw new APIException("No cart exists");
 		}
 
-		List<CartDTO> cartDTOs = carts.stream().map(cart -> {
-			CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
+		Map<Long, CartDTO> cartDTOs = new LinkedHashMap<>();
 
-			List<ProductDTO> products = cart.getCartItems().stream()
-					.map(p -> modelMapper.map(p.getProduct(), ProductDTO.class)).collect(Collectors.toList());
+		pageCarts.forEach(row -> cartDTOs.put((Long) row[0], new CartDTO((Long) row[0], (Double) row[1], new ArrayList<>())));
 
-			cartDTO.setProducts(products);
+		cartItemRepo.findProductDTOsByCartIdIn(cartDTOs.keySet())
+				.forEach(row -> cartDTOs.get((Long) row[0]).getProducts().add((ProductDTO) row[1]));
 
-			return cartDTO;
+		CartResponse cartResponse = new CartResponse();
 
-		}).collect(Collectors.toList());
+		cartResponse.setContent(new ArrayList<>(cartDTOs.values()));
+		cartResponse.setPageNumber(pageCarts.getNumber());
+		cartResponse.setPageSize(pageCarts.getSize());
+		cartResponse.setTotalElements(pageCarts.getTotalElements());
+		cartResponse.setTotalPages(pageCarts.getTotalPages());
+		cartResponse.setLastPage(pageCarts.isLast());
 
-		return cartDTOs;
+		return cartResponse;
+		/*
+		- CartResponse getAllCarts(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder, boolean nonEmpty, Double minTotal)
+			i. Write the carts held by the cart store through, so the listing sees them.
+			ii. Fetch the ids and totals of one page of carts matching the filters, plus their count.
+			iii. Fetch the products of every line of those carts in one query.
+			iv. Return the page; three queries whatever the number of carts and lines.
+		 */
 	}
 
 	@Override
 	public CartDTO getCart(String emailId, Long cartId) {
+		if (cartStore.handles(cartId)) {
+			CartStore.Lines lines = cartStore.read(cartId);
+
+			if (!emailId.equals(lines.getEmail())) {
+				throw new ResourceNotFoundException("Cart", "cartId", cartId);
+			}
+
+			return toCartDTO(lines);
+		}
+
 		Cart cart = cartRepo.findCartByEmailAndCartId(emailId, cartId);
 
 		if (cart == null) {
@@ -131,12 +189,26 @@ public class CartServiceImpl implements CartService {
 	}
 
 	@Override
-	public void updateProductInCarts(Long cartId, Long productId) {
+	public CartDTO updateProductQuantityInCart(Long cartId, Long productId, Integer quantity) {
+		if (cartStore.handles(cartId)) {
+			CartStore.Lines lines = cartStore.edit(cartId);
+			ProductAttributes product = productCache.get(productId);
+
+			if (!lines.contains(productId)) {
+				throw new APIException("Product " + product.getProductName() + " not available in the cart!!!");
+			}
+
+			adjustStock(product, quantity, lines.quantity(productId));
+
+			lines.put(productId, quantity, product.getSpecialPrice(), product.getDiscount());
+
+			return toCartDTO(lines);
+		}
+
 		Cart cart = cartRepo.findById(cartId)
 				.orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
 
-		Product product = productRepo.findById(productId)
-				.orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
+		ProductAttributes product = productCache.get(productId);
 
 		CartItem cartItem = cartItemRepo.findCartItemByProductIdAndCartId(cartId, productId);
 
@@ -144,63 +216,222 @@ public class CartServiceImpl implements CartService {
 			throw new APIException("Product " + product.getProductName() + " not available in the cart!!!");
 		}
 
-		double cartPrice = cart.getTotalPrice() - (cartItem.getProductPrice() * cartItem.getQuantity());
+		double cartPrice = Pricing.addLine(cart.getTotalPrice(), cartItem.getProductPrice(), -cartItem.getQuantity());
+
+		int delta = quantity - cartItem.getQuantity();
+
+		if (delta > 0) {
+			reserveStock(product, delta, cartItem.getQuantity());
+		} else if (delta < 0) {
+			inventory.release(productId, -delta);
+		}
 
 		cartItem.setProductPrice(product.getSpecialPrice());
+		cartItem.setQuantity(quantity);
+		cartItem.setDiscount(product.getDiscount());
+		cartItem.setReservedAt(LocalDateTime.now());
 
-		cart.setTotalPrice(cartPrice + (cartItem.getProductPrice() * cartItem.getQuantity()));
+		cart.setTotalPrice(Pricing.addLine(cartPrice, cartItem.getProductPrice(), quantity));
 
 		cartItem = cartItemRepo.save(cartItem);
+
+		CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
+
+		List<ProductDTO> productDTOs = cart.getCartItems().stream()
+				.map(p -> modelMapper.map(p.getProduct(), ProductDTO.class)).collect(Collectors.toList());
+
+		cartDTO.setProducts(productDTOs);
+
+		return cartDTO;
+
 	}
 
 	@Override
-	public CartDTO updateProductQuantityInCart(Long cartId, Long productId, Integer quantity) {
+	public CartDTO updateCartItems(Long cartId, List<CartItemOperation> operations) {
+		if (cartStore.handles(cartId)) {
+			CartStore.Lines lines = cartStore.edit(cartId);
+
+			Map<Long, Integer> quantities = foldOperations(operations, lines::quantity);
+			Map<Long, ProductAttributes> products = productCache.getAll(quantities.keySet());
+
+			quantities.forEach((productId, quantity) -> {
+				ProductAttributes product = products.get(productId);
+
+				adjustStock(product, quantity, lines.quantity(productId));
+
+				if (quantity == 0) {
+					lines.remove(productId);
+				} else {
+					lines.put(productId, quantity, product.getSpecialPrice(), product.getDiscount());
+				}
+			});
+
+			return toCartDTO(lines);
+		}
+
 		Cart cart = cartRepo.findById(cartId)
 				.orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
 
-		Product product = productRepo.findById(productId)
-				.orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
+		Map<Long, CartItem> items = new HashMap<>();
+		cart.getCartItems().forEach(item -> items.put(item.getProduct().getProductId(), item));
 
-		if (product.getQuantity() == 0) {
-			throw new APIException(product.getProductName() + " is not available");
-		}
+		Map<Long, Integer> quantities = foldOperations(operations,
+				productId -> items.containsKey(productId) ? items.get(productId).getQuantity() : 0);
 
-		if (product.getQuantity() < quantity) {
-			throw new APIException("Please, make an order of the " + product.getProductName()
-					+ " less than or equal to the quantity " + product.getQuantity() + ".");
-		}
+		Map<Long, ProductAttributes> products = productCache.getAll(quantities.keySet());
 
-		CartItem cartItem = cartItemRepo.findCartItemByProductIdAndCartId(cartId, productId);
+		quantities.forEach((productId, quantity) -> {
+			CartItem item = items.get(productId);
+			ProductAttributes product = products.get(productId);
 
-		if (cartItem == null) {
-			throw new APIException("Product " + product.getProductName() + " not available in the cart!!!");
-		}
+			adjustStock(product, quantity, item == null ? 0 : item.getQuantity());
 
-		double cartPrice = cart.getTotalPrice() - (cartItem.getProductPrice() * cartItem.getQuantity());
+			if (quantity == 0) {
+				if (item != null) {
+					cart.getCartItems().remove(item);
+				}
 
-		product.setQuantity(product.getQuantity() + cartItem.getQuantity() - quantity);
+				return;
+			}
 
-		cartItem.setProductPrice(product.getSpecialPrice());
-		cartItem.setQuantity(quantity);
-		cartItem.setDiscount(product.getDiscount());
+			if (item == null) {
+				item = new CartItem();
+				item.setProduct(productRepo.getReferenceById(productId));
+				item.setCart(cart);
+				cart.getCartItems().add(item);
+			}
 
-		cart.setTotalPrice(cartPrice + (cartItem.getProductPrice() * quantity));
+			item.setQuantity(quantity);
+			item.setDiscount(product.getDiscount());
+			item.setProductPrice(product.getSpecialPrice());
+			item.setReservedAt(LocalDateTime.now());
+		});
 
-		cartItem = cartItemRepo.save(cartItem);
+		cart.setTotalPrice(Pricing.total(cart.getCartItems(), CartItem::getProductPrice, CartItem::getQuantity));
 
 		CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
 
-		List<ProductDTO> productDTOs = cart.getCartItems().stream()
-				.map(p -> modelMapper.map(p.getProduct(), ProductDTO.class)).collect(Collectors.toList());
+		List<Long> productIds = cart.getCartItems().stream().map(item -> item.getProduct().getProductId())
+				.collect(Collectors.toList());
 
-		cartDTO.setProducts(productDTOs);
+		Map<Long, ProductDTO> productDTOs = productRepo.findProductDTOsByIdIn(productIds).stream()
+				.collect(Collectors.toMap(ProductDTO::getProductId, Function.identity()));
+
+		cartDTO.setProducts(productIds.stream().map(productDTOs::get).collect(Collectors.toList()));
 
 		return cartDTO;
+		/*
+		- CartDTO updateCartItems(Long cartId, List<CartItemOperation> operations)
+			i. Fetch the cart, from the cart store when it holds the cart, and index its lines by productId.
+			ii. Fold the operations, in order, into the final quantity of every line they touch.
+			iii. Fetch the attributes of all those products at once, through the product cache.
+			iv. Reserve or release the difference in stock of each line, in productId order.
+			v. Add, update or drop the lines at the current special price.
+			vi. Recompute the cart total once.
+			vii. Return the CartDTO, with the products of the cart read in one query.
+		 */
+	}
+
+	/**
+	 * The final quantity of every line the operations touch, applied in request order and
+	 * sorted by productId, so two batches on the same products cannot deadlock on their rows.
+	 */
+	private static Map<Long, Integer> foldOperations(List<CartItemOperation> operations,
+			Function<Long, Integer> held) {
+		if (operations == null || operations.isEmpty()) {
+			throw new APIException("No cart item operations given");
+		}
+
+		Map<Long, Integer> quantities = new TreeMap<>();
+
+		for (CartItemOperation operation : operations) {
+			Long productId = operation.getProductId();
+
+			if (productId == null) {
+				throw new APIException("Every cart item operation needs a productId");
+			}
+
+			String op = operation.getOp() == null ? "" : operation.getOp().toLowerCase(Locale.ROOT);
+			int current = quantities.computeIfAbsent(productId, held);
+
+			switch (op) {
+				case "add" -> quantities.put(productId, current + positive(operation));
+				case "update" -> quantities.put(productId, positive(operation));
+				case "remove" -> quantities.put(productId, 0);
+				default -> throw new APIException("Cart item op must be add, update or remove, not " + operation.getOp());
+			}
+		}
+
+		return quantities;
+	}
+
+	private void adjustStock(ProductAttributes product, int quantity, int held) {
+		if (quantity > held) {
+			reserveStock(product, quantity - held, held);
+		} else if (quantity < held) {
+			inventory.release(product.getProductId(), held - quantity);
+		}
+	}
+
+	/**
+	 * CartDTO of a cart held by the cart store, built from the product cache without a query;
+	 * image, description and stock of its products are left out.
+	 */
+	private CartDTO toCartDTO(CartStore.Lines lines) {
+		List<Long> productIds = lines.lines().stream().map(CartStore.Line::productId).collect(Collectors.toList());
+		Map<Long, ProductAttributes> products = productCache.getAll(productIds);
+
+		List<ProductDTO> productDTOs = productIds.stream().map(products::get)
+				.map(p -> new ProductDTO(p.getProductId(), p.getProductName(), null, null, null, p.getPrice(),
+						p.getDiscount(), p.getSpecialPrice()))
+				.collect(Collectors.toList());
+
+		return new CartDTO(lines.getCartId(), lines.totalPrice(), productDTOs);
+	}
+
+	private static int positive(CartItemOperation operation) {
+		if (operation.getQuantity() == null || operation.getQuantity() < 1) {
+			throw new APIException("Quantity of " + operation.getOp() + " for product " + operation.getProductId()
+					+ " must be at least 1");
+		}
+
+		return operation.getQuantity();
+	}
+
+	/**
+	 * Takes quantity more units for a cart that already holds held units of the product.
+	 */
+	private void reserveStock(ProductAttributes product, int quantity, int held) {
+		if (inventory.reserve(product.getProductId(), quantity)) {
+			return;
+		}
+
+		int stock = inventory.available(product.getProductId());
+
+		if (stock == 0 && held == 0) {
+			throw new APIException(product.getProductName() + " is not available");
+		}
 
+		throw new APIException("Please, make an order of the " + product.getProductName()
+				+ " less than or equal to the quantity " + (stock + held) + ".");
 	}
 
 	@Override
 	public String deleteProductFromCart(Long cartId, Long productId) {
+		if (cartStore.handles(cartId)) {
+			CartStore.Lines lines = cartStore.edit(cartId);
+
+			if (!lines.contains(productId)) {
+				throw new ResourceNotFoundException("Product", "productId", productId);
+			}
+
+			inventory.release(productId, lines.quantity(productId));
+
+			lines.remove(productId);
+
+			return "Product " + productCache.get(productId).getProductName() + " removed from the cart !!!";
+		}
+
 		Cart cart = cartRepo.findById(cartId)
 				.orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
 
@@ -210,10 +441,9 @@ public class CartServiceImpl implements CartService {
 			throw new ResourceNotFoundException("Product", "productId", productId);
 		}
 
-		cart.setTotalPrice(cart.getTotalPrice() - (cartItem.getProductPrice() * cartItem.getQuantity()));
+		cart.setTotalPrice(Pricing.addLine(cart.getTotalPrice(), cartItem.getProductPrice(), -cartItem.getQuantity()));
 
-		Product product = cartItem.getProduct();
-		product.setQuantity(product.getQuantity() + cartItem.getQuantity());
+		inventory.release(productId, cartItem.getQuantity());
 
 		cartItemRepo.deleteCartItemByProductIdAndCartId(cartId, productId);
 
@@ -0,0 +1,672 @@
+package com.example.eshopee.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.entites.CartItem;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.exceptions.ResourceNotFoundException;
+import com.example.eshopee.repositories.CartRepo;
+import com.example.eshopee.repositories.ProductRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind store of live carts, used when project.cart.store=memory.
+ *
+ * A cart is loaded from the database on first use and then read and written in memory. An
+ * edit works on a copy bound to the calling transaction and holds the cart's lock until the
+ * transaction completes. The copy is installed only if the transaction commits, so a failed
+ * stock reservation leaves the cart untouched. Every installed cart is appended to a log file
+ * as one JSON line. Dirty carts are written to carts and cart_items every flush interval, a
+ * chunk of them per transaction, and marked clean only once it commits. A chunk that fails is
+ * written again one cart per transaction, and a cart that failed is written alone from then on,
+ * so it cannot keep the others dirty. After each flush the log is rewritten with only the carts
+ * still dirty.
+ * Checkout and user deletion drain a cart first: it is written through in their transaction
+ * and dropped from memory once they commit.
+ *
+ * Log appends go to the OS without an fsync, so they survive a crash of the process. The log
+ * is forced to disk at every flush, so a crash of the machine loses at most one flush interval.
+ * Any carts left in the log are replayed to the database at startup, whichever mode is set.
+ * Only the cart rows are written behind: stock is still reserved through {@link Inventory} when
+ * an edit runs, which is a conditional UPDATE of the product row in the edit's transaction
+ * unless the product is in hot stock mode, so each edit still waits on the database for its
+ * stock. The profile views of UserService read carts from the database, so they can be one
+ * flush interval behind.
+ */
+@Component
+public class CartStore {
+
+	// Clean carts untouched for this long are dropped from memory after a flush
+	private static final Duration IDLE = Duration.ofMinutes(30);
+
+	public record Line(Long productId, int quantity, double productPrice, double discount) {
+	}
+
+	private record LogRecord(Long cartId, String email, List<Line> lines, boolean dropped) {
+	}
+
+	private record DrainKey(Long cartId) {
+	}
+
+	/**
+	 * The lines of one cart, as seen by the transaction editing it.
+	 */
+	public static final class Lines {
+
+		private final Long cartId;
+		private final String email;
+		private final LinkedHashMap<Long, Line> lines;
+		private boolean drop;
+
+		private Lines(Long cartId, String email, LinkedHashMap<Long, Line> lines) {
+			this.cartId = cartId;
+			this.email = email;
+			this.lines = lines;
+		}
+
+		public Long getCartId() {
+			return cartId;
+		}
+
+		public String getEmail() {
+			return email;
+		}
+
+		public boolean contains(Long productId) {
+			return lines.containsKey(productId);
+		}
+
+		public int quantity(Long productId) {
+			Line line = lines.get(productId);
+
+			return line == null ? 0 : line.quantity();
+		}
+
+		public void put(Long productId, int quantity, double productPrice, double discount) {
+			lines.put(productId, new Line(productId, quantity, productPrice, discount));
+		}
+
+		public void remove(Long productId) {
+			lines.remove(productId);
+		}
+
+		public List<Line> lines() {
+			return List.copyOf(lines.values());
+		}
+
+		public double totalPrice() {
+			return Pricing.total(lines.values(), Line::productPrice, Line::quantity);
+		}
+
+		private Lines copy() {
+			return new Lines(cartId, email, new LinkedHashMap<>(lines));
+		}
+	}
+
+	private static final class LiveCart {
+
+		private final ReentrantLock lock = new ReentrantLock();
+		private volatile Lines state;
+		private volatile boolean dirty;
+		private volatile boolean evicted;
+		private volatile long lastUsed = System.nanoTime();
+		// Stands in for the cart while unlessHeld works on its rows, locked until that work completes
+		private volatile boolean claimed;
+		// Its last write failed; written in a transaction of its own until one commits
+		private boolean failing;
+
+		LiveCart(Lines state) {
+			this.state = state;
+		}
+	}
+
+	@Autowired
+	private CartRepo cartRepo;
+
+	@Autowired
+	private ProductRepo productRepo;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${project.cart.store:database}")
+	private String mode;
+
+	@Value("${project.cart.store.log:carts.log}")
+	private String logFile;
+
+	@Value("${project.cart.store.flush-batch-size:200}")
+	private int flushBatchSize;
+
+	private Path logPath;
+
+	private TransactionTemplate transactionTemplate;
+
+	private TransactionTemplate flushTemplate;
+
+	private final Map<Long, LiveCart> carts = new ConcurrentHashMap<>();
+
+	private final Object logLock = new Object();
+
+	private FileChannel log;
+
+	@PostConstruct
+	void init() {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+
+		flushTemplate = new TransactionTemplate(transactionManager);
+		flushTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		logPath = Path.of(logFile);
+	}
+
+	public boolean isEnabled() {
+		return "memory".equalsIgnoreCase(mode);
+	}
+
+	/**
+	 * Whether the cart's edits go through this store in the current transaction.
+	 */
+	public boolean handles(Long cartId) {
+		return isEnabled() && !TransactionSynchronizationManager.hasResource(new DrainKey(cartId));
+	}
+
+	/**
+	 * Runs the work, in a transaction of its own, on those of the carts not in memory. The store
+	 * cannot load one of them until that transaction has completed, so the work may change their
+	 * rows without the store holding a copy from before.
+	 *
+	 * @return the work's result, or null without running it if every cart is in memory
+	 */
+	public <T> T unlessHeld(Collection<Long> cartIds, Function<List<Long>, T> work) {
+		List<LiveCart> claims = new ArrayList<>();
+
+		try {
+			for (Long cartId : cartIds) {
+				LiveCart claim = new LiveCart(new Lines(cartId, null, new LinkedHashMap<>()));
+				claim.claimed = true;
+				claim.lock.lock();
+
+				if (carts.putIfAbsent(cartId, claim) == null) {
+					claims.add(claim);
+				} else {
+					claim.lock.unlock();
+				}
+			}
+
+			if (claims.isEmpty()) {
+				return null;
+			}
+
+			List<Long> claimed = claims.stream().map(claim -> claim.state.getCartId()).toList();
+
+			// A new transaction, so it has completed before a load waiting on a claim runs
+			return flushTemplate.execute(status -> work.apply(claimed));
+		} finally {
+			for (LiveCart claim : claims) {
+				carts.remove(claim.state.getCartId(), claim);
+				claim.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * The cart as last committed. Do not change the lines returned.
+	 */
+	public Lines read(Long cartId) {
+		LiveCart live = live(cartId);
+		live.lastUsed = System.nanoTime();
+
+		return live.state;
+	}
+
+	/**
+	 * A copy of the cart to change in the current transaction, locked until it completes.
+	 */
+	public Lines edit(Long cartId) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			throw new IllegalStateException("Carts can only be edited in a transaction");
+		}
+
+		for (;;) {
+			LiveCart live = live(cartId);
+
+			Lines pending = (Lines) TransactionSynchronizationManager.getResource(live);
+
+			if (pending != null) {
+				return pending;
+			}
+
+			live.lock.lock();
+
+			if (live.evicted) {
+				live.lock.unlock();
+				continue;
+			}
+
+			Lines copy = live.state.copy();
+
+			TransactionSynchronizationManager.bindResource(live, copy);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCommit() {
+					install(live, copy);
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResource(live);
+					live.lock.unlock();
+				}
+			});
+
+			return copy;
+		}
+	}
+
+	/**
+	 * Writes the cart through to the database in the current transaction and drops it from
+	 * memory once that commits. Until then the cart's edits in this transaction go to the
+	 * database.
+	 */
+	public void drain(Long cartId) {
+		if (!handles(cartId)) {
+			return;
+		}
+
+		if (carts.containsKey(cartId)) {
+			Lines lines = edit(cartId);
+
+			write(lines);
+
+			lines.drop = true;
+		}
+
+		DrainKey key = new DrainKey(cartId);
+
+		TransactionSynchronizationManager.bindResource(key, Boolean.TRUE);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+			@Override
+			public void afterCompletion(int status) {
+				TransactionSynchronizationManager.unbindResource(key);
+			}
+		});
+	}
+
+	/**
+	 * Applies a product change to the carts in memory, as CartRepricer and deleteProduct do
+	 * in the database.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProductChanged(ProductChangedEvent event) {
+		Product product = event.getProduct();
+
+		for (LiveCart live : carts.values()) {
+			if (!live.state.contains(product.getProductId())) {
+				continue;
+			}
+
+			live.lock.lock();
+
+			try {
+				if (live.evicted) {
+					continue;
+				}
+
+				Lines copy = live.state.copy();
+
+				if (event.isDeleted()) {
+					copy.remove(product.getProductId());
+				} else {
+					copy.put(product.getProductId(), copy.quantity(product.getProductId()), product.getSpecialPrice(),
+							product.getDiscount());
+				}
+
+				install(live, copy);
+			} finally {
+				live.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Writes every dirty cart, a chunk per transaction, then rewrites the log with the carts
+	 * still dirty.
+	 */
+	@Scheduled(fixedDelayString = "${project.cart.store.flush-interval-ms:1000}")
+	@PreDestroy
+	public void flush() {
+		flush(false);
+	}
+
+	private synchronized void flush(boolean rewriteLog) {
+		List<LiveCart> chunk = new ArrayList<>();
+		List<Lines> states = new ArrayList<>();
+		boolean wrote = false;
+
+		for (LiveCart live : carts.values()) {
+			if (!live.dirty) {
+				continue;
+			}
+
+			if (live.failing) {
+				live.failing = !write(List.of(live), List.of(live.state));
+				wrote |= !live.failing;
+				continue;
+			}
+
+			chunk.add(live);
+			states.add(live.state);
+
+			if (chunk.size() == flushBatchSize) {
+				wrote |= writeChunk(chunk, states);
+
+				chunk.clear();
+				states.clear();
+			}
+		}
+
+		wrote |= writeChunk(chunk, states);
+
+		// Carts written are still in the log even if nothing was appended since it was last rewritten
+		rotateLog(rewriteLog || wrote);
+
+		long now = System.nanoTime();
+
+		carts.values().forEach(live -> {
+			if (!live.dirty && !live.claimed && now - live.lastUsed > IDLE.toNanos() && live.lock.tryLock()) {
+				try {
+					if (!live.dirty) {
+						live.evicted = true;
+						carts.remove(live.state.getCartId(), live);
+					}
+				} finally {
+					live.lock.unlock();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Replays the carts a previous run left in the log.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void replay() {
+		if (!Files.exists(logPath)) {
+			return;
+		}
+
+		Map<Long, LogRecord> last = new HashMap<>();
+
+		try (BufferedReader reader = Files.newBufferedReader(logPath, StandardCharsets.UTF_8)) {
+			String json;
+
+			while ((json = reader.readLine()) != null) {
+				if (json.isBlank()) {
+					continue;
+				}
+
+				try {
+					LogRecord record = objectMapper.readValue(json, LogRecord.class);
+					last.put(record.cartId(), record);
+				} catch (IOException e) {
+					// A line torn by a crash mid-append is the last one; everything before it is complete
+					break;
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		last.values().forEach(record -> {
+			if (record.dropped()) {
+				return;
+			}
+
+			LinkedHashMap<Long, Line> lines = new LinkedHashMap<>();
+			record.lines().forEach(line -> lines.put(line.productId(), line));
+
+			LiveCart live = new LiveCart(new Lines(record.cartId(), record.email(), lines));
+			live.dirty = true;
+
+			carts.put(record.cartId(), live);
+		});
+
+		flush(true);
+	}
+
+	private LiveCart live(Long cartId) {
+		for (;;) {
+			LiveCart live = carts.computeIfAbsent(cartId, id -> new LiveCart(load(id)));
+
+			if (!live.claimed) {
+				return live;
+			}
+
+			// Free once the work on the cart's rows has completed and the claim is gone
+			live.lock.lock();
+			live.lock.unlock();
+		}
+	}
+
+	private Lines load(Long cartId) {
+		return transactionTemplate.execute(status -> {
+			Cart cart = cartRepo.findById(cartId)
+					.orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
+
+			LinkedHashMap<Long, Line> lines = new LinkedHashMap<>();
+
+			cart.getCartItems().forEach(item -> lines.put(item.getProduct().getProductId(),
+					new Line(item.getProduct().getProductId(), item.getQuantity(), item.getProductPrice(),
+							item.getDiscount())));
+
+			return new Lines(cartId, cart.getUser() == null ? null : cart.getUser().getEmail(), lines);
+		});
+	}
+
+	private void install(LiveCart live, Lines state) {
+		synchronized (logLock) {
+			append(new LogRecord(state.getCartId(), state.getEmail(), state.lines(), state.drop));
+
+			live.state = state;
+			live.lastUsed = System.nanoTime();
+
+			if (state.drop) {
+				live.dirty = false;
+				live.evicted = true;
+				carts.remove(state.getCartId(), live);
+			} else {
+				live.dirty = true;
+			}
+		}
+	}
+
+	/**
+	 * @return whether any of the carts was written
+	 */
+	private boolean writeChunk(List<LiveCart> chunk, List<Lines> states) {
+		if (chunk.isEmpty()) {
+			return false;
+		}
+
+		if (write(chunk, states)) {
+			return true;
+		}
+
+		boolean wrote = false;
+
+		// One cart failed the whole chunk; find it by writing the others one at a time
+		for (int i = 0; i < chunk.size(); i++) {
+			chunk.get(i).failing = !write(List.of(chunk.get(i)), List.of(states.get(i)));
+			wrote |= !chunk.get(i).failing;
+		}
+
+		return wrote;
+	}
+
+	/**
+	 * Writes the carts in a transaction of their own and marks them clean once it commits.
+	 *
+	 * @return false, leaving them dirty, if the transaction failed
+	 */
+	private boolean write(List<LiveCart> lives, List<Lines> states) {
+		try {
+			// In its own transaction, so a caller that rolls back cannot undo a flush the carts were marked clean for
+			flushTemplate.executeWithoutResult(status -> states.forEach(this::write));
+		} catch (RuntimeException e) {
+			return false;
+		}
+
+		synchronized (logLock) {
+			for (int i = 0; i < lives.size(); i++) {
+				// A cart edited since its state was read stays dirty, and in the log
+				if (lives.get(i).state == states.get(i)) {
+					lives.get(i).dirty = false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Makes the cart's rows match the lines, in the current transaction.
+	 */
+	private void write(Lines state) {
+		Cart cart = cartRepo.findById(state.getCartId()).orElse(null);
+
+		if (cart == null) {
+			return;
+		}
+
+		Map<Long, CartItem> items = new HashMap<>();
+		cart.getCartItems().forEach(item -> items.put(item.getProduct().getProductId(), item));
+
+		for (Line line : state.lines()) {
+			CartItem item = items.remove(line.productId());
+
+			if (item == null) {
+				if (!productRepo.existsById(line.productId())) {
+					continue;
+				}
+
+				item = new CartItem();
+				item.setCart(cart);
+				item.setProduct(productRepo.getReferenceById(line.productId()));
+				cart.getCartItems().add(item);
+			}
+
+			if (item.getQuantity() == null || item.getQuantity() != line.quantity()) {
+				item.setReservedAt(LocalDateTime.now());
+			}
+
+			item.setQuantity(line.quantity());
+			item.setProductPrice(line.productPrice());
+			item.setDiscount(line.discount());
+		}
+
+		cart.getCartItems().removeAll(items.values());
+		cart.setTotalPrice(state.totalPrice());
+	}
+
+	private void append(LogRecord record) {
+		try {
+			writeLine(log(), objectMapper.writeValueAsBytes(record));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void rotateLog(boolean force) {
+		synchronized (logLock) {
+			// Nothing appended since the last rotation
+			if (log == null && !force) {
+				return;
+			}
+
+			Path next = logPath.resolveSibling(logPath.getFileName() + ".next");
+
+			try (FileChannel channel = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				for (LiveCart live : carts.values()) {
+					if (live.dirty) {
+						Lines state = live.state;
+						writeLine(channel, objectMapper.writeValueAsBytes(
+								new LogRecord(state.getCartId(), state.getEmail(), state.lines(), false)));
+					}
+				}
+
+				channel.force(true);
+
+				if (log != null) {
+					log.close();
+					log = null;
+				}
+
+				Files.move(next, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private static void writeLine(FileChannel channel, byte[] json) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+
+		// A single write may stop short of the end of the buffer
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private FileChannel log() throws IOException {
+		if (log == null) {
+			log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.APPEND);
+		}
+
+		return log;
+	}
+
+}
@@ -0,0 +1,34 @@
+package com.example.eshopee.services;
+
+import com.example.eshopee.entites.Category;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@link CategoryServiceImpl} whenever a category is saved or deleted.
+ */
+@Getter
+@AllArgsConstructor
+public class CategoryChangedEvent {
+
+	public enum Type {
+		SAVED, DELETED
+	}
+
+	private final Type type;
+	private final Category category;
+
+	public static CategoryChangedEvent saved(Category category) {
+		return new CategoryChangedEvent(Type.SAVED, category);
+	}
+
+	public static CategoryChangedEvent deleted(Category category) {
+		return new CategoryChangedEvent(Type.DELETED, category);
+	}
+
+	public boolean isDeleted() {
+		return type == Type.DELETED;
+	}
+
+}
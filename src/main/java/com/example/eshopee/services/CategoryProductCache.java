@@ -0,0 +1,242 @@
+package com.example.eshopee.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.exceptions.APIException;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * Per-category cache of product ids sorted by a product attribute.
+ *
+ * A list is loaded once per (category, sortBy) with a query on the (category_id, sort key)
+ * index and then patched in place from {@link ProductChangedEvent}s, so category pages are
+ * sliced out of memory instead of being sorted and counted by the database on every view.
+ *
+ * Only the sort keys with such an index are cached, which bounds the lists to two per category;
+ * pages by any other key are left to the database (see {@link #caches(String)}).
+ * Neither is moved by stock UPDATEs, so the lists need no {@link StockChangedEvent}s. A list
+ * is loaded outside any map lock and only kept if no product change was published meanwhile;
+ * otherwise the change may be missing from it, and the next view loads it again.
+ */
+@Component
+public class CategoryProductCache {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	// Sort keys with a (category_id, key) index on products
+	private static final List<String> SORTABLE = List.of("productId", "price");
+
+	private final Map<Key, SortedIds> lists = new ConcurrentHashMap<>();
+
+	// Bumped before every change is applied, so a load can tell whether one raced with it
+	private final AtomicLong changes = new AtomicLong();
+
+	private record Key(Long categoryId, String sortBy) {
+	}
+
+	public record IdPage(List<Long> productIds, long totalElements) {
+	}
+
+	/**
+	 * Whether pages sorted by sortBy are served from the cache.
+	 */
+	public boolean caches(String sortBy) {
+		return SORTABLE.contains(sortBy);
+	}
+
+	/**
+	 * Returns one page of product ids of the category, ordered by sortBy and then productId.
+	 */
+	public IdPage getPage(Long categoryId, String sortBy, boolean ascending, int pageNumber, int pageSize) {
+		if (!caches(sortBy)) {
+			throw new APIException("Category products can only be sorted by " + String.join(", ", SORTABLE));
+		}
+
+		Key key = new Key(categoryId, sortBy);
+		SortedIds sorted = lists.get(key);
+
+		if (sorted == null) {
+			long version = changes.get();
+
+			sorted = load(key);
+
+			SortedIds cached = lists.putIfAbsent(key, sorted);
+
+			if (cached != null) {
+				sorted = cached;
+			} else if (changes.get() != version) {
+				// Served once, but not kept: a change published during the load may be missing from it
+				lists.remove(key, sorted);
+			}
+		}
+
+		return sorted.page(ascending, pageNumber, pageSize);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProductChanged(ProductChangedEvent event) {
+		Product product = event.getProduct();
+
+		if (product.getCategory() == null) {
+			return;
+		}
+
+		changes.incrementAndGet();
+
+		Long categoryId = product.getCategory().getCategoryId();
+
+		for (Key key : lists.keySet()) {
+			if (!key.categoryId().equals(categoryId)) {
+				continue;
+			}
+
+			if (event.isDeleted()) {
+				lists.computeIfPresent(key, (k, sorted) -> sorted.without(product.getProductId()));
+			} else {
+				Object sortValue = new BeanWrapperImpl(product).getPropertyValue(key.sortBy());
+
+				lists.computeIfPresent(key, (k, sorted) -> sorted.without(product.getProductId())
+						.with(product.getProductId(), sortValue));
+			}
+		}
+	}
+
+	/**
+	 * An import can add thousands of products to a category, so its lists are dropped and
+	 * reloaded on the next view rather than patched one insert at a time.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProductsImported(ProductsImportedEvent event) {
+		Set<Long> categoryIds = event.getProducts().stream().map(product -> product.getCategory().getCategoryId())
+				.collect(Collectors.toSet());
+
+		changes.incrementAndGet();
+
+		lists.keySet().removeIf(key -> categoryIds.contains(key.categoryId()));
+	}
+
+	private SortedIds load(Key key) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = cb.createTupleQuery();
+		Root<Product> root = query.from(Product.class);
+
+		query.multiselect(root.get(key.sortBy()), root.get("productId"))
+				.where(cb.equal(root.get("category").get("categoryId"), key.categoryId()))
+				.orderBy(cb.asc(root.get(key.sortBy())), cb.asc(root.get("productId")));
+
+		List<Tuple> rows = entityManager.createQuery(query).getResultList();
+
+		long[] ids = new long[rows.size()];
+		Object[] sortValues = new Object[rows.size()];
+
+		for (int i = 0; i < rows.size(); i++) {
+			sortValues[i] = rows.get(i).get(0);
+			ids[i] = rows.get(i).get(1, Long.class);
+		}
+
+		return new SortedIds(ids, sortValues);
+	}
+
+	/**
+	 * Immutable list of ids in ascending (sortValue, id) order. Writes copy the arrays, which
+	 * keeps reads lock-free; product writes are rare compared to category page views.
+	 */
+	private static final class SortedIds {
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private static final Comparator<Object> SORT_VALUE_ORDER = Comparator
+				.nullsFirst((a, b) -> ((Comparable) a).compareTo(b));
+
+		private final long[] ids;
+		private final Object[] sortValues;
+
+		SortedIds(long[] ids, Object[] sortValues) {
+			this.ids = ids;
+			this.sortValues = sortValues;
+		}
+
+		IdPage page(boolean ascending, int pageNumber, int pageSize) {
+			int from = (int) Math.min((long) pageNumber * pageSize, ids.length);
+			int to = Math.min(from + pageSize, ids.length);
+
+			List<Long> page = new ArrayList<>(to - from);
+
+			for (int i = from; i < to; i++) {
+				page.add(ascending ? ids[i] : ids[ids.length - 1 - i]);
+			}
+
+			return new IdPage(page, ids.length);
+		}
+
+		SortedIds without(long productId) {
+			for (int i = 0; i < ids.length; i++) {
+				if (ids[i] == productId) {
+					return new SortedIds(remove(ids, i), remove(sortValues, i));
+				}
+			}
+
+			return this;
+		}
+
+		SortedIds with(long productId, Object sortValue) {
+			int low = 0;
+			int high = ids.length;
+
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				int cmp = SORT_VALUE_ORDER.compare(sortValues[mid], sortValue);
+
+				if (cmp < 0 || (cmp == 0 && ids[mid] < productId)) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+
+			long[] newIds = new long[ids.length + 1];
+			Object[] newSortValues = new Object[ids.length + 1];
+
+			System.arraycopy(ids, 0, newIds, 0, low);
+			System.arraycopy(sortValues, 0, newSortValues, 0, low);
+			newIds[low] = productId;
+			newSortValues[low] = sortValue;
+			System.arraycopy(ids, low, newIds, low + 1, ids.length - low);
+			System.arraycopy(sortValues, low, newSortValues, low + 1, ids.length - low);
+
+			return new SortedIds(newIds, newSortValues);
+		}
+
+		private static long[] remove(long[] array, int index) {
+			long[] copy = Arrays.copyOf(array, array.length - 1);
+			System.arraycopy(array, index + 1, copy, index, array.length - index - 1);
+			return copy;
+		}
+
+		private static Object[] remove(Object[] array, int index) {
+			Object[] copy = Arrays.copyOf(array, array.length - 1);
+			System.arraycopy(array, index + 1, copy, index, array.length - index - 1);
+			return copy;
+		}
+	}
+
+}
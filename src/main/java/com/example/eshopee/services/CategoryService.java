@@ -10,6 +10,8 @@ public interface CategoryService {
 
 	CategoryResponse getCategories(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder);
 
+	CategoryResponse getCategoriesAfter(String after, Integer pageSize, String sortBy, String sortOrder);
+
 	CategoryDTO updateCategory(Category category, Long categoryId);
 
 	String deleteCategory(Long categoryId);
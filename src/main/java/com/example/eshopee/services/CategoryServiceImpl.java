@@ -5,10 +5,14 @@ import java.util.stream.Collectors;
 
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
 import com.example.eshopee.entites.Category;
@@ -18,6 +22,7 @@ import com.example.eshopee.exceptions.ResourceNotFoundException;
 import com.example.eshopee.payloads.CategoryDTO;
 import com.example.eshopee.payloads.CategoryResponse;
 import com.example.eshopee.repositories.CategoryRepo;
+import com.example.eshopee.repositories.KeysetSpecification;
 
 import jakarta.transaction.Transactional;
 
@@ -34,6 +39,9 @@ public class CategoryServiceImpl implements CategoryService {
 	@Autowired
 	private ModelMapper modelMapper;
 
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
 	@Override
 	public CategoryDTO createCategory(Category category) {
 		Category savedCategory = categoryRepo.findByCategoryName(category.getCategoryName());
@@ -44,6 +52,8 @@ public class CategoryServiceImpl implements CategoryService {
 
 		savedCategory = categoryRepo.save(category);
 
+		eventPublisher.publishEvent(CategoryChangedEvent.saved(savedCategory));
+
 		return modelMapper.map(savedCategory, CategoryDTO.class);
 	}
 
@@ -77,6 +87,32 @@ public class CategoryServiceImpl implements CategoryService {
 		return categoryResponse;
 	}
 
+	@Override
+	public CategoryResponse getCategoriesAfter(String after, Integer pageSize, String sortBy, String sortOrder) {
+		Sort sort = KeysetCursor.sort(sortBy, sortOrder, "categoryId");
+
+		Specification<Category> afterCursor = KeysetSpecification.after(KeysetCursor.position(after, sort), sort);
+
+		Window<Category> windowCategories = categoryRepo.findBy(afterCursor,
+				q -> q.sortBy(sort).limit(pageSize).scroll(ScrollPosition.keyset()));
+
+		if (windowCategories.isEmpty()) {
+			throw new APIException("No category is created till now");
+		}
+
+		List<CategoryDTO> categoryDTOs = windowCategories.stream()
+				.map(category -> modelMapper.map(category, CategoryDTO.class)).collect(Collectors.toList());
+
+		CategoryResponse categoryResponse = new CategoryResponse();
+
+		categoryResponse.setContent(categoryDTOs);
+		categoryResponse.setPageSize(pageSize);
+		categoryResponse.setLastPage(!windowCategories.hasNext());
+		categoryResponse.setNextCursor(KeysetCursor.next(windowCategories, sort));
+
+		return categoryResponse;
+	}
+
 	@Override
 	public CategoryDTO updateCategory(Category category, Long categoryId) {
 		Category savedCategory = categoryRepo.findById(categoryId)
@@ -86,6 +122,8 @@ public class CategoryServiceImpl implements CategoryService {
 
 		savedCategory = categoryRepo.save(category);
 
+		eventPublisher.publishEvent(CategoryChangedEvent.saved(savedCategory));
+
 		return modelMapper.map(savedCategory, CategoryDTO.class);
 	}
 
@@ -102,6 +140,8 @@ public class CategoryServiceImpl implements CategoryService {
 		
 		categoryRepo.delete(category);
 
+		eventPublisher.publishEvent(CategoryChangedEvent.deleted(category));
+
 		return "Category with categoryId: " + categoryId + " deleted successfully !!!";
 	}
 
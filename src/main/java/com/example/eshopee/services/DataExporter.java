@@ -0,0 +1,298 @@
+package com.example.eshopee.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Order;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.entites.ProductTombstone;
+import com.example.eshopee.exceptions.APIException;
+import com.example.eshopee.repositories.OrderRepo;
+import com.example.eshopee.repositories.ProductRepo;
+import com.example.eshopee.repositories.ProductTombstoneRepo;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Streams products and orders as NDJSON or CSV for downstream systems.
+ *
+ * Rows come from a forward-only repository {@link Stream} with a JDBC fetch size, are written
+ * out and detached one at a time, so heap use does not depend on the size of the table. The
+ * read-only transaction stays open until the last row has been written.
+ *
+ * An incremental product export ends with a row per product deleted since, carrying only its
+ * productId, the time of the delete as updatedAt and deleted=true. It covers catalog changes
+ * only: stock reserved and returned by carts does not stamp updatedAt, so a product whose
+ * stock alone moved is left out, and quantity is read as of the export.
+ */
+@Component
+public class DataExporter {
+
+	public enum Format {
+		NDJSON("application/x-ndjson"), CSV("text/csv");
+
+		private final String contentType;
+
+		Format(String contentType) {
+			this.contentType = contentType;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public static Format of(String format) {
+			try {
+				return valueOf(format.toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				throw new APIException("Export format must be ndjson or csv, not " + format);
+			}
+		}
+	}
+
+	private record Column<T>(String name, Function<T, Object> value) {
+	}
+
+	private static final int FLUSH_EVERY = 1000;
+
+	private static final List<Column<Product>> PRODUCT_COLUMNS = List.of(
+			new Column<>("productId", Product::getProductId),
+			new Column<>("categoryId", p -> p.getCategory() == null ? null : p.getCategory().getCategoryId()),
+			new Column<>("productName", Product::getProductName),
+			new Column<>("description", Product::getDescription),
+			new Column<>("image", Product::getImage),
+			new Column<>("quantity", Product::getQuantity),
+			new Column<>("price", Product::getPrice),
+			new Column<>("discount", Product::getDiscount),
+			new Column<>("specialPrice", Product::getSpecialPrice),
+			new Column<>("updatedAt", Product::getUpdatedAt),
+			new Column<>("deleted", p -> false));
+
+	private static final List<Column<ProductTombstone>> TOMBSTONE_COLUMNS = PRODUCT_COLUMNS.stream()
+			.map(column -> new Column<ProductTombstone>(column.name(), switch (column.name()) {
+				case "productId" -> ProductTombstone::getProductId;
+				case "updatedAt" -> ProductTombstone::getDeletedAt;
+				case "deleted" -> t -> true;
+				default -> t -> null;
+			}))
+			.toList();
+
+	private static final List<Column<Order>> ORDER_COLUMNS = List.of(
+			new Column<>("orderId", Order::getOrderId),
+			new Column<>("email", Order::getEmail),
+			new Column<>("orderDate", Order::getOrderDate),
+			new Column<>("totalAmount", Order::getTotalAmount),
+			new Column<>("orderStatus", Order::getOrderStatus),
+			new Column<>("paymentMethod", o -> o.getPayment() == null ? null : o.getPayment().getPaymentMethod()),
+			new Column<>("updatedAt", Order::getUpdatedAt));
+
+	@Autowired
+	private ProductRepo productRepo;
+
+	@Autowired
+	private ProductTombstoneRepo productTombstoneRepo;
+
+	@Autowired
+	private OrderRepo orderRepo;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate readOnlyTransaction;
+
+	@PostConstruct
+	void init() {
+		readOnlyTransaction = new TransactionTemplate(transactionManager);
+		readOnlyTransaction.setReadOnly(true);
+	}
+
+	/**
+	 * Writes every product in productId order, or only those updated at or after since in
+	 * (updatedAt, productId) order followed by those deleted at or after since.
+	 */
+	public void exportProducts(LocalDateTime since, Format format, OutputStream out) {
+		readOnlyTransaction.executeWithoutResult(status -> {
+			RowWriter writer = writer(format, out, PRODUCT_COLUMNS);
+
+			try (Stream<Product> products = since == null ? productRepo.streamAll()
+					: productRepo.streamUpdatedSince(since)) {
+				write(products, PRODUCT_COLUMNS, writer, entityManager::detach);
+			}
+
+			if (since != null) {
+				try (Stream<ProductTombstone> tombstones = productTombstoneRepo.streamDeletedSince(since)) {
+					write(tombstones, TOMBSTONE_COLUMNS, writer, entityManager::detach);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Writes every order in orderId order, or only those placed or changed at or after since in
+	 * (updatedAt, orderId) order.
+	 */
+	public void exportOrders(LocalDateTime since, Format format, OutputStream out) {
+		readOnlyTransaction.executeWithoutResult(status -> {
+			RowWriter writer = writer(format, out, ORDER_COLUMNS);
+
+			try (Stream<Order> orders = since == null ? orderRepo.streamAll() : orderRepo.streamUpdatedSince(since)) {
+				write(orders, ORDER_COLUMNS, writer, order -> {
+					if (order.getPayment() != null) {
+						entityManager.detach(order.getPayment());
+					}
+
+					entityManager.detach(order);
+				});
+			}
+		});
+	}
+
+	private RowWriter writer(Format format, OutputStream out, List<? extends Column<?>> columns) {
+		List<String> names = columns.stream().map(Column::name).toList();
+
+		try {
+			return format == Format.CSV ? new CsvWriter(out, names) : new NdjsonWriter(out, names);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private <T> void write(Stream<T> rows, List<Column<T>> columns, RowWriter writer, Consumer<T> detach) {
+		try {
+			long[] count = { 0 };
+
+			rows.forEach(row -> {
+				try {
+					writer.write(columns.stream().map(column -> column.value().apply(row)).toList());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+
+				detach.accept(row);
+
+				if (++count[0] % FLUSH_EVERY == 0) {
+					try {
+						writer.flush();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+
+			writer.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private interface RowWriter {
+
+		void write(List<Object> values) throws IOException;
+
+		void flush() throws IOException;
+	}
+
+	private final class NdjsonWriter implements RowWriter {
+
+		private final JsonGenerator generator;
+		private final ObjectWriter valueWriter;
+		private final List<String> names;
+
+		NdjsonWriter(OutputStream out, List<String> names) throws IOException {
+			this.generator = objectMapper.getFactory().createGenerator(out);
+			this.valueWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+			this.generator.setRootValueSeparator(null);
+			this.names = names;
+		}
+
+		@Override
+		public void write(List<Object> values) throws IOException {
+			generator.writeStartObject();
+
+			for (int i = 0; i < names.size(); i++) {
+				generator.writeFieldName(names.get(i));
+				valueWriter.writeValue(generator, values.get(i));
+			}
+
+			generator.writeEndObject();
+			generator.writeRaw('\n');
+		}
+
+		@Override
+		public void flush() throws IOException {
+			generator.flush();
+		}
+	}
+
+	private static final class CsvWriter implements RowWriter {
+
+		private final Writer writer;
+
+		CsvWriter(OutputStream out, List<String> names) throws IOException {
+			this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+			writer.write(String.join(",", names));
+			writer.write('\n');
+		}
+
+		@Override
+		public void write(List<Object> values) throws IOException {
+			for (int i = 0; i < values.size(); i++) {
+				if (i > 0) {
+					writer.write(',');
+				}
+
+				Object value = values.get(i);
+
+				if (value != null) {
+					writer.write(escape(value.toString()));
+				}
+			}
+
+			writer.write('\n');
+		}
+
+		@Override
+		public void flush() throws IOException {
+			writer.flush();
+		}
+
+		private static String escape(String value) {
+			if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+					&& value.indexOf('\r') < 0) {
+				return value;
+			}
+
+			return '"' + value.replace("\"", "\"\"") + '"';
+		}
+	}
+
+}
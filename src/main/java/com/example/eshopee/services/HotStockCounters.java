@@ -0,0 +1,495 @@
+package com.example.eshopee.services;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.HotStockMovement;
+import com.example.eshopee.exceptions.APIException;
+import com.example.eshopee.exceptions.ResourceNotFoundException;
+import com.example.eshopee.payloads.HotStockDTO;
+import com.example.eshopee.repositories.HotStockMovementRepo;
+import com.example.eshopee.repositories.ProductRepo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Opt-in in-memory stock for flash-sale products, so add-to-cart on them does not queue on
+ * one products row lock.
+ *
+ * The stock of a hot product is split over one counter shard per core, each on its own cache
+ * line and changed by CAS. A request takes from the shard its thread maps to, then from the
+ * others, moving half of what is left into its own shard when that ran dry. Every movement is
+ * inserted into hot_stock_movements in the caller's transaction, so it is durable once the
+ * reservation is acknowledged and gone if the reservation rolls back. Units given back enter the
+ * shards only once their transaction commits. The movements are summed per product and applied
+ * to products.quantity every flush interval, at shutdown and when hot mode is turned off; an
+ * insert takes no lock on the products row.
+ *
+ * products.hot_stock marks the products held here: the conditional UPDATE of {@link Inventory}
+ * skips them, so a request racing with turning hot mode on cannot take the same units twice.
+ * Turning it off waits for every transaction that recorded a movement before the last flush,
+ * so none of them is applied after the row serves the stock again.
+ * Movements left behind by a process that died are applied at startup, before the shards are
+ * seeded from products.quantity.
+ */
+@Component
+public class HotStockCounters {
+
+	// Longs per 64-byte cache line, so neighbouring shards do not share one
+	private static final int PADDING = 8;
+
+	private static final int SHARDS = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+	@Autowired
+	private ProductRepo productRepo;
+
+	@Autowired
+	private HotStockMovementRepo movementRepo;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Value("${project.inventory.hot.flush-batch-size:500}")
+	private int flushBatchSize;
+
+	private TransactionTemplate transactionTemplate;
+
+	private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	void init() {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		// Movements a crashed process acknowledged but never applied
+		flush();
+
+		for (Object[] row : productRepo.findHotStock()) {
+			Long productId = (Long) row[0];
+
+			counters.put(productId, new Counter(row[1] == null ? 0 : (Integer) row[1]));
+		}
+	}
+
+	public boolean isHot(Long productId) {
+		return counters.containsKey(productId);
+	}
+
+	/**
+	 * Takes quantity units of a hot product; undone if the calling transaction rolls back.
+	 *
+	 * @return null if the product is not hot, false if fewer than quantity units could be taken
+	 */
+	public Boolean reserve(Long productId, int quantity) {
+		Counter counter = counters.get(productId);
+
+		if (counter == null) {
+			return null;
+		}
+
+		if (!counter.enter()) {
+			return false;
+		}
+
+		try {
+			if (!counter.take(home(), quantity)) {
+				return false;
+			}
+
+			record(counter, productId, -quantity, () -> counter.put(home(), quantity), null);
+
+			return true;
+		} finally {
+			counter.exit();
+		}
+	}
+
+	/**
+	 * Returns quantity units of a hot product. They can be taken again once the calling
+	 * transaction commits.
+	 *
+	 * @return false if the product is not hot or is leaving hot mode; the units belong on its row then
+	 */
+	public boolean release(Long productId, int quantity) {
+		Counter counter = counters.get(productId);
+
+		if (counter == null || !counter.enter()) {
+			return false;
+		}
+
+		try {
+			record(counter, productId, quantity, null, () -> counter.put(home(), quantity));
+
+			return true;
+		} finally {
+			counter.exit();
+		}
+	}
+
+	/**
+	 * Sets the stock of a hot product, e.g. when an admin edits the product. A lower stock is
+	 * taken from every shard at once and put back if the calling transaction rolls back; units
+	 * sold in the meantime cannot be taken, so the stock never goes below zero. A higher stock
+	 * can be taken once the calling transaction commits.
+	 *
+	 * @return false if the product is not hot or is leaving hot mode; the stock belongs on its row then
+	 */
+	public boolean setAvailable(Long productId, int quantity) {
+		Counter counter = counters.get(productId);
+
+		if (counter == null || !counter.enter()) {
+			return false;
+		}
+
+		try {
+			long delta = quantity - counter.available();
+
+			if (delta < 0) {
+				long drained = counter.drain(home(), -delta);
+
+				record(counter, productId, -drained, () -> counter.put(home(), drained), null);
+			} else if (delta > 0) {
+				record(counter, productId, delta, null, () -> counter.put(home(), delta));
+			}
+
+			return true;
+		} finally {
+			counter.exit();
+		}
+	}
+
+	/**
+	 * Units of a hot product left in the shards, or null if the product is not hot.
+	 */
+	public Long available(Long productId) {
+		Counter counter = counters.get(productId);
+
+		return counter == null ? null : counter.available();
+	}
+
+	public HotStockDTO enable(Long productId) {
+		if (!productRepo.existsById(productId)) {
+			throw new ResourceNotFoundException("Product", "productId", productId);
+		}
+
+		Counter counter;
+
+		synchronized (this) {
+			counter = counters.get(productId);
+
+			if (counter == null) {
+				// Movements of an earlier hot period are not in the quantity yet
+				flush();
+
+				// The flag update locks the row, so the quantity read after it includes every committed reservation
+				Integer quantity = transactionTemplate.execute(status -> {
+					productRepo.updateHotStock(productId, true);
+
+					return productRepo.findQuantityById(productId);
+				});
+
+				counter = new Counter(quantity == null ? 0 : quantity);
+
+				counters.put(productId, counter);
+			}
+		}
+
+		return stats(productId, counter);
+	}
+
+	public HotStockDTO disable(Long productId) {
+		Counter counter = counters.get(productId);
+
+		if (counter == null) {
+			throw new APIException("Product " + productId + " is not in hot stock mode");
+		}
+
+		synchronized (this) {
+			// Also waits for the transactions of earlier movements, so the flush sees every one of them
+			counter.close();
+
+			flush();
+
+			transactionTemplate.executeWithoutResult(status -> productRepo.updateHotStock(productId, false));
+
+			counters.remove(productId);
+		}
+
+		return new HotStockDTO(productId, counter.available(), 0, 0L);
+	}
+
+	public List<HotStockDTO> stats() {
+		return counters.entrySet().stream().sorted(Map.Entry.comparingByKey())
+				.map(entry -> stats(entry.getKey(), entry.getValue())).toList();
+	}
+
+	private HotStockDTO stats(Long productId, Counter counter) {
+		return new HotStockDTO(productId, counter.available(), SHARDS, movementRepo.countByProductId(productId));
+	}
+
+	/**
+	 * Applies the committed movements to products.quantity, one relative UPDATE per product and
+	 * batch, deleting them in the same transaction, and publishes a {@link StockChangedEvent}
+	 * for the products each batch moved.
+	 */
+	@Scheduled(fixedDelayString = "${project.inventory.hot.flush-interval-ms:1000}")
+	@PreDestroy
+	public synchronized void flush() {
+		int applied;
+
+		do {
+			applied = transactionTemplate.execute(status -> {
+				List<HotStockMovement> movements = movementRepo.findOldest(PageRequest.of(0, flushBatchSize));
+
+				if (movements.isEmpty()) {
+					return 0;
+				}
+
+				Map<Long, Long> deltas = new HashMap<>();
+
+				for (HotStockMovement movement : movements) {
+					deltas.merge(movement.getProductId(), movement.getDelta(), Long::sum);
+				}
+
+				deltas.forEach((productId, delta) -> {
+					if (delta != 0) {
+						productRepo.addQuantity(productId, Math.toIntExact(delta));
+					}
+				});
+
+				movementRepo.deleteByMovementIdIn(movements.stream().map(HotStockMovement::getMovementId).toList());
+
+				eventPublisher.publishEvent(new StockChangedEvent(List.copyOf(deltas.keySet())));
+
+				return movements.size();
+			});
+		} while (applied == flushBatchSize);
+	}
+
+	/**
+	 * Inserts the movement in the calling transaction, so the reservation is acknowledged only
+	 * with its movement stored. onRollback runs if that transaction rolls back, onCommit once it
+	 * commits; until then the counter counts the transaction as pending.
+	 */
+	private void record(Counter counter, Long productId, long delta, Runnable onRollback, Runnable onCommit) {
+		counter.pending.increment();
+
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			try {
+				movementRepo.save(new HotStockMovement(null, productId, delta));
+			} catch (RuntimeException e) {
+				if (onRollback != null) {
+					onRollback.run();
+				}
+
+				throw e;
+			} finally {
+				counter.pending.decrement();
+			}
+
+			if (onCommit != null) {
+				onCommit.run();
+			}
+
+			return;
+		}
+
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+			@Override
+			public void afterCompletion(int status) {
+				try {
+					if (status == STATUS_COMMITTED && onCommit != null) {
+						onCommit.run();
+					} else if (status == STATUS_ROLLED_BACK && onRollback != null) {
+						onRollback.run();
+					}
+				} finally {
+					counter.pending.decrement();
+				}
+			}
+		});
+
+		movementRepo.save(new HotStockMovement(null, productId, delta));
+	}
+
+	private static int home() {
+		long id = Thread.currentThread().getId();
+
+		return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (SHARDS - 1);
+	}
+
+	private final class Counter {
+
+		private final AtomicLongArray cells = new AtomicLongArray(SHARDS * PADDING);
+
+		private volatile boolean open = true;
+
+		// Requests between the open check and recording their movement, awaited when closing
+		private final LongAdder inFlight = new LongAdder();
+
+		// Transactions that recorded a movement and have not completed, awaited when closing
+		private final LongAdder pending = new LongAdder();
+
+		Counter(long quantity) {
+			for (int shard = 0; shard < SHARDS; shard++) {
+				cells.set(shard * PADDING, quantity / SHARDS + (shard < quantity % SHARDS ? 1 : 0));
+			}
+		}
+
+		long available() {
+			long available = 0;
+
+			for (int shard = 0; shard < SHARDS; shard++) {
+				available += cells.get(shard * PADDING);
+			}
+
+			return available;
+		}
+
+		/**
+		 * Starts a request on the counter, paired with {@link #exit()}.
+		 *
+		 * @return false, without starting one, once the counter is closed
+		 */
+		boolean enter() {
+			inFlight.increment();
+
+			if (!open) {
+				inFlight.decrement();
+				return false;
+			}
+
+			return true;
+		}
+
+		void exit() {
+			inFlight.decrement();
+		}
+
+		boolean take(int home, int quantity) {
+			// One shard that holds enough, starting with our own
+			for (int i = 0; i < SHARDS; i++) {
+				int shard = (home + i) & (SHARDS - 1);
+
+				if (takeExactly(shard, quantity)) {
+					if (i > 0) {
+						rebalance(shard, home);
+					}
+
+					return true;
+				}
+			}
+
+			// Units spread thinner than quantity: gather them, or put them back
+			long taken = drain(home, quantity);
+
+			if (taken < quantity) {
+				cells.addAndGet(home * PADDING, taken);
+				return false;
+			}
+
+			return true;
+		}
+
+		/**
+		 * Takes up to quantity units from all shards, starting with ours.
+		 *
+		 * @return the units taken, fewer than quantity if the shards ran dry
+		 */
+		long drain(int home, long quantity) {
+			long taken = 0;
+
+			for (int i = 0; i < SHARDS && taken < quantity; i++) {
+				taken += takeUpTo((home + i) & (SHARDS - 1), quantity - taken);
+			}
+
+			return taken;
+		}
+
+		void put(int home, long quantity) {
+			cells.addAndGet(home * PADDING, quantity);
+		}
+
+		void close() {
+			open = false;
+
+			while (inFlight.sum() > 0) {
+				Thread.onSpinWait();
+			}
+
+			while (pending.sum() > 0) {
+				LockSupport.parkNanos(1_000_000);
+			}
+		}
+
+		private boolean takeExactly(int shard, long quantity) {
+			int index = shard * PADDING;
+
+			for (;;) {
+				long units = cells.get(index);
+
+				if (units < quantity) {
+					return false;
+				}
+
+				if (cells.compareAndSet(index, units, units - quantity)) {
+					return true;
+				}
+			}
+		}
+
+		private long takeUpTo(int shard, long quantity) {
+			int index = shard * PADDING;
+
+			for (;;) {
+				long units = cells.get(index);
+				long taken = Math.min(units, quantity);
+
+				if (taken <= 0) {
+					return 0;
+				}
+
+				if (cells.compareAndSet(index, units, units - taken)) {
+					return taken;
+				}
+			}
+		}
+
+		// Moves half of what another shard has left into ours, so our next requests stay local
+		private void rebalance(int from, int to) {
+			int index = from * PADDING;
+			long units = cells.get(index);
+			long half = units / 2;
+
+			if (half > 0 && cells.compareAndSet(index, units, units - half)) {
+				cells.addAndGet(to * PADDING, half);
+			}
+		}
+	}
+
+}
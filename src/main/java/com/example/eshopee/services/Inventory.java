@@ -0,0 +1,107 @@
+package com.example.eshopee.services;
+
+import java.util.List;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.exceptions.APIException;
+import com.example.eshopee.repositories.ProductRepo;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+/**
+ * Takes and returns product stock with single conditional UPDATE statements.
+ *
+ * The check and the decrement happen in the same statement, so concurrent buyers of the last
+ * units cannot both pass a check made in Java and oversell. The row is locked only while the
+ * statement's transaction is open, never across a read-modify-write. Products in hot stock mode
+ * are served by {@link HotStockCounters} instead. Each change publishes a
+ * {@link StockChangedEvent}.
+ */
+@Component
+@Transactional
+public class Inventory {
+
+	@Autowired
+	private ProductRepo productRepo;
+
+	@Autowired
+	private HotStockCounters hotStockCounters;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/**
+	 * Takes quantity units of the product if that many are in stock.
+	 *
+	 * @return false, leaving the stock unchanged, if fewer than quantity units are in stock
+	 */
+	public boolean reserve(Long productId, int quantity) {
+		if (quantity < 1) {
+			throw new APIException("Quantity must be at least 1");
+		}
+
+		Boolean hot = hotStockCounters.reserve(productId, quantity);
+
+		if (hot != null) {
+			return hot;
+		}
+
+		boolean reserved = productRepo.reserveQuantity(productId, quantity) == 1;
+
+		if (reserved) {
+			refresh(productId);
+		}
+
+		return reserved;
+	}
+
+	/**
+	 * Returns quantity units, e.g. when they are removed from a cart.
+	 */
+	public void release(Long productId, int quantity) {
+		if (hotStockCounters.release(productId, quantity)) {
+			return;
+		}
+
+		productRepo.addQuantity(productId, quantity);
+
+		refresh(productId);
+	}
+
+	/**
+	 * Units in stock right now; already stale when a concurrent reservation commits.
+	 */
+	public int available(Long productId) {
+		Long hot = hotStockCounters.available(productId);
+
+		if (hot != null) {
+			return hot.intValue();
+		}
+
+		Integer quantity = productRepo.findQuantityById(productId);
+
+		return quantity == null ? 0 : quantity;
+	}
+
+	private void refresh(Long productId) {
+		// The update bypasses the persistence context, so refresh a Product it already holds
+		Product product = productRepo.getReferenceById(productId);
+
+		if (Hibernate.isInitialized(product)) {
+			entityManager.refresh(product);
+		}
+
+		eventPublisher.publishEvent(new StockChangedEvent(List.of(productId)));
+	}
+
+}
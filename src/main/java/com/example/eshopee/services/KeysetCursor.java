@@ -0,0 +1,137 @@
+package com.example.eshopee.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import com.example.eshopee.exceptions.APIException;
+
+/**
+ * Encodes keyset scroll positions as opaque {@code after} tokens for the cursor mode of the
+ * paged listing endpoints.
+ *
+ * A token holds the sort it was issued for plus the sort key and id of the last row of a page,
+ * so the next page is a plain range scan on (sortKey, id) instead of an OFFSET plus COUNT. A
+ * sort key may be null; see {@link com.example.eshopee.repositories.KeysetSpecification} for
+ * where null keys fall in the order.
+ */
+public final class KeysetCursor {
+
+	private KeysetCursor() {
+	}
+
+	/**
+	 * Sort on the requested property with the id as tie-breaker, which keeps the keyset unique.
+	 */
+	public static Sort sort(String sortBy, String sortOrder, String idProperty) {
+		Sort.Direction direction = sortOrder.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
+
+		Sort sort = Sort.by(direction, sortBy);
+
+		return sortBy.equals(idProperty) ? sort : sort.and(Sort.by(direction, idProperty));
+	}
+
+	/**
+	 * Position to scroll from. A blank token starts at the first row.
+	 */
+	public static KeysetScrollPosition position(String after, Sort sort) {
+		if (after == null || after.isBlank()) {
+			return ScrollPosition.keyset();
+		}
+
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(after)))) {
+			if (!in.readUTF().equals(sort.toString())) {
+				throw new APIException("Cursor was issued for a different sort order");
+			}
+
+			Map<String, Object> keys = new LinkedHashMap<>();
+			int size = in.readInt();
+
+			for (int i = 0; i < size; i++) {
+				keys.put(in.readUTF(), readValue(in));
+			}
+
+			return ScrollPosition.forward(keys);
+		} catch (IOException | IllegalArgumentException e) {
+			throw new APIException("Invalid cursor: " + after);
+		}
+	}
+
+	/**
+	 * Token pointing after the last row of the window, or null if the window is the last one.
+	 */
+	public static String next(Window<?> window, Sort sort) {
+		if (!window.hasNext() || window.isEmpty()) {
+			return null;
+		}
+
+		KeysetScrollPosition position = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeUTF(sort.toString());
+			out.writeInt(position.getKeys().size());
+
+			for (Map.Entry<String, Object> key : position.getKeys().entrySet()) {
+				out.writeUTF(key.getKey());
+				writeValue(out, key.getValue());
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+	}
+
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte('N');
+		} else if (value instanceof Long l) {
+			out.writeByte('L');
+			out.writeLong(l);
+		} else if (value instanceof Integer i) {
+			out.writeByte('I');
+			out.writeInt(i);
+		} else if (value instanceof Double d) {
+			out.writeByte('D');
+			out.writeDouble(d);
+		} else if (value instanceof Boolean b) {
+			out.writeByte('B');
+			out.writeBoolean(b);
+		} else if (value instanceof LocalDate date) {
+			out.writeByte('T');
+			out.writeLong(date.toEpochDay());
+		} else if (value instanceof String s) {
+			out.writeByte('S');
+			out.writeUTF(s);
+		} else {
+			throw new APIException("Cannot page with a cursor on a key of type " + value.getClass().getSimpleName());
+		}
+	}
+
+	private static Object readValue(DataInputStream in) throws IOException {
+		return switch (in.readByte()) {
+			case 'N' -> null;
+			case 'L' -> in.readLong();
+			case 'I' -> in.readInt();
+			case 'D' -> in.readDouble();
+			case 'B' -> in.readBoolean();
+			case 'T' -> LocalDate.ofEpochDay(in.readLong());
+			case 'S' -> in.readUTF();
+			default -> throw new IOException("Unknown key type");
+		};
+	}
+
+}
@@ -0,0 +1,251 @@
+package com.example.eshopee.services;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.OrderIdempotencyKey;
+import com.example.eshopee.exceptions.APIException;
+import com.example.eshopee.exceptions.CartQueueFullException;
+import com.example.eshopee.exceptions.OrderInFlightException;
+import com.example.eshopee.payloads.OrderDTO;
+import com.example.eshopee.repositories.OrderIdempotencyKeyRepo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Places an order at most once per Idempotency-Key, so a client retrying after a timeout gets
+ * the order it already placed instead of a second one.
+ *
+ * Keys are scoped to the user's email. The first request with a key claims it by inserting an
+ * order_idempotency_keys row, whose unique (email, idempotency_key) index lets only one request
+ * win. It then places the order on the cart's executor and stores the OrderDTO on the row, in
+ * the same transaction as the order, so an order is never committed without its response.
+ *
+ * Recent keys are also held in a bounded Caffeine cache, together with the future of their
+ * order. A duplicate that arrives while the first request is in flight waits on that future
+ * rather than racing it. A retry after completion is answered from the cache, or from the row
+ * once the cache has dropped the key. A duplicate arriving on another instance while the order
+ * is in flight gets 409 and Retry-After. If the placement fails, the key is released so the
+ * request can be retried. A key whose placement was abandoned (e.g. the instance died) can be
+ * claimed again after lease-seconds. Rows are purged after ttl-hours.
+ *
+ * The lease is renewed when the placement starts, in the placement's transaction, which keeps
+ * the row locked until the order commits; a placement that waited longer than a lease on its
+ * cart's executor does not go ahead if another request took the key over meanwhile. Renewal,
+ * reclaim and release all match the lease they hold and only touch a row with no response, so
+ * a request can neither take over nor delete a key whose order has been placed.
+ */
+@Component
+public class OrderIdempotency {
+
+	private static final int MAX_KEY_LENGTH = 255;
+
+	@Autowired
+	private OrderIdempotencyKeyRepo idempotencyKeyRepo;
+
+	@Autowired
+	private CartExecutor cartExecutor;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${project.order.idempotency.cache-size:10000}")
+	private long cacheSize;
+
+	@Value("${project.order.idempotency.ttl-hours:24}")
+	private long ttlHours;
+
+	@Value("${project.order.idempotency.lease-seconds:60}")
+	private long leaseSeconds;
+
+	private Cache<String, Placement> placements;
+
+	@PostConstruct
+	void init() {
+		placements = Caffeine.newBuilder()
+				.maximumSize(cacheSize)
+				.expireAfterWrite(Duration.ofHours(ttlHours))
+				.build();
+	}
+
+	/**
+	 * Runs the placement on the cart's executor, or returns the order already placed with the
+	 * key. Without a key, the placement simply runs.
+	 */
+	public CompletableFuture<OrderDTO> place(String idempotencyKey, String emailId, Long cartId, String paymentMethod,
+			Supplier<OrderDTO> placement) {
+
+		if (idempotencyKey == null) {
+			return cartExecutor.submit(cartId, placement);
+		}
+
+		if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+			throw new APIException("Idempotency-Key must contain between 1 and " + MAX_KEY_LENGTH + " characters");
+		}
+
+		Placement created = new Placement(cartId, paymentMethod);
+		Placement existing = placements.asMap().putIfAbsent(emailId + "\n" + idempotencyKey, created);
+
+		if (existing != null) {
+			existing.checkSameRequest(cartId, paymentMethod);
+
+			return existing.order.thenApply(order -> order);
+		}
+
+		try {
+			OrderIdempotencyKey key = claim(idempotencyKey, emailId, cartId, paymentMethod);
+
+			if (key.getResponse() != null) {
+				created.order.complete(read(key.getResponse()));
+			} else {
+				LocalDateTime claimedAt = key.getClaimedAt();
+
+				CompletableFuture<OrderDTO> placed;
+
+				try {
+					placed = cartExecutor.submit(cartId, () -> transactionTemplate.execute(status -> {
+						if (idempotencyKeyRepo.lease(key.getId(), claimedAt, now()) == 0) {
+							throw new OrderInFlightException("The order for this Idempotency-Key is being placed, please retry shortly");
+						}
+
+						OrderDTO order = placement.get();
+
+						idempotencyKeyRepo.complete(key.getId(), write(order));
+
+						return order;
+					}));
+				} catch (CartQueueFullException e) {
+					// Nothing was queued, so the retry may claim the key straight away
+					release(emailId, idempotencyKey, key.getId(), claimedAt, created);
+					throw e;
+				}
+
+				placed.whenComplete((order, e) -> {
+					if (e == null) {
+						created.order.complete(order);
+					} else {
+						try {
+							release(emailId, idempotencyKey, key.getId(), claimedAt, created);
+						} finally {
+							created.order.completeExceptionally(e);
+						}
+					}
+				});
+			}
+		} catch (RuntimeException e) {
+			placements.asMap().remove(emailId + "\n" + idempotencyKey, created);
+			created.order.completeExceptionally(e);
+		}
+
+		return created.order.thenApply(order -> order);
+	}
+
+	@Scheduled(fixedDelayString = "${project.order.idempotency.purge-interval-ms:3600000}")
+	public void purge() {
+		transactionTemplate.executeWithoutResult(
+				status -> idempotencyKeyRepo.deleteClaimedBefore(LocalDateTime.now().minusHours(ttlHours)));
+	}
+
+	/**
+	 * The row of the key, newly inserted or taken over from an abandoned placement with no
+	 * response, or holding the response of the order already placed. A row without response
+	 * carries the claimedAt of the lease now held.
+	 */
+	private OrderIdempotencyKey claim(String idempotencyKey, String emailId, Long cartId, String paymentMethod) {
+		LocalDateTime now = now();
+
+		try {
+			return transactionTemplate.execute(status -> idempotencyKeyRepo.saveAndFlush(
+					new OrderIdempotencyKey(null, emailId, idempotencyKey, cartId, paymentMethod, now, null)));
+		} catch (DataIntegrityViolationException e) {
+			// Claimed before: by an earlier request, or by one in flight on another instance
+		}
+
+		return transactionTemplate.execute(status -> {
+			OrderIdempotencyKey key = idempotencyKeyRepo.findByEmailAndIdempotencyKey(emailId, idempotencyKey)
+					.orElseThrow(() -> new OrderInFlightException("The order for this Idempotency-Key is being placed, please retry shortly"));
+
+			new Placement(key.getCartId(), key.getPaymentMethod()).checkSameRequest(cartId, paymentMethod);
+
+			if (key.getResponse() != null) {
+				return key;
+			}
+
+			boolean abandoned = key.getClaimedAt().isBefore(now.minusSeconds(leaseSeconds));
+
+			if (!abandoned || idempotencyKeyRepo.lease(key.getId(), key.getClaimedAt(), now) == 0) {
+				throw new OrderInFlightException("The order for this Idempotency-Key is being placed, please retry shortly");
+			}
+
+			return new OrderIdempotencyKey(key.getId(), emailId, idempotencyKey, cartId, paymentMethod, now, null);
+		});
+	}
+
+	// Lets the request be retried once its placement has failed, unless the key has changed hands
+	private void release(String emailId, String idempotencyKey, Long id, LocalDateTime claimedAt, Placement placement) {
+		try {
+			transactionTemplate.executeWithoutResult(status -> idempotencyKeyRepo.release(id, claimedAt));
+		} finally {
+			placements.asMap().remove(emailId + "\n" + idempotencyKey, placement);
+		}
+	}
+
+	// The column keeps microseconds, so a lease read back compares equal to the one written
+	private static LocalDateTime now() {
+		return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+	}
+
+	private String write(OrderDTO order) {
+		try {
+			return objectMapper.writeValueAsString(order);
+		} catch (JsonProcessingException e) {
+			throw new APIException("Could not store the order for its Idempotency-Key: " + e.getMessage());
+		}
+	}
+
+	private OrderDTO read(String response) {
+		try {
+			return objectMapper.readValue(response, OrderDTO.class);
+		} catch (JsonProcessingException e) {
+			throw new APIException("Could not read the order stored for its Idempotency-Key: " + e.getMessage());
+		}
+	}
+
+	private static class Placement {
+
+		private final Long cartId;
+		private final String paymentMethod;
+		private final CompletableFuture<OrderDTO> order = new CompletableFuture<>();
+
+		Placement(Long cartId, String paymentMethod) {
+			this.cartId = cartId;
+			this.paymentMethod = paymentMethod;
+		}
+
+		void checkSameRequest(Long cartId, String paymentMethod) {
+			if (!Objects.equals(this.cartId, cartId) || !Objects.equals(this.paymentMethod, paymentMethod)) {
+				throw new APIException("Idempotency-Key was already used for a different order request");
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.example.eshopee.services;
+
+import org.hibernate.dialect.sequence.SequenceSupport;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.OrderItem;
+import com.example.eshopee.repositories.OrderItemRepo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Moves order_items_seq past the ids already in order_items. {@link OrderItem} ids came from an
+ * IDENTITY column before they moved to the pooled sequence, so on an existing database the new
+ * sequence starts at 1 and the first checkout would hit a duplicate key.
+ *
+ * Runs while the context starts, before the web server takes requests, and never moves the
+ * sequence back. On a database without sequences, such as MySQL, Hibernate keeps the sequence
+ * in a one-row table, which is updated instead.
+ */
+@Component
+public class OrderItemSequenceSeed {
+
+	private static final String SEQUENCE = "order_items_seq";
+
+	// The generator's allocation size: a value fetched from the sequence hands out the ids up to it
+	private static final int ALLOCATION_SIZE = 50;
+
+	@Autowired
+	private OrderItemRepo orderItemRepo;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@PostConstruct
+	public void seed() {
+		transactionTemplate.executeWithoutResult(status -> {
+			Long maxId = orderItemRepo.findMaxId();
+
+			if (maxId == null) {
+				return;
+			}
+
+			long next = maxId + ALLOCATION_SIZE + 1;
+
+			SequenceSupport sequences = entityManager.getEntityManagerFactory()
+					.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect().getSequenceSupport();
+
+			if (sequences.supportsSequences()) {
+				// Takes one block of ids, which are skipped
+				Number value = (Number) entityManager
+						.createNativeQuery(sequences.getSequenceNextValString(SEQUENCE)).getSingleResult();
+
+				if (value.longValue() < next) {
+					entityManager.createNativeQuery("ALTER SEQUENCE " + SEQUENCE + " RESTART WITH " + next)
+							.executeUpdate();
+				}
+			} else {
+				entityManager.createNativeQuery("UPDATE " + SEQUENCE + " SET next_val = ?1 WHERE next_val < ?1")
+						.setParameter(1, next).executeUpdate();
+			}
+		});
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.example.eshopee.services;
+
+import java.util.List;
+
+import com.example.eshopee.entites.OrderItem;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@link OrderServiceImpl} for each order it accepts, whether placed directly or
+ * finalized from the order queue, with the order's items and their products.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderPlacedEvent {
+
+	private final List<OrderItem> orderItems;
+
+}
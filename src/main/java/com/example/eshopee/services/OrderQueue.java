@@ -0,0 +1,234 @@
+package com.example.eshopee.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.OrderQueueEntry;
+import com.example.eshopee.exceptions.OrderQueueFullException;
+import com.example.eshopee.repositories.OrderQueueRepo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Finalizes the orders placed asynchronously, on a bounded pool of workers.
+ *
+ * {@link OrderService#placeOrderAsync} saves a pending order and an order_queue row in the
+ * request's transaction. A dispatcher thread claims the oldest available rows in groups of
+ * batch-size, with one locked SELECT and one UPDATE that moves them a lease ahead, and hands
+ * each group to a free worker. The worker finalizes each order of the group on its cart's
+ * {@link CartExecutor}, in a transaction of its own, and waits for them all. The order thus
+ * never interleaves with the cart's own requests: it takes the lines the cart holds when its
+ * turn comes, and an add queued behind it lands in the emptied cart. Only the claim is grouped:
+ * the orders of a group run on the executors of different carts, which one transaction cannot
+ * span, so each order commits or fails alone and one bad order cannot hold back the rest of its
+ * group. An order that still fails after MAX_ATTEMPTS claims is marked failed, in a transaction
+ * of its own; if even that fails, the order is left to its lease like any other failure. When a
+ * worker dies, its rows come back once their lease runs out.
+ *
+ * Rows are claimed only while a worker is free, so the backlog waits in the table rather than
+ * in memory. Once max-pending orders are queued, new asynchronous orders are turned away with
+ * 503 and Retry-After.
+ */
+@Component
+public class OrderQueue {
+
+	private static final int MAX_ATTEMPTS = 3;
+
+	@Autowired
+	private OrderQueueRepo orderQueueRepo;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private CartExecutor cartExecutor;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Value("${project.order.queue.workers:4}")
+	private int workers;
+
+	@Value("${project.order.queue.batch-size:50}")
+	private int batchSize;
+
+	@Value("${project.order.queue.max-pending:10000}")
+	private long maxPending;
+
+	@Value("${project.order.queue.lease-seconds:60}")
+	private long leaseSeconds;
+
+	private ExecutorService workerPool;
+
+	private Semaphore freeWorkers;
+
+	private final ExecutorService dispatcher = Executors
+			.newSingleThreadExecutor(runnable -> new Thread(runnable, "order-dispatcher"));
+
+	private final AtomicBoolean dispatchRequested = new AtomicBoolean();
+
+	// Queued orders as last counted, plus those queued and minus those finalized since
+	private final AtomicLong pending = new AtomicLong();
+
+	@PostConstruct
+	void init() {
+		AtomicInteger count = new AtomicInteger();
+
+		workerPool = Executors.newFixedThreadPool(workers,
+				runnable -> new Thread(runnable, "order-worker-" + count.incrementAndGet()));
+		freeWorkers = new Semaphore(workers);
+	}
+
+	@PreDestroy
+	void shutdown() {
+		dispatcher.shutdownNow();
+		workerPool.shutdown();
+	}
+
+	/**
+	 * Turns the request away while too many orders are waiting to be finalized.
+	 */
+	public void checkCapacity() {
+		if (pending.get() >= maxPending) {
+			throw new OrderQueueFullException("Too many orders are waiting to be placed, please retry shortly");
+		}
+	}
+
+	public long pending() {
+		return pending.get();
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onOrderQueued(OrderQueuedEvent event) {
+		pending.incrementAndGet();
+
+		wakeUp();
+	}
+
+	/**
+	 * Picks up rows queued by other instances and rows whose lease ran out.
+	 */
+	@Scheduled(fixedDelayString = "${project.order.queue.poll-interval-ms:1000}")
+	public void poll() {
+		pending.set(orderQueueRepo.count());
+
+		wakeUp();
+	}
+
+	private void wakeUp() {
+		if (dispatchRequested.compareAndSet(false, true)) {
+			dispatcher.execute(this::dispatch);
+		}
+	}
+
+	private void dispatch() {
+		dispatchRequested.set(false);
+
+		while (freeWorkers.tryAcquire()) {
+			List<OrderQueueEntry> group;
+
+			try {
+				group = claim();
+			} catch (RuntimeException e) {
+				freeWorkers.release();
+				throw e;
+			}
+
+			if (group.isEmpty()) {
+				freeWorkers.release();
+				return;
+			}
+
+			workerPool.execute(() -> {
+				try {
+					finalizeGroup(group);
+				} finally {
+					freeWorkers.release();
+					wakeUp();
+				}
+			});
+		}
+	}
+
+	private List<OrderQueueEntry> claim() {
+		return transactionTemplate.execute(status -> {
+			LocalDateTime now = LocalDateTime.now();
+
+			List<OrderQueueEntry> entries = orderQueueRepo.findAvailable(now, PageRequest.of(0, batchSize));
+
+			if (!entries.isEmpty()) {
+				orderQueueRepo.claim(entries.stream().map(OrderQueueEntry::getOrderId).toList(),
+						now.plusSeconds(leaseSeconds));
+			}
+
+			return entries;
+		});
+	}
+
+	private void finalizeGroup(List<OrderQueueEntry> group) {
+		List<CompletableFuture<Void>> finalized = new ArrayList<>();
+
+		for (OrderQueueEntry entry : group) {
+			finalized.add(cartExecutor.submitBackground(entry.getCartId(), () -> {
+				finalizeOrder(entry.getOrderId());
+				return null;
+			}));
+		}
+
+		// Each order handles its own failure, so the group only waits for them all
+		CompletableFuture.allOf(finalized.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
+	}
+
+	private void finalizeOrder(Long orderId) {
+		try {
+			orderService.finalizeOrders(List.of(orderId));
+			pending.decrementAndGet();
+		} catch (RuntimeException e) {
+			recordFailure(orderId);
+		}
+	}
+
+	/**
+	 * Marks the order failed once its attempts are used up. Otherwise, or if that fails too, it is
+	 * claimed again once its lease runs out.
+	 */
+	private void recordFailure(Long orderId) {
+		try {
+			boolean failed = transactionTemplate.execute(status -> {
+				OrderQueueEntry entry = orderQueueRepo.findById(orderId).orElse(null);
+
+				if (entry == null || entry.getAttempts() < MAX_ATTEMPTS) {
+					return false;
+				}
+
+				orderService.failOrders(List.of(orderId));
+
+				return true;
+			});
+
+			if (failed) {
+				pending.decrementAndGet();
+			}
+		} catch (RuntimeException e) {
+			// The lease brings it back, and the next failure tries again
+		}
+	}
+
+}
@@ -0,0 +1,16 @@
+package com.example.eshopee.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@link OrderService#placeOrderAsync} for each pending order it queues, so
+ * {@link OrderQueue} can wake its workers once the order commits.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderQueuedEvent {
+
+	private final Long orderId;
+
+}
@@ -4,16 +4,27 @@ import java.util.List;
 
 import com.example.eshopee.payloads.OrderDTO;
 import com.example.eshopee.payloads.OrderResponse;
+import com.example.eshopee.payloads.OrderStatusDTO;
 
 public interface OrderService {
 	
 	OrderDTO placeOrder(String emailId, Long cartId, String paymentMethod);
+
+	OrderDTO placeOrderAsync(String emailId, Long cartId, String paymentMethod);
+
+	void finalizeOrders(List<Long> orderIds);
+
+	void failOrders(List<Long> orderIds);
+
+	OrderStatusDTO getOrderStatus(String emailId, Long orderId);
 	
 	OrderDTO getOrder(String emailId, Long orderId);
 	
-	List<OrderDTO> getOrdersByUser(String emailId);
+	OrderResponse getOrdersByUser(String emailId, String after, Integer pageSize, boolean summary);
 	
 	OrderResponse getAllOrders(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder);
 	
+	OrderResponse getAllOrdersAfter(String after, Integer pageSize, String sortBy, String sortOrder);
+	
 	OrderDTO updateOrderStatus(String emailId, Long orderId, String orderStatus);
 }
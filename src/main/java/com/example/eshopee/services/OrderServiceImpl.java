@@ -1,42 +1,59 @@
 package com.example.eshopee.services;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.hibernate.Session;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
 import com.example.eshopee.entites.Cart;
 import com.example.eshopee.entites.CartItem;
+import com.example.eshopee.config.AppConstants;
 import com.example.eshopee.entites.Order;
 import com.example.eshopee.entites.OrderItem;
+import com.example.eshopee.entites.OrderQueueEntry;
+import com.example.eshopee.entites.OrderSummary;
 import com.example.eshopee.entites.Payment;
-import com.example.eshopee.entites.Product;
 import com.example.eshopee.exceptions.APIException;
 import com.example.eshopee.exceptions.ResourceNotFoundException;
 import com.example.eshopee.payloads.OrderDTO;
 import com.example.eshopee.payloads.OrderItemDTO;
 import com.example.eshopee.payloads.OrderResponse;
+import com.example.eshopee.payloads.OrderStatusDTO;
 import com.example.eshopee.repositories.CartItemRepo;
 import com.example.eshopee.repositories.CartRepo;
+import com.example.eshopee.repositories.KeysetSpecification;
 import com.example.eshopee.repositories.OrderItemRepo;
+import com.example.eshopee.repositories.OrderQueueRepo;
 import com.example.eshopee.repositories.OrderRepo;
+import com.example.eshopee.repositories.OrderSummaryRepo;
 import com.example.eshopee.repositories.PaymentRepo;
 import com.example.eshopee.repositories.UserRepo;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 
 @Transactional
 @Service
 public class OrderServiceImpl implements OrderService {
 
+	// Matches the allocation size of the order item id sequence
+	private static final int ORDER_ITEM_BATCH_SIZE = 50;
+
 	@Autowired
 	public UserRepo userRepo;
 
@@ -61,9 +78,27 @@ public class OrderServiceImpl implements OrderService {
 	@Autowired
 	public CartService cartService;
 
+	@Autowired
+	private CartStore cartStore;
+
+	@Autowired
+	private OrderQueueRepo orderQueueRepo;
+
+	@Autowired
+	private OrderSummaryRepo orderSummaryRepo;
+
+	@Autowired
+	private OrderSummaryProjection orderSummaryProjection;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
 	@Autowired
 	public ModelMapper modelMapper;
 
+	@PersistenceContext
+	private EntityManager entityManager;
+
 	@Override
 	public OrderDTO placeOrder(String emailId, Long cartId, String paymentMethod) {
 
@@ -73,20 +108,167 @@ public class OrderServiceImpl implements OrderService {
 			throw new ResourceNotFoundException("Cart", "cartId", cartId);
 		}
 
+		cartStore.drain(cartId);
+
 		Order order = new Order();
 
 		order.setEmail(emailId);
 		order.setOrderDate(LocalDate.now());
 
-		order.setTotalAmount(cart.getTotalPrice());
-		order.setOrderStatus("Order Accepted !");
+		List<OrderItem> orderItems = checkout(order, cart, paymentMethod);
+
+		OrderDTO orderDTO = modelMapper.map(order, OrderDTO.class);
+		
+		orderItems.forEach(item -> orderDTO.getOrderItems().add(modelMapper.map(item, OrderItemDTO.class)));
+
+		return orderDTO;
+	}
+
+	@Override
+	public OrderDTO placeOrderAsync(String emailId, Long cartId, String paymentMethod) {
+
+		Cart cart = cartRepo.findCartByEmailAndCartId(emailId, cartId);
+
+		if (cart == null) {
+			throw new ResourceNotFoundException("Cart", "cartId", cartId);
+		}
+
+		double totalAmount;
+		boolean empty;
+
+		if (cartStore.handles(cartId)) {
+			CartStore.Lines lines = cartStore.read(cartId);
+
+			totalAmount = lines.totalPrice();
+			empty = lines.lines().isEmpty();
+		} else {
+			totalAmount = Pricing.total(cart.getCartItems(), CartItem::getProductPrice, CartItem::getQuantity);
+			empty = cart.getCartItems().isEmpty();
+		}
+
+		if (empty) {
+			throw new APIException("Cart is empty");
+		}
+
+		if (paymentMethod == null || paymentMethod.length() < 4) {
+			throw new APIException("Payment method must contain atleast 4 characters");
+		}
+
+		Order order = new Order();
+
+		order.setEmail(emailId);
+		order.setOrderDate(LocalDate.now());
+		order.setTotalAmount(totalAmount);
+		order.setOrderStatus(AppConstants.ORDER_PENDING);
+
+		Order savedOrder = orderRepo.save(order);
+
+		LocalDateTime now = LocalDateTime.now();
+
+		orderQueueRepo.save(new OrderQueueEntry(savedOrder.getOrderId(), cartId, emailId, paymentMethod, now, now, 0));
+
+		orderSummaryRepo.save(orderSummaryProjection.summarize(savedOrder, List.of(), true));
+
+		eventPublisher.publishEvent(new OrderQueuedEvent(savedOrder.getOrderId()));
+
+		return modelMapper.map(savedOrder, OrderDTO.class);
+		/*
+		- OrderDTO placeOrderAsync(String emailId, Long cartId, String paymentMethod)
+			i. Fetch the user's cart and check that it has lines and the payment method is valid.
+			ii. Save the order as pending, with the cart's current total.
+			iii. Queue it in order_queue, and list it with no items yet; the order workers are woken once this transaction commits.
+			iv. Return the pending order, without items or payment yet.
+		 */
+	}
+
+	@Override
+	public void finalizeOrders(List<Long> orderIds) {
+		List<Long> failed = new ArrayList<>();
+
+		for (OrderQueueEntry entry : orderQueueRepo.findAllById(orderIds)) {
+			Order order = orderRepo.findById(entry.getOrderId()).orElse(null);
+
+			if (order == null || !AppConstants.ORDER_PENDING.equals(order.getOrderStatus())) {
+				continue;
+			}
+
+			Cart cart = cartRepo.findCartByEmailAndCartId(entry.getEmail(), entry.getCartId());
+
+			if (cart != null) {
+				cartStore.drain(cart.getCartId());
+			}
+
+			if (cart == null || cart.getCartItems().isEmpty()) {
+				order.setOrderStatus(AppConstants.ORDER_FAILED);
+				failed.add(order.getOrderId());
+				continue;
+			}
+
+			checkout(order, cart, entry.getPaymentMethod());
+		}
+
+		if (!failed.isEmpty()) {
+			orderSummaryRepo.updateOrderStatus(failed, AppConstants.ORDER_FAILED);
+		}
+
+		orderQueueRepo.deleteByOrderIdIn(orderIds);
+	}
+
+	@Override
+	public void failOrders(List<Long> orderIds) {
+		List<Long> failed = new ArrayList<>();
+
+		orderRepo.findAllById(orderIds).forEach(order -> {
+			if (AppConstants.ORDER_PENDING.equals(order.getOrderStatus())) {
+				order.setOrderStatus(AppConstants.ORDER_FAILED);
+				failed.add(order.getOrderId());
+			}
+		});
+
+		if (!failed.isEmpty()) {
+			orderSummaryRepo.updateOrderStatus(failed, AppConstants.ORDER_FAILED);
+		}
+
+		orderQueueRepo.deleteByOrderIdIn(orderIds);
+	}
+
+	@Override
+	public OrderStatusDTO getOrderStatus(String emailId, Long orderId) {
+
+		Order order = orderRepo.findOrderByEmailAndOrderId(emailId, orderId);
+
+		if (order == null) {
+			throw new ResourceNotFoundException("Order", "orderId", orderId);
+		}
+
+		Long ordersAhead = AppConstants.ORDER_PENDING.equals(order.getOrderStatus())
+				? orderQueueRepo.countAhead(orderId)
+				: null;
+
+		return new OrderStatusDTO(order.getOrderId(), order.getOrderStatus(), order.getTotalAmount(), ordersAhead);
+	}
+
+	/**
+	 * Pays for the cart's lines and moves them into the order, emptying the cart. Runs the same
+	 * statements however many lines the cart holds, up to ORDER_ITEM_BATCH_SIZE: the lines are
+	 * read once, the order items are inserted in one batch, and the lines read are taken out of
+	 * the cart with one UPDATE and one DELETE. The order's summary is written alongside. The
+	 * persistence context is cleared afterwards.
+	 */
+	private List<OrderItem> checkout(Order order, Cart cart, String paymentMethod) {
+		// A queued order was listed while pending, so its summary is updated rather than inserted
+		boolean queued = AppConstants.ORDER_PENDING.equals(order.getOrderStatus());
+
+		order.setTotalAmount(Pricing.total(cart.getCartItems(), CartItem::getProductPrice, CartItem::getQuantity));
+		order.setOrderStatus(AppConstants.ORDER_ACCEPTED);
 
 		Payment payment = new Payment();
-		payment.setOrder(order);
 		payment.setPaymentMethod(paymentMethod);
 
+		// Saved before it points at the order, so the order is inserted once, with its payment_id
 		payment = paymentRepo.save(payment);
 
+		payment.setOrder(order);
 		order.setPayment(payment);
 
 		Order savedOrder = orderRepo.save(order);
@@ -111,37 +293,61 @@ public class OrderServiceImpl implements OrderService {
 			orderItems.add(orderItem);
 		}
 
+		// Order item ids come from a pooled sequence, so the inserts go out as JDBC batches
+		entityManager.unwrap(Session.class).setJdbcBatchSize(ORDER_ITEM_BATCH_SIZE);
+
 		orderItems = orderItemRepo.saveAll(orderItems);
 
-		cart.getCartItems().forEach(item -> {
-			int quantity = item.getQuantity();
+		orderSummaryRepo.save(orderSummaryProjection.summarize(savedOrder, orderItems, !queued));
 
-			Product product = item.getProduct();
+		eventPublisher.publishEvent(new OrderPlacedEvent(orderItems));
 
-			cartService.deleteProductFromCart(cartId, item.getProduct().getProductId());
+		// The stock the cart reserved now belongs to the order, so the lines are dropped without releasing it.
+		// Only the lines read above go: one added meanwhile stays in the cart, with its reservation.
+		List<Long> cartItemIds = cartItems.stream().map(CartItem::getCartItemId).toList();
 
-			product.setQuantity(product.getQuantity() - quantity);
-		});
+		cartRepo.deductItemsFromCarts(cartItemIds);
+		cartItemRepo.deleteByIdIn(cartItemIds);
 
-		OrderDTO orderDTO = modelMapper.map(savedOrder, OrderDTO.class);
-		
-		orderItems.forEach(item -> orderDTO.getOrderItems().add(modelMapper.map(item, OrderItemDTO.class)));
+		entityManager.clear();
 
-		return orderDTO;
+		return orderItems;
 	}
 
 	@Override
-	public List<OrderDTO> getOrdersByUser(String emailId) {
-		List<Order> orders = orderRepo.findAllByEmail(emailId);
+	public OrderResponse getOrdersByUser(String emailId, String after, Integer pageSize, boolean summary) {
+
+		Sort sort = KeysetCursor.sort("orderDate", "desc", "orderId");
+
+		Specification<OrderSummary> byEmail = (root, query, cb) -> cb.equal(root.get("email"), emailId);
+
+		Specification<OrderSummary> afterCursor = KeysetSpecification.after(KeysetCursor.position(after, sort), sort);
 
-		List<OrderDTO> orderDTOs = orders.stream().map(order -> modelMapper.map(order, OrderDTO.class))
+		Window<OrderSummary> windowOrders = orderSummaryRepo.findBy(byEmail.and(afterCursor),
+				q -> q.sortBy(sort).limit(pageSize).scroll(ScrollPosition.keyset()));
+
+		List<OrderDTO> orderDTOs = windowOrders.stream()
+				.map(orderSummary -> orderSummaryProjection.toOrderDTO(orderSummary, !summary))
 				.collect(Collectors.toList());
 
 		if (orderDTOs.isEmpty()) {
 			throw new APIException("No orders placed yet by the user with email: " + emailId);
 		}
 
-		return orderDTOs;
+		OrderResponse orderResponse = new OrderResponse();
+
+		orderResponse.setContent(orderDTOs);
+		orderResponse.setPageSize(pageSize);
+		orderResponse.setLastPage(!windowOrders.hasNext());
+		orderResponse.setNextCursor(KeysetCursor.next(windowOrders, sort));
+
+		return orderResponse;
+		/*
+		- OrderResponse getOrdersByUser(String emailId, String after, Integer pageSize, boolean summary)
+			i. Scroll the user's order summaries newest first from the cursor, on the (email, orderDate) index.
+			ii. Build each OrderDTO from its summary row, with the item snapshot unless only a summary is wanted.
+			iii. Return the page with the cursor of the next one.
+		 */
 	}
 
 	@Override
@@ -164,11 +370,11 @@ public class OrderServiceImpl implements OrderService {
 
 		Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
 
-		Page<Order> pageOrders = orderRepo.findAll(pageDetails);
+		Page<OrderSummary> pageOrders = orderSummaryRepo.findAll(pageDetails);
 
-		List<Order> orders = pageOrders.getContent();
+		List<OrderSummary> orders = pageOrders.getContent();
 
-		List<OrderDTO> orderDTOs = orders.stream().map(order -> modelMapper.map(order, OrderDTO.class))
+		List<OrderDTO> orderDTOs = orders.stream().map(order -> orderSummaryProjection.toOrderDTO(order, true))
 				.collect(Collectors.toList());
 		
 		if (orderDTOs.isEmpty()) {
@@ -187,6 +393,33 @@ public class OrderServiceImpl implements OrderService {
 		return orderResponse;
 	}
 
+	@Override
+	public OrderResponse getAllOrdersAfter(String after, Integer pageSize, String sortBy, String sortOrder) {
+
+		Sort sort = KeysetCursor.sort(sortBy, sortOrder, "orderId");
+
+		Specification<OrderSummary> afterCursor = KeysetSpecification.after(KeysetCursor.position(after, sort), sort);
+
+		Window<OrderSummary> windowOrders = orderSummaryRepo.findBy(afterCursor,
+				q -> q.sortBy(sort).limit(pageSize).scroll(ScrollPosition.keyset()));
+
+		List<OrderDTO> orderDTOs = windowOrders.stream().map(order -> orderSummaryProjection.toOrderDTO(order, true))
+				.collect(Collectors.toList());
+
+		if (orderDTOs.isEmpty()) {
+			throw new APIException("No orders placed yet by the users");
+		}
+
+		OrderResponse orderResponse = new OrderResponse();
+
+		orderResponse.setContent(orderDTOs);
+		orderResponse.setPageSize(pageSize);
+		orderResponse.setLastPage(!windowOrders.hasNext());
+		orderResponse.setNextCursor(KeysetCursor.next(windowOrders, sort));
+
+		return orderResponse;
+	}
+
 	@Override
 		public OrderDTO updateOrderStatus(String emailId, Long orderId, String orderStatus) {
 
@@ -198,6 +431,8 @@ public class OrderServiceImpl implements OrderService {
 
 		order.setOrderStatus(orderStatus);
 
+		orderSummaryRepo.findById(orderId).ifPresent(orderSummary -> orderSummary.setOrderStatus(orderStatus));
+
 		return modelMapper.map(order, OrderDTO.class);
 	}
 
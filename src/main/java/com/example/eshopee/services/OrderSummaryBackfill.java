@@ -0,0 +1,80 @@
+package com.example.eshopee.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Order;
+import com.example.eshopee.entites.OrderItem;
+import com.example.eshopee.entites.OrderSummary;
+import com.example.eshopee.repositories.OrderItemRepo;
+import com.example.eshopee.repositories.OrderRepo;
+import com.example.eshopee.repositories.OrderSummaryRepo;
+
+/**
+ * Writes the {@link OrderSummary} of orders placed before the table existed, one batch per
+ * transaction, each batch loading its orders and their items with one query apiece.
+ */
+@Component
+public class OrderSummaryBackfill {
+
+	private static final int BATCH_SIZE = 500;
+
+	@Autowired
+	private OrderRepo orderRepo;
+
+	@Autowired
+	private OrderItemRepo orderItemRepo;
+
+	@Autowired
+	private OrderSummaryRepo orderSummaryRepo;
+
+	@Autowired
+	private OrderSummaryProjection orderSummaryProjection;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void backfill() {
+		Long lastId = 0L;
+		List<Order> batch;
+
+		do {
+			Long after = lastId;
+
+			batch = transactionTemplate.execute(status -> {
+				List<Order> orders = orderRepo.findUnsummarizedAfter(after, PageRequest.of(0, BATCH_SIZE));
+
+				if (orders.isEmpty()) {
+					return orders;
+				}
+
+				Map<Long, List<OrderItem>> orderItems = new HashMap<>();
+
+				orderItemRepo.findAllByOrderIdIn(orders.stream().map(Order::getOrderId).collect(Collectors.toList()))
+						.forEach(item -> orderItems.computeIfAbsent(item.getOrder().getOrderId(), orderId -> new ArrayList<>())
+								.add(item));
+
+				orders.forEach(order -> orderSummaryRepo.save(orderSummaryProjection.summarize(order,
+						orderItems.getOrDefault(order.getOrderId(), List.of()), true)));
+
+				return orders;
+			});
+
+			if (!batch.isEmpty()) {
+				lastId = batch.get(batch.size() - 1).getOrderId();
+			}
+		} while (batch.size() == BATCH_SIZE);
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.example.eshopee.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.eshopee.entites.Order;
+import com.example.eshopee.entites.OrderItem;
+import com.example.eshopee.entites.OrderSummary;
+import com.example.eshopee.exceptions.APIException;
+import com.example.eshopee.payloads.OrderDTO;
+import com.example.eshopee.payloads.OrderItemDTO;
+import com.example.eshopee.payloads.OrderItemSnapshot;
+import com.example.eshopee.payloads.PaymentDTO;
+import com.example.eshopee.payloads.ProductDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Builds the {@link OrderSummary} of an order when it is written, and the OrderDTO of the
+ * listings back from it.
+ *
+ * The items are kept as a compact JSON snapshot: product id and name, quantity, discount and
+ * price paid. Listed orders therefore carry only those product fields; the full product is on
+ * the single order endpoint.
+ */
+@Component
+public class OrderSummaryProjection {
+
+	private static final TypeReference<List<OrderItemSnapshot>> SNAPSHOT = new TypeReference<>() {
+	};
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	/**
+	 * The summary of the order and its items. created tells whether the order has no summary
+	 * yet, so that saving it inserts straight away.
+	 */
+	public OrderSummary summarize(Order order, List<OrderItem> orderItems, boolean created) {
+		List<OrderItemSnapshot> snapshot = new ArrayList<>(orderItems.size());
+
+		for (OrderItem item : orderItems) {
+			snapshot.add(new OrderItemSnapshot(item.getOrderItemId(), item.getProduct().getProductId(),
+					item.getProduct().getProductName(), item.getQuantity(), item.getDiscount(),
+					item.getOrderedProductPrice()));
+		}
+
+		try {
+			return new OrderSummary(order.getOrderId(), order.getEmail(), order.getOrderDate(), order.getOrderStatus(),
+					order.getTotalAmount(), orderItems.size(),
+					order.getPayment() == null ? null : order.getPayment().getPaymentId(),
+					order.getPayment() == null ? null : order.getPayment().getPaymentMethod(),
+					objectMapper.writeValueAsString(snapshot), created);
+		} catch (JsonProcessingException e) {
+			throw new APIException("Could not summarize order " + order.getOrderId() + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * The listed OrderDTO, with the item snapshot or, for a summary listing, no items.
+	 */
+	public OrderDTO toOrderDTO(OrderSummary summary, boolean withItems) {
+		List<OrderItemDTO> orderItems = new ArrayList<>();
+
+		if (withItems && summary.getItems() != null) {
+			try {
+				for (OrderItemSnapshot item : objectMapper.readValue(summary.getItems(), SNAPSHOT)) {
+					ProductDTO product = new ProductDTO();
+					product.setProductId(item.getProductId());
+					product.setProductName(item.getProductName());
+
+					orderItems.add(new OrderItemDTO(item.getOrderItemId(), product, item.getQuantity(), item.getDiscount(),
+							item.getOrderedProductPrice()));
+				}
+			} catch (JsonProcessingException e) {
+				throw new APIException("Could not read the summary of order " + summary.getOrderId() + ": " + e.getMessage());
+			}
+		}
+
+		PaymentDTO payment = summary.getPaymentId() == null ? null
+				: new PaymentDTO(summary.getPaymentId(), summary.getPaymentMethod());
+
+		return new OrderDTO(summary.getOrderId(), summary.getEmail(), orderItems, summary.getOrderDate(), payment,
+				summary.getTotalAmount(), summary.getOrderStatus());
+	}
+
+}
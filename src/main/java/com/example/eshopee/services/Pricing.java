@@ -0,0 +1,76 @@
+package com.example.eshopee.services;
+
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Price arithmetic in long minor units (cents), so cart and order totals do not drift the way
+ * a running double does after many adds and removes.
+ *
+ * Prices stay doubles on the entities and in the API. Each calculation converts them to minor
+ * units, rounding half up, does the arithmetic exactly in longs, and converts back once. A
+ * price with at most two decimals is within far less than half a cent of its double, so the
+ * conversion recovers it exactly. Discounts are percentages taken to two decimals. Nothing
+ * here allocates, and overflow throws instead of wrapping.
+ */
+public final class Pricing {
+
+	public static final long MINOR_PER_UNIT = 100;
+
+	// Discounts in hundredths of a percent
+	private static final long BASIS_POINTS = 10_000;
+
+	private Pricing() {
+	}
+
+	public static long toMinor(double amount) {
+		return (long) Math.floor(amount * MINOR_PER_UNIT + 0.5);
+	}
+
+	public static double toAmount(long minor) {
+		return (double) minor / MINOR_PER_UNIT;
+	}
+
+	/**
+	 * The price in minor units less discount percent, with the discount rounded half up to the
+	 * minor unit.
+	 */
+	public static long specialPriceMinor(long price, double discount) {
+		long discountMinor = divideHalfUp(Math.multiplyExact(price, Math.round(discount * 100)), BASIS_POINTS);
+
+		return price - discountMinor;
+	}
+
+	public static double specialPrice(double price, double discount) {
+		return toAmount(specialPriceMinor(toMinor(price), discount));
+	}
+
+	public static long lineTotal(long unitPrice, int quantity) {
+		return Math.multiplyExact(unitPrice, quantity);
+	}
+
+	/**
+	 * The total with quantity units at unitPrice added, or taken off for a negative quantity.
+	 */
+	public static double addLine(double total, double unitPrice, int quantity) {
+		return toAmount(Math.addExact(toMinor(total), lineTotal(toMinor(unitPrice), quantity)));
+	}
+
+	/**
+	 * The total of the lines, summed in one pass.
+	 */
+	public static <T> double total(Iterable<T> lines, ToDoubleFunction<T> unitPrice, ToIntFunction<T> quantity) {
+		long total = 0;
+
+		for (T line : lines) {
+			total = Math.addExact(total, lineTotal(toMinor(unitPrice.applyAsDouble(line)), quantity.applyAsInt(line)));
+		}
+
+		return toAmount(total);
+	}
+
+	private static long divideHalfUp(long dividend, long divisor) {
+		return Math.floorDiv(dividend + divisor / 2, divisor);
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.example.eshopee.services;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.eshopee.exceptions.ResourceNotFoundException;
+import com.example.eshopee.payloads.CacheStatsDTO;
+import com.example.eshopee.payloads.ProductAttributes;
+import com.example.eshopee.repositories.ProductRepo;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Size-bounded read-through cache of {@link ProductAttributes} for the cart hot paths.
+ *
+ * Caffeine evicts with W-TinyLFU, so a burst of one-off lookups cannot push the popular
+ * products out. Entries are invalidated on every product write.
+ */
+@Component
+public class ProductCache {
+
+	@Autowired
+	private ProductRepo productRepo;
+
+	@Value("${project.cache.product.max-size:10000}")
+	private long maximumSize;
+
+	private LoadingCache<Long, ProductAttributes> cache;
+
+	@PostConstruct
+	void init() {
+		cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.recordStats()
+				.build(productId -> productRepo.findAttributesById(productId).orElse(null));
+	}
+
+	public ProductAttributes get(Long productId) {
+		ProductAttributes product = cache.get(productId);
+
+		if (product == null) {
+			throw new ResourceNotFoundException("Product", "productId", productId);
+		}
+
+		return product;
+	}
+
+	/**
+	 * The attributes of every given product, loading the ones not cached with one IN query.
+	 */
+	public Map<Long, ProductAttributes> getAll(Collection<Long> productIds) {
+		Map<Long, ProductAttributes> products = cache.getAll(productIds, missing -> productRepo
+				.findAttributesByIdIn(List.copyOf(missing)).stream()
+				.collect(Collectors.toMap(ProductAttributes::getProductId, Function.identity())));
+
+		for (Long productId : productIds) {
+			if (!products.containsKey(productId)) {
+				throw new ResourceNotFoundException("Product", "productId", productId);
+			}
+		}
+
+		return products;
+	}
+
+	/**
+	 * Invalidates as soon as the write happens, so the rest of the writing transaction (e.g.
+	 * repricing carts) reads the new values.
+	 */
+	@EventListener
+	public void onProductChanged(ProductChangedEvent event) {
+		cache.invalidate(event.getProduct().getProductId());
+	}
+
+	/**
+	 * Invalidates again once the transaction is over, dropping anything loaded in between:
+	 * uncommitted values on rollback, or values other transactions read before the commit.
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION)
+	public void afterProductChangeCompleted(ProductChangedEvent event) {
+		cache.invalidate(event.getProduct().getProductId());
+	}
+
+	public CacheStatsDTO stats() {
+		CacheStats stats = cache.stats();
+
+		return new CacheStatsDTO("products", cache.estimatedSize(), maximumSize, stats.hitCount(),
+				stats.missCount(), stats.hitRate(), stats.evictionCount());
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.example.eshopee.services;
+
+import com.example.eshopee.entites.Product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@link ProductServiceImpl} whenever a product is saved or deleted.
+ * In-memory read structures listen for it after the surrounding transaction commits.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+
+	public enum Type {
+		SAVED, DELETED
+	}
+
+	private final Type type;
+	private final Product product;
+
+	public static ProductChangedEvent saved(Product product) {
+		return new ProductChangedEvent(Type.SAVED, product);
+	}
+
+	public static ProductChangedEvent deleted(Product product) {
+		return new ProductChangedEvent(Type.DELETED, product);
+	}
+
+	public boolean isDeleted() {
+		return type == Type.DELETED;
+	}
+
+}
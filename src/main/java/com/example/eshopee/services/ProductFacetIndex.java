@@ -0,0 +1,715 @@
+package com.example.eshopee.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.exceptions.APIException;
+import com.example.eshopee.payloads.FacetCountDTO;
+import com.example.eshopee.payloads.FacetsDTO;
+import com.example.eshopee.payloads.ProductFilter;
+import com.example.eshopee.repositories.ProductRepo;
+
+/**
+ * Immutable columnar snapshot of the catalog for filtered listings and facet counts.
+ *
+ * Products are held as primitive arrays ordered by productId, plus one bitset per category,
+ * price band, discount band and for in-stock, so a filter is a bitset intersection and a
+ * facet count is the cardinality of one. Writes build a new snapshot and swap it in, so
+ * readers never lock. A stock refresh or an update of one product shares every bitset and sort
+ * order it does not move with the snapshot it replaces; only adds and deletes, which shift the
+ * rows, rebuild them.
+ *
+ * Prices are filtered and banded on specialPrice, the price a shopper pays; a price range is
+ * found by binary search over the rows in specialPrice order. Quantity follows the product
+ * writes and the {@link StockChangedEvent}s of stock moved by carts, sweeps and hot stock
+ * flushes. Those are collected and patched into a new snapshot once per stock-refresh
+ * interval, so in-stock lags live stock by up to that interval; the cart still checks live
+ * stock.
+ */
+@Component
+public class ProductFacetIndex {
+
+	private static final int REBUILD_BATCH_SIZE = 1000;
+
+	// Lower bounds of the bands; the last band is open-ended
+	private static final double[] PRICE_BANDS = { 0, 25, 50, 100, 250, 500 };
+	private static final double[] DISCOUNT_BANDS = { 0, 10, 25, 50 };
+
+	private static final List<String> SORTABLE = List.of("productId", "price", "specialPrice", "discount",
+			"quantity");
+
+	@Autowired
+	private ProductRepo productRepo;
+
+	private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+	// Products whose quantity moved since the last refreshStock()
+	private final Set<Long> stockChanged = ConcurrentHashMap.newKeySet();
+
+	public record FacetPage(List<Long> productIds, long totalElements, FacetsDTO facets) {
+	}
+
+	public record IdPage(List<Long> productIds, long totalElements) {
+	}
+
+	private record Row(long productId, double price, double specialPrice, double discount, int quantity,
+			long categoryId) {
+
+		static Row of(Product product) {
+			return new Row(product.getProductId(), product.getPrice(), product.getSpecialPrice(),
+					product.getDiscount(), product.getQuantity() == null ? 0 : product.getQuantity(),
+					product.getCategory() == null ? 0 : product.getCategory().getCategoryId());
+		}
+	}
+
+	public static boolean isSortable(String sortBy) {
+		return SORTABLE.contains(sortBy);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void rebuild() {
+		Map<Long, Row> rows = new LinkedHashMap<>();
+
+		Long lastId = 0L;
+		List<Object[]> batch;
+
+		do {
+			batch = productRepo.findFacetRowsAfter(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+
+			for (Object[] row : batch) {
+				lastId = (Long) row[0];
+				rows.put(lastId, new Row(lastId, (Double) row[1], (Double) row[2], (Double) row[3],
+						row[4] == null ? 0 : (Integer) row[4], row[5] == null ? 0 : (Long) row[5]));
+			}
+		} while (batch.size() == REBUILD_BATCH_SIZE);
+
+		snapshot = Snapshot.EMPTY.with(rows, Set.of());
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public synchronized void onProductChanged(ProductChangedEvent event) {
+		Product product = event.getProduct();
+
+		snapshot = event.isDeleted() ? snapshot.with(Map.of(), Set.of(product.getProductId()))
+				: snapshot.with(Row.of(product));
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public synchronized void onProductsImported(ProductsImportedEvent event) {
+		Map<Long, Row> rows = new HashMap<>();
+
+		event.getProducts().forEach(product -> rows.put(product.getProductId(), Row.of(product)));
+
+		snapshot = snapshot.with(rows, Set.of());
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onStockChanged(StockChangedEvent event) {
+		stockChanged.addAll(event.getProductIds());
+	}
+
+	/**
+	 * Reads the quantity of the products whose stock moved and swaps in a snapshot with them.
+	 */
+	@Scheduled(fixedDelayString = "${project.product.facets.stock-refresh-ms:1000}")
+	public synchronized void refreshStock() {
+		Map<Long, Integer> quantities = new HashMap<>();
+		List<Long> batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+		Iterator<Long> changed = stockChanged.iterator();
+
+		while (changed.hasNext()) {
+			batch.add(changed.next());
+			changed.remove();
+
+			if (batch.size() == REBUILD_BATCH_SIZE || !changed.hasNext()) {
+				for (Object[] row : productRepo.findQuantitiesByIdIn(batch)) {
+					quantities.put((Long) row[0], row[1] == null ? 0 : (Integer) row[1]);
+				}
+
+				batch.clear();
+			}
+		}
+
+		if (!quantities.isEmpty()) {
+			snapshot = snapshot.withQuantities(quantities);
+		}
+	}
+
+	/**
+	 * Returns one page of the ids of the products matching the filter, plus facet counts.
+	 */
+	public FacetPage query(ProductFilter filter, String sortBy, boolean ascending, int pageNumber, int pageSize) {
+		checkSortable(sortBy);
+
+		Snapshot current = snapshot;
+		Filters filters = current.filters(filter);
+		BitSet matches = filters.matches(current.size());
+
+		List<Long> productIds = current.page(matches, sortBy, ascending, (long) pageNumber * pageSize, pageSize);
+
+		return new FacetPage(productIds, matches.cardinality(), current.facets(filters));
+	}
+
+	/**
+	 * Sorts the given products, e.g. the matches of a search, on the snapshot's columns and
+	 * returns one page of them. Products not in the snapshot are left out.
+	 */
+	public IdPage page(long[] productIds, String sortBy, boolean ascending, int pageNumber, int pageSize) {
+		checkSortable(sortBy);
+
+		Snapshot current = snapshot;
+		BitSet rows = current.rowsOf(productIds);
+
+		return new IdPage(current.page(rows, sortBy, ascending, (long) pageNumber * pageSize, pageSize),
+				rows.cardinality());
+	}
+
+	/**
+	 * Facet counts alone, for listings paged elsewhere.
+	 */
+	public FacetsDTO facets(ProductFilter filter) {
+		Snapshot current = snapshot;
+
+		return current.facets(current.filters(filter));
+	}
+
+	private static void checkSortable(String sortBy) {
+		if (!isSortable(sortBy)) {
+			throw new APIException("Filtered or searched products can only be sorted by " + String.join(", ", SORTABLE));
+		}
+	}
+
+	/**
+	 * The bitset of each filter dimension, null where the dimension is not filtered on. A facet
+	 * is counted against every filter but its own, so its other values stay selectable.
+	 */
+	private record Filters(BitSet category, BitSet price, BitSet discount, BitSet inStock) {
+
+		BitSet matches(int size) {
+			return intersect(size, category, price, discount, inStock);
+		}
+	}
+
+	private static BitSet intersect(int size, BitSet... sets) {
+		BitSet result = new BitSet(size);
+		result.set(0, size);
+
+		for (BitSet set : sets) {
+			if (set != null) {
+				result.and(set);
+			}
+		}
+
+		return result;
+	}
+
+	private static long countBoth(BitSet a, BitSet b) {
+		BitSet both = (BitSet) a.clone();
+		both.and(b);
+
+		return both.cardinality();
+	}
+
+	private static int band(double[] lowerBounds, double value) {
+		int band = 0;
+
+		while (band + 1 < lowerBounds.length && value >= lowerBounds[band + 1]) {
+			band++;
+		}
+
+		return band;
+	}
+
+	private static List<String> bandLabels(double[] lowerBounds) {
+		List<String> labels = new ArrayList<>(lowerBounds.length);
+
+		for (int i = 0; i < lowerBounds.length; i++) {
+			String from = String.valueOf((long) lowerBounds[i]);
+
+			labels.add(i + 1 < lowerBounds.length ? from + "-" + (long) lowerBounds[i + 1] : from + "+");
+		}
+
+		return labels;
+	}
+
+	private static final class Snapshot {
+
+		static final Snapshot EMPTY = build(new long[0], new double[0], new double[0], new double[0], new int[0],
+				new long[0]);
+
+		private static final List<String> PRICE_LABELS = bandLabels(PRICE_BANDS);
+		private static final List<String> DISCOUNT_LABELS = bandLabels(DISCOUNT_BANDS);
+
+		private final long[] productIds;
+		private final double[] price;
+		private final double[] specialPrice;
+		private final double[] discount;
+		private final int[] quantity;
+		private final long[] categoryIds;
+
+		// Shared with the snapshots derived from this one, so never modified once built
+		private final BitSet inStock;
+		private final Map<Long, BitSet> categories;
+		private final BitSet[] priceBands;
+		private final BitSet[] discountBands;
+
+		// Row positions sorted by a column, computed on first use
+		private final Map<String, int[]> sortOrders;
+
+		private Snapshot(long[] productIds, double[] price, double[] specialPrice, double[] discount, int[] quantity,
+				long[] categoryIds, BitSet inStock, Map<Long, BitSet> categories, BitSet[] priceBands,
+				BitSet[] discountBands, Map<String, int[]> sortOrders) {
+			this.productIds = productIds;
+			this.price = price;
+			this.specialPrice = specialPrice;
+			this.discount = discount;
+			this.quantity = quantity;
+			this.categoryIds = categoryIds;
+			this.inStock = inStock;
+			this.categories = categories;
+			this.priceBands = priceBands;
+			this.discountBands = discountBands;
+			this.sortOrders = sortOrders;
+		}
+
+		static Snapshot build(long[] productIds, double[] price, double[] specialPrice, double[] discount,
+				int[] quantity, long[] categoryIds) {
+			BitSet inStock = new BitSet();
+			Map<Long, BitSet> categories = new TreeMap<>();
+			BitSet[] priceBands = new BitSet[PRICE_BANDS.length];
+			BitSet[] discountBands = new BitSet[DISCOUNT_BANDS.length];
+
+			Arrays.setAll(priceBands, i -> new BitSet());
+			Arrays.setAll(discountBands, i -> new BitSet());
+
+			for (int i = 0; i < productIds.length; i++) {
+				if (quantity[i] > 0) {
+					inStock.set(i);
+				}
+
+				if (categoryIds[i] != 0) {
+					categories.computeIfAbsent(categoryIds[i], id -> new BitSet()).set(i);
+				}
+
+				priceBands[band(PRICE_BANDS, specialPrice[i])].set(i);
+				discountBands[band(DISCOUNT_BANDS, discount[i])].set(i);
+			}
+
+			return new Snapshot(productIds, price, specialPrice, discount, quantity, categoryIds, inStock, categories,
+					priceBands, discountBands, new ConcurrentHashMap<>());
+		}
+
+		int size() {
+			return productIds.length;
+		}
+
+		BitSet rowsOf(long[] ids) {
+			BitSet rows = new BitSet(size());
+
+			for (long productId : ids) {
+				int row = Arrays.binarySearch(productIds, productId);
+
+				if (row >= 0) {
+					rows.set(row);
+				}
+			}
+
+			return rows;
+		}
+
+		/**
+		 * A copy with the quantity of the given products replaced, sharing the other columns,
+		 * bitsets and sort orders. Products no longer in the snapshot are skipped.
+		 */
+		Snapshot withQuantities(Map<Long, Integer> quantities) {
+			int[] newQuantity = quantity.clone();
+			BitSet newInStock = (BitSet) inStock.clone();
+
+			quantities.forEach((productId, units) -> {
+				int row = Arrays.binarySearch(productIds, productId);
+
+				if (row >= 0) {
+					newQuantity[row] = units;
+					newInStock.set(row, units > 0);
+				}
+			});
+
+			Map<String, int[]> newSortOrders = new ConcurrentHashMap<>(sortOrders);
+			newSortOrders.remove("quantity");
+
+			return new Snapshot(productIds, price, specialPrice, discount, newQuantity, categoryIds, newInStock,
+					categories, priceBands, discountBands, newSortOrders);
+		}
+
+		/**
+		 * A copy with the row inserted, or replaced in place when the product is already in the
+		 * snapshot. A replaced row keeps its position, so only the bitsets and sort orders it
+		 * moves between are copied.
+		 */
+		Snapshot with(Row change) {
+			int row = Arrays.binarySearch(productIds, change.productId());
+
+			if (row < 0) {
+				return with(Map.of(change.productId(), change), Set.of());
+			}
+
+			double[] newPrice = price.clone();
+			double[] newSpecialPrice = specialPrice.clone();
+			double[] newDiscount = discount.clone();
+			int[] newQuantity = quantity.clone();
+			long[] newCategoryIds = categoryIds.clone();
+
+			newPrice[row] = change.price();
+			newSpecialPrice[row] = change.specialPrice();
+			newDiscount[row] = change.discount();
+			newQuantity[row] = change.quantity();
+			newCategoryIds[row] = change.categoryId();
+
+			BitSet newInStock = inStock;
+
+			if ((quantity[row] > 0) != (change.quantity() > 0)) {
+				newInStock = (BitSet) inStock.clone();
+				newInStock.set(row, change.quantity() > 0);
+			}
+
+			Map<Long, BitSet> newCategories = categories;
+
+			if (categoryIds[row] != change.categoryId()) {
+				newCategories = new TreeMap<>(categories);
+				newCategories.computeIfPresent(categoryIds[row], (id, bits) -> {
+					BitSet without = (BitSet) bits.clone();
+					without.clear(row);
+
+					return without.isEmpty() ? null : without;
+				});
+
+				if (change.categoryId() != 0) {
+					BitSet with = (BitSet) newCategories.getOrDefault(change.categoryId(), new BitSet()).clone();
+					with.set(row);
+					newCategories.put(change.categoryId(), with);
+				}
+			}
+
+			Snapshot next = new Snapshot(productIds, newPrice, newSpecialPrice, newDiscount, newQuantity,
+					newCategoryIds, newInStock, newCategories,
+					moved(priceBands, band(PRICE_BANDS, specialPrice[row]), band(PRICE_BANDS, change.specialPrice()), row),
+					moved(discountBands, band(DISCOUNT_BANDS, discount[row]), band(DISCOUNT_BANDS, change.discount()), row),
+					new ConcurrentHashMap<>());
+
+			sortOrders.forEach((sortBy, order) -> {
+				if (sortBy.equals("quantity")) {
+					// Left to be sorted again on first use rather than widening both columns to doubles
+					if (quantity[row] == change.quantity()) {
+						next.sortOrders.put(sortBy, order);
+					}
+				} else {
+					double[] keys = keys(sortBy);
+					double[] newKeys = next.keys(sortBy);
+
+					next.sortOrders.put(sortBy,
+							Double.compare(keys[row], newKeys[row]) == 0 ? order : moved(order, keys, newKeys, row));
+				}
+			});
+
+			return next;
+		}
+
+		/**
+		 * A copy with the given rows inserted or replaced and the given products removed, merged
+		 * in one pass over the productId-ordered columns.
+		 */
+		Snapshot with(Map<Long, Row> upserts, Set<Long> deletes) {
+			Row[] changes = upserts.values().stream().sorted((a, b) -> Long.compare(a.productId(), b.productId()))
+					.toArray(Row[]::new);
+
+			int capacity = productIds.length + changes.length;
+
+			long[] newIds = new long[capacity];
+			double[] newPrice = new double[capacity];
+			double[] newSpecialPrice = new double[capacity];
+			double[] newDiscount = new double[capacity];
+			int[] newQuantity = new int[capacity];
+			long[] newCategoryIds = new long[capacity];
+
+			int size = 0;
+			int i = 0;
+			int c = 0;
+
+			while (i < productIds.length || c < changes.length) {
+				Row change = c < changes.length ? changes[c] : null;
+
+				if (change == null || (i < productIds.length && productIds[i] < change.productId())) {
+					if (!deletes.contains(productIds[i])) {
+						newIds[size] = productIds[i];
+						newPrice[size] = price[i];
+						newSpecialPrice[size] = specialPrice[i];
+						newDiscount[size] = discount[i];
+						newQuantity[size] = quantity[i];
+						newCategoryIds[size] = categoryIds[i];
+						size++;
+					}
+
+					i++;
+				} else {
+					if (i < productIds.length && productIds[i] == change.productId()) {
+						i++;
+					}
+
+					newIds[size] = change.productId();
+					newPrice[size] = change.price();
+					newSpecialPrice[size] = change.specialPrice();
+					newDiscount[size] = change.discount();
+					newQuantity[size] = change.quantity();
+					newCategoryIds[size] = change.categoryId();
+					size++;
+					c++;
+				}
+			}
+
+			return build(Arrays.copyOf(newIds, size), Arrays.copyOf(newPrice, size),
+					Arrays.copyOf(newSpecialPrice, size), Arrays.copyOf(newDiscount, size),
+					Arrays.copyOf(newQuantity, size), Arrays.copyOf(newCategoryIds, size));
+		}
+
+		Filters filters(ProductFilter filter) {
+			BitSet category = null;
+			BitSet priceRange = null;
+			BitSet discountBand = null;
+
+			if (filter.getCategoryId() != null) {
+				category = categories.getOrDefault(filter.getCategoryId(), new BitSet());
+			}
+
+			if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+				double min = filter.getMinPrice() == null ? Double.NEGATIVE_INFINITY : filter.getMinPrice();
+				double max = filter.getMaxPrice() == null ? Double.POSITIVE_INFINITY : filter.getMaxPrice();
+
+				priceRange = priceRange(min, max);
+			}
+
+			if (filter.getDiscountBand() != null) {
+				int band = DISCOUNT_LABELS.indexOf(filter.getDiscountBand());
+
+				if (band < 0) {
+					throw new APIException("Discount band must be one of " + String.join(", ", DISCOUNT_LABELS));
+				}
+
+				discountBand = discountBands[band];
+			}
+
+			return new Filters(category, priceRange, discountBand,
+					Boolean.TRUE.equals(filter.getInStock()) ? inStock : null);
+		}
+
+		FacetsDTO facets(Filters filters) {
+			int size = size();
+
+			BitSet exceptCategory = intersect(size, filters.price(), filters.discount(), filters.inStock());
+			BitSet exceptPrice = intersect(size, filters.category(), filters.discount(), filters.inStock());
+			BitSet exceptDiscount = intersect(size, filters.category(), filters.price(), filters.inStock());
+			BitSet exceptStock = intersect(size, filters.category(), filters.price(), filters.discount());
+
+			List<FacetCountDTO> categoryCounts = new ArrayList<>();
+
+			categories.forEach((categoryId, bits) -> {
+				long count = countBoth(exceptCategory, bits);
+
+				if (count > 0) {
+					categoryCounts.add(new FacetCountDTO(String.valueOf(categoryId), count));
+				}
+			});
+
+			return new FacetsDTO(categoryCounts, bandCounts(exceptPrice, priceBands, PRICE_LABELS),
+					bandCounts(exceptDiscount, discountBands, DISCOUNT_LABELS), countBoth(exceptStock, inStock));
+		}
+
+		// Rows with min <= specialPrice <= max, located in the rows sorted by specialPrice
+		private BitSet priceRange(double min, double max) {
+			int[] order = sortOrders.computeIfAbsent("specialPrice", this::sortOrder);
+
+			BitSet range = new BitSet(size());
+
+			for (int n = countBelow(order, min, false), end = countBelow(order, max, true); n < end; n++) {
+				range.set(order[n]);
+			}
+
+			return range;
+		}
+
+		// Rows in order whose specialPrice is below the bound, or not above it when inclusive
+		private int countBelow(int[] order, double bound, boolean inclusive) {
+			int low = 0;
+			int high = order.length;
+
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				double value = specialPrice[order[mid]];
+
+				if (value < bound || (inclusive && value == bound)) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+
+			return low;
+		}
+
+		private static List<FacetCountDTO> bandCounts(BitSet base, BitSet[] bands, List<String> labels) {
+			List<FacetCountDTO> counts = new ArrayList<>(bands.length);
+
+			for (int i = 0; i < bands.length; i++) {
+				counts.add(new FacetCountDTO(labels.get(i), countBoth(base, bands[i])));
+			}
+
+			return counts;
+		}
+
+		List<Long> page(BitSet matches, String sortBy, boolean ascending, long offset, int pageSize) {
+			int[] order = sortBy.equals("productId") ? null : sortOrders.computeIfAbsent(sortBy, this::sortOrder);
+
+			List<Long> page = new ArrayList<>(pageSize);
+			long skipped = 0;
+
+			for (int n = 0; n < productIds.length && page.size() < pageSize; n++) {
+				int position = ascending ? n : productIds.length - 1 - n;
+				int row = order == null ? position : order[position];
+
+				if (!matches.get(row)) {
+					continue;
+				}
+
+				if (skipped < offset) {
+					skipped++;
+				} else {
+					page.add(productIds[row]);
+				}
+			}
+
+			return page;
+		}
+
+		private int[] sortOrder(String sortBy) {
+			double[] keys = keys(sortBy);
+
+			int[] rows = new int[keys.length];
+			Arrays.setAll(rows, row -> row);
+
+			return sortRows(rows, keys);
+		}
+
+		private double[] keys(String sortBy) {
+			return switch (sortBy) {
+				case "price" -> price;
+				case "specialPrice" -> specialPrice;
+				case "discount" -> discount;
+				case "quantity" -> Arrays.stream(quantity).asDoubleStream().toArray();
+				default -> throw new APIException("Filtered products cannot be sorted by: " + sortBy);
+			};
+		}
+
+		/**
+		 * Bottom-up merge sort of the row positions by key. It is stable, so ties keep productId
+		 * order, the order of the rows.
+		 */
+		private static int[] sortRows(int[] rows, double[] keys) {
+			int[] from = rows;
+			int[] to = new int[rows.length];
+
+			for (int width = 1; width < rows.length; width *= 2) {
+				for (int low = 0; low < rows.length; low += 2 * width) {
+					int mid = Math.min(low + width, rows.length);
+					int high = Math.min(low + 2 * width, rows.length);
+					int a = low;
+					int b = mid;
+					int n = low;
+
+					while (a < mid && b < high) {
+						to[n++] = Double.compare(keys[from[b]], keys[from[a]]) < 0 ? from[b++] : from[a++];
+					}
+
+					while (a < mid) {
+						to[n++] = from[a++];
+					}
+
+					while (b < high) {
+						to[n++] = from[b++];
+					}
+				}
+
+				int[] sorted = to;
+				to = from;
+				from = sorted;
+			}
+
+			return from;
+		}
+
+		// A copy of the sort order with row moved from its place under keys to its place under newKeys
+		private static int[] moved(int[] order, double[] keys, double[] newKeys, int row) {
+			int[] result = new int[order.length];
+
+			int from = position(order, order.length, keys, row);
+			System.arraycopy(order, 0, result, 0, from);
+			System.arraycopy(order, from + 1, result, from, order.length - from - 1);
+
+			int to = position(result, order.length - 1, newKeys, row);
+			System.arraycopy(result, to, result, to + 1, order.length - 1 - to);
+			result[to] = row;
+
+			return result;
+		}
+
+		// The first of the length positions of order that is not before row in (key, row) order
+		private static int position(int[] order, int length, double[] keys, int row) {
+			int low = 0;
+			int high = length;
+
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				int cmp = Double.compare(keys[order[mid]], keys[row]);
+
+				if (cmp < 0 || (cmp == 0 && order[mid] < row)) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+
+			return low;
+		}
+
+		private static BitSet[] moved(BitSet[] bands, int from, int to, int row) {
+			if (from == to) {
+				return bands;
+			}
+
+			BitSet[] result = bands.clone();
+			result[from] = (BitSet) bands[from].clone();
+			result[from].clear(row);
+			result[to] = (BitSet) bands[to].clone();
+			result[to].set(row);
+
+			return result;
+		}
+	}
+
+}
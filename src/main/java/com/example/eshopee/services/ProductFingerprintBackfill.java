@@ -0,0 +1,59 @@
+package com.example.eshopee.services;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.repositories.ProductRepo;
+
+/**
+ * Fills in {@link Product#getFingerprint()} for rows written before the column existed, one
+ * batch per transaction. A legacy duplicate keeps a null fingerprint, since the unique
+ * constraint would reject it, and later writes leave it null (see Product's @PreUpdate). It is
+ * fingerprinted once {@link ProductService#updateProduct} gives it a name and description of
+ * its own.
+ */
+@Component
+public class ProductFingerprintBackfill {
+
+	private static final int BATCH_SIZE = 500;
+
+	@Autowired
+	private ProductRepo productRepo;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void backfill() {
+		Long lastId = 0L;
+		List<Object[]> batch;
+
+		do {
+			batch = productRepo.findUnfingerprintedAfter(lastId, PageRequest.of(0, BATCH_SIZE));
+
+			if (batch.isEmpty()) {
+				break;
+			}
+
+			lastId = (Long) batch.get(batch.size() - 1)[0];
+
+			List<Object[]> rows = batch;
+
+			transactionTemplate.executeWithoutResult(status -> rows.forEach(row -> {
+				String fingerprint = Product.fingerprintOf((Long) row[1], (String) row[2], (String) row[3]);
+
+				if (!productRepo.existsByFingerprint(fingerprint)) {
+					productRepo.updateFingerprint((Long) row[0], fingerprint);
+				}
+			}));
+		} while (batch.size() == BATCH_SIZE);
+	}
+
+}
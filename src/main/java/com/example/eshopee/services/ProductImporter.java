@@ -0,0 +1,566 @@
+package com.example.eshopee.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.exceptions.APIException;
+import com.example.eshopee.payloads.ProductImportError;
+import com.example.eshopee.payloads.ProductImportReport;
+import com.example.eshopee.repositories.CategoryRepo;
+import com.example.eshopee.repositories.ProductRepo;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Streams a CSV or NDJSON catalog upload into the products table.
+ *
+ * Rows are parsed one at a time, validated against the {@link Product} constraints, deduped by
+ * fingerprint and written in chunks: one transaction and one JDBC batch per chunk, with the
+ * persistence context cleared afterwards, so memory stays flat however large the upload is.
+ * A chunk the database rejects is written again one row per transaction, so only the rows at
+ * fault are reported.
+ * Product ids come from the pooled sequence, which is what lets Hibernate batch the inserts.
+ */
+@Component
+public class ProductImporter {
+
+	public static final String CSV = "text/csv";
+	public static final String NDJSON = "application/x-ndjson";
+
+	private static final List<String> REQUIRED_COLUMNS = List.of("categoryid", "productname", "description",
+			"quantity", "price");
+
+	private static final int MAX_REPORTED_ERRORS = 1000;
+	private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+	@Autowired
+	private ProductRepo productRepo;
+
+	@Autowired
+	private CategoryRepo categoryRepo;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private Validator validator;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Value("${project.import.chunk-size:1000}")
+	private int chunkSize;
+
+	public ProductImportReport importProducts(InputStream body, String contentType) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+		RowReader reader;
+
+		if (contentType != null && contentType.startsWith(NDJSON)) {
+			reader = new NdjsonReader(in, objectMapper);
+		} else if (contentType != null && contentType.startsWith(CSV)) {
+			reader = new CsvReader(in);
+		} else {
+			throw new APIException("Products can be imported from " + CSV + " or " + NDJSON + ", not " + contentType);
+		}
+
+		ProductImportReport report = new ProductImportReport();
+		Map<Long, Boolean> categories = new HashMap<>();
+		List<PendingProduct> chunk = new ArrayList<>(chunkSize);
+
+		while (true) {
+			Map<String, String> values;
+
+			try {
+				values = reader.next();
+			} catch (RowException e) {
+				report.setTotalRows(report.getTotalRows() + 1);
+				fail(report, reader.row(), e.getMessage());
+				continue;
+			}
+
+			if (values == null) {
+				break;
+			}
+
+			report.setTotalRows(report.getTotalRows() + 1);
+
+			try {
+				chunk.add(toPendingProduct(reader.row(), values, categories));
+			} catch (RowException e) {
+				fail(report, reader.row(), e.getMessage());
+				continue;
+			}
+
+			if (chunk.size() == chunkSize) {
+				writeChunk(chunk, report);
+				chunk.clear();
+			}
+		}
+
+		writeChunk(chunk, report);
+
+		return report;
+		/*
+		- ProductImportReport importProducts(InputStream body, String contentType)
+			i. Pick the CSV or NDJSON reader from the content type.
+			ii. Read the upload one row at a time and turn each row into a Product.
+			iii. Report rows that fail to parse, fail validation or name an unknown category.
+			iv. Every chunkSize valid rows, drop duplicates and insert the rest in one transaction.
+			v. Return the report.
+
+		 */
+	}
+
+	private PendingProduct toPendingProduct(long row, Map<String, String> values, Map<Long, Boolean> categories) {
+		Long categoryId = parseLong(values, "categoryid");
+
+		if (categoryId == null) {
+			throw new RowException("categoryId is required");
+		}
+
+		if (!categories.computeIfAbsent(categoryId, categoryRepo::existsById)) {
+			throw new RowException("Category not found with categoryId: " + categoryId);
+		}
+
+		Product product = new Product();
+		product.setProductName(values.get("productname"));
+		product.setDescription(values.get("description"));
+		product.setImage("default.png");
+		product.setQuantity(parseInteger(values, "quantity"));
+		product.setPrice(parseDouble(values, "price", null));
+		product.setDiscount(parseDouble(values, "discount", 0.0));
+
+		if (product.getQuantity() == null || product.getQuantity() < 0) {
+			throw new RowException("quantity must be zero or more");
+		}
+
+		if (product.getPrice() < 0 || product.getDiscount() < 0 || product.getDiscount() > 100) {
+			throw new RowException("price must be zero or more and discount between 0 and 100");
+		}
+
+		Set<ConstraintViolation<Product>> violations = validator.validate(product);
+
+		if (!violations.isEmpty()) {
+			throw new RowException(violations.stream()
+					.map(violation -> violation.getPropertyPath() + ": " + violation.getMessage()).sorted()
+					.collect(Collectors.joining(", ")));
+		}
+
+		product.setSpecialPrice(Pricing.specialPrice(product.getPrice(), product.getDiscount()));
+
+		String fingerprint = Product.fingerprintOf(categoryId, product.getProductName(), product.getDescription());
+
+		return new PendingProduct(row, categoryId, fingerprint, product);
+	}
+
+	private void writeChunk(List<PendingProduct> chunk, ProductImportReport report) {
+		if (chunk.isEmpty()) {
+			return;
+		}
+
+		Set<String> seen = new HashSet<>(productRepo.findFingerprintsIn(
+				chunk.stream().map(PendingProduct::fingerprint).collect(Collectors.toList())));
+
+		List<PendingProduct> inserts = new ArrayList<>(chunk.size());
+
+		for (PendingProduct pending : chunk) {
+			if (seen.add(pending.fingerprint())) {
+				inserts.add(pending);
+			} else {
+				report.setDuplicateRows(report.getDuplicateRows() + 1);
+			}
+		}
+
+		if (inserts.isEmpty()) {
+			return;
+		}
+
+		try {
+			insert(inserts);
+
+			report.setImportedRows(report.getImportedRows() + inserts.size());
+		} catch (PersistenceException e) {
+			// Most likely a concurrent insert of one of the products; retry row by row so only it fails
+			for (PendingProduct pending : inserts) {
+				pending.product().setProductId(null);
+
+				try {
+					insert(List.of(pending));
+
+					report.setImportedRows(report.getImportedRows() + 1);
+				} catch (PersistenceException rowFailure) {
+					fail(report, pending.row(), NestedExceptionUtils.getMostSpecificCause(rowFailure).getMessage());
+				}
+			}
+		}
+	}
+
+	private void insert(List<PendingProduct> inserts) {
+		transactionTemplate.executeWithoutResult(status -> {
+			entityManager.unwrap(Session.class).setJdbcBatchSize(chunkSize);
+
+			List<Product> products = new ArrayList<>(inserts.size());
+
+			for (PendingProduct pending : inserts) {
+				Product product = pending.product();
+				product.setCategory(entityManager.getReference(Category.class, pending.categoryId()));
+
+				entityManager.persist(product);
+				products.add(product);
+			}
+
+			entityManager.flush();
+			entityManager.clear();
+
+			eventPublisher.publishEvent(new ProductsImportedEvent(products));
+		});
+	}
+
+	private static void fail(ProductImportReport report, long row, String message) {
+		report.setFailedRows(report.getFailedRows() + 1);
+
+		if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+			report.getErrors().add(new ProductImportError(row, message));
+		}
+	}
+
+	private static Long parseLong(Map<String, String> values, String column) {
+		String value = values.get(column);
+
+		try {
+			return value == null || value.isBlank() ? null : Long.valueOf(value.trim());
+		} catch (NumberFormatException e) {
+			throw new RowException("Invalid " + column + ": " + value);
+		}
+	}
+
+	private static Integer parseInteger(Map<String, String> values, String column) {
+		String value = values.get(column);
+
+		try {
+			return value == null || value.isBlank() ? null : Integer.valueOf(value.trim());
+		} catch (NumberFormatException e) {
+			throw new RowException("Invalid " + column + ": " + value);
+		}
+	}
+
+	private static double parseDouble(Map<String, String> values, String column, Double defaultValue) {
+		String value = values.get(column);
+
+		if (value == null || value.isBlank()) {
+			if (defaultValue == null) {
+				throw new RowException(column + " is required");
+			}
+
+			return defaultValue;
+		}
+
+		double parsed;
+
+		try {
+			parsed = Double.parseDouble(value.trim());
+		} catch (NumberFormatException e) {
+			throw new RowException("Invalid " + column + ": " + value);
+		}
+
+		// parseDouble takes NaN and Infinity, which pass every range check
+		if (!Double.isFinite(parsed)) {
+			throw new RowException("Invalid " + column + ": " + value);
+		}
+
+		return parsed;
+	}
+
+	private record PendingProduct(long row, Long categoryId, String fingerprint, Product product) {
+	}
+
+	private static final class RowException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		RowException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * Reads one record at a time as lower-cased column name to value. Blank lines are skipped.
+	 */
+	private abstract static class RowReader {
+
+		protected final BufferedReader in;
+		protected long row;
+
+		RowReader(BufferedReader in) {
+			this.in = in;
+		}
+
+		long row() {
+			return row;
+		}
+
+		abstract Map<String, String> next() throws IOException;
+
+		protected String nextLine() throws IOException {
+			String line;
+
+			do {
+				line = readLine();
+			} while (line != null && line.isBlank());
+
+			return line;
+		}
+
+		/**
+		 * BufferedReader.readLine, but a line longer than MAX_RECORD_LENGTH is skipped to its end
+		 * without being held in memory and fails as a row of its own.
+		 */
+		protected String readLine() throws IOException {
+			StringBuilder line = new StringBuilder();
+			int c;
+
+			while ((c = in.read()) != -1 && c != '\n' && c != '\r') {
+				if (line.length() == MAX_RECORD_LENGTH) {
+					skipLine();
+					row++;
+					throw new RowException("Line longer than " + MAX_RECORD_LENGTH + " characters");
+				}
+
+				line.append((char) c);
+			}
+
+			if (c == '\r') {
+				skipNewlineAfterCarriageReturn();
+			}
+
+			return c == -1 && line.isEmpty() ? null : line.toString();
+		}
+
+		private void skipLine() throws IOException {
+			int c;
+
+			do {
+				c = in.read();
+			} while (c != -1 && c != '\n' && c != '\r');
+
+			if (c == '\r') {
+				skipNewlineAfterCarriageReturn();
+			}
+		}
+
+		private void skipNewlineAfterCarriageReturn() throws IOException {
+			in.mark(1);
+
+			if (in.read() != '\n') {
+				in.reset();
+			}
+		}
+	}
+
+	private static final class NdjsonReader extends RowReader {
+
+		private final ObjectMapper objectMapper;
+
+		NdjsonReader(BufferedReader in, ObjectMapper objectMapper) {
+			super(in);
+			this.objectMapper = objectMapper;
+		}
+
+		@Override
+		Map<String, String> next() throws IOException {
+			String line = nextLine();
+
+			if (line == null) {
+				return null;
+			}
+
+			row++;
+
+			JsonNode node;
+
+			try {
+				node = objectMapper.readTree(line);
+			} catch (IOException e) {
+				throw new RowException("Malformed JSON");
+			}
+
+			if (!node.isObject()) {
+				throw new RowException("Each line must be a JSON object");
+			}
+
+			Map<String, String> values = new HashMap<>();
+
+			for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext();) {
+				Map.Entry<String, JsonNode> field = fields.next();
+
+				if (!field.getValue().isNull()) {
+					values.put(field.getKey().toLowerCase(Locale.ROOT), field.getValue().asText());
+				}
+			}
+
+			return values;
+		}
+	}
+
+	/**
+	 * RFC 4180 CSV with a header row naming the columns. Quoted fields may contain commas,
+	 * doubled quotes and line breaks.
+	 */
+	private static final class CsvReader extends RowReader {
+
+		private List<String> header;
+		private boolean exhausted;
+
+		CsvReader(BufferedReader in) {
+			super(in);
+		}
+
+		@Override
+		Map<String, String> next() throws IOException {
+			if (header == null) {
+				readHeader();
+			}
+
+			if (exhausted) {
+				return null;
+			}
+
+			List<String> fields = readRecord();
+
+			if (fields == null) {
+				return null;
+			}
+
+			row++;
+
+			if (fields.size() != header.size()) {
+				throw new RowException("Expected " + header.size() + " columns but found " + fields.size());
+			}
+
+			Map<String, String> values = new HashMap<>();
+
+			for (int i = 0; i < fields.size(); i++) {
+				values.put(header.get(i), fields.get(i));
+			}
+
+			return values;
+		}
+
+		private void readHeader() throws IOException {
+			List<String> columns = readRecord();
+
+			if (columns == null) {
+				header = List.of();
+				exhausted = true;
+				return;
+			}
+
+			header = columns.stream().map(column -> column.trim().toLowerCase(Locale.ROOT))
+					.collect(Collectors.toList());
+
+			if (!header.containsAll(REQUIRED_COLUMNS)) {
+				throw new APIException("CSV header must name the columns categoryId, productName, description, "
+						+ "quantity, price and optionally discount");
+			}
+		}
+
+		private List<String> readRecord() throws IOException {
+			String line = nextLine();
+
+			if (line == null) {
+				return null;
+			}
+
+			List<String> fields = new ArrayList<>();
+			StringBuilder field = new StringBuilder();
+			boolean quoted = false;
+			int length = 0;
+
+			while (true) {
+				for (int i = 0; i < line.length(); i++) {
+					char c = line.charAt(i);
+
+					if (quoted) {
+						if (c != '"') {
+							field.append(c);
+						} else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+							field.append('"');
+							i++;
+						} else {
+							quoted = false;
+						}
+					} else if (c == '"') {
+						quoted = true;
+					} else if (c == ',') {
+						fields.add(field.toString());
+						field.setLength(0);
+					} else {
+						field.append(c);
+					}
+				}
+
+				length += line.length();
+
+				if (!quoted) {
+					break;
+				}
+
+				try {
+					line = readLine();
+				} catch (RowException e) {
+					exhausted = true;
+					throw new RowException("Unterminated quoted field; the rest of the upload was skipped");
+				}
+
+				// An unterminated quote would otherwise swallow the rest of the upload
+				if (line == null || length > MAX_RECORD_LENGTH) {
+					exhausted = true;
+					row++;
+					throw new RowException("Unterminated quoted field; the rest of the upload was skipped");
+				}
+
+				field.append('\n');
+			}
+
+			fields.add(field.toString());
+
+			return fields;
+		}
+	}
+
+}
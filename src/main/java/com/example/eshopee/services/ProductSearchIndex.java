@@ -0,0 +1,402 @@
+package com.example.eshopee.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.repositories.ProductRepo;
+
+/**
+ * In-memory inverted index over product name and description.
+ *
+ * Every term maps to a posting list of (productId, weighted term frequency), held as two
+ * primitive arrays sorted by productId. A query matches the products containing all of its
+ * terms, found by walking the rarest term's list and binary-searching the others, and is
+ * ranked with BM25, name hits weighing more than description hits. Only the best hits up to
+ * the requested page are kept, in a bounded heap, so a query never sorts every match. The
+ * index is rebuilt on startup and then kept up to date from {@link ProductChangedEvent}s.
+ */
+@Component
+public class ProductSearchIndex {
+
+	private static final int NAME_WEIGHT = 3;
+	private static final int DESCRIPTION_WEIGHT = 1;
+	private static final int REBUILD_BATCH_SIZE = 1000;
+
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+
+	// Worst hit first, so the heap head is the one to drop: lower score, then higher productId
+	private static final Comparator<Hit> WORST_FIRST = Comparator.comparingDouble(Hit::score)
+			.thenComparing(Comparator.comparingLong(Hit::productId).reversed());
+
+	@Autowired
+	private ProductRepo productRepo;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<String, Postings> postings = new HashMap<>();
+
+	// productId -> terms and length of that product, needed to score it and remove its postings
+	private final Map<Long, Document> documents = new HashMap<>();
+
+	private long totalLength;
+
+	public record SearchResult(List<Long> productIds, long totalElements) {
+	}
+
+	private record Document(String[] terms, int length) {
+	}
+
+	private record Hit(long productId, double score) {
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		lock.writeLock().lock();
+		try {
+			postings.clear();
+			documents.clear();
+			totalLength = 0;
+
+			Long lastId = 0L;
+			List<Object[]> batch;
+
+			do {
+				batch = productRepo.findSearchableProductsAfter(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+
+				for (Object[] row : batch) {
+					lastId = (Long) row[0];
+					addDocument(lastId, (String) row[1], (String) row[2]);
+				}
+			} while (batch.size() == REBUILD_BATCH_SIZE);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProductChanged(ProductChangedEvent event) {
+		Product product = event.getProduct();
+
+		if (event.isDeleted()) {
+			remove(product.getProductId());
+		} else {
+			index(product.getProductId(), product.getProductName(), product.getDescription());
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProductsImported(ProductsImportedEvent event) {
+		lock.writeLock().lock();
+		try {
+			for (Product product : event.getProducts()) {
+				removeDocument(product.getProductId());
+				addDocument(product.getProductId(), product.getProductName(), product.getDescription());
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void index(Long productId, String productName, String description) {
+		lock.writeLock().lock();
+		try {
+			removeDocument(productId);
+			addDocument(productId, productName, description);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(Long productId) {
+		lock.writeLock().lock();
+		try {
+			removeDocument(productId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns one page of product ids matching every term of the keyword, best match first,
+	 * and the number of matches.
+	 */
+	public SearchResult search(String keyword, int pageNumber, int pageSize) {
+		int from = (int) Math.min((long) pageNumber * pageSize, Integer.MAX_VALUE);
+		int limit = (int) Math.min((long) from + pageSize, Integer.MAX_VALUE);
+
+		lock.readLock().lock();
+		try {
+			List<Postings> lists = postingsOf(keyword);
+
+			if (lists.isEmpty()) {
+				return new SearchResult(List.of(), 0);
+			}
+
+			int documentCount = documents.size();
+			double averageLength = documentCount == 0 ? 1 : (double) totalLength / documentCount;
+
+			double[] idf = new double[lists.size()];
+
+			for (int t = 0; t < idf.length; t++) {
+				int size = lists.get(t).size;
+
+				idf[t] = Math.log(1 + (documentCount - size + 0.5) / (size + 0.5));
+			}
+
+			PriorityQueue<Hit> best = new PriorityQueue<>(Math.max(1, Math.min(limit, lists.get(0).size)), WORST_FIRST);
+			long matches = 0;
+
+			int[] cursors = new int[lists.size()];
+			Postings rarest = lists.get(0);
+
+			for (int i = 0; i < rarest.size; i++) {
+				long productId = rarest.productIds[i];
+				double lengthNorm = K1 * (1 - B + B * documents.get(productId).length() / averageLength);
+				double score = 0;
+
+				int t = 0;
+
+				for (; t < lists.size(); t++) {
+					Postings list = lists.get(t);
+					int at = t == 0 ? i : list.find(productId, cursors[t]);
+
+					if (at < 0) {
+						cursors[t] = -at - 1;
+						break;
+					}
+
+					cursors[t] = at;
+
+					int tf = list.frequencies[at];
+					score += idf[t] * (tf * (K1 + 1)) / (tf + lengthNorm);
+				}
+
+				if (t < lists.size()) {
+					continue;
+				}
+
+				matches++;
+
+				if (limit == 0) {
+					continue;
+				}
+
+				Hit hit = new Hit(productId, score);
+
+				if (best.size() < limit) {
+					best.add(hit);
+				} else if (WORST_FIRST.compare(hit, best.peek()) > 0) {
+					best.poll();
+					best.add(hit);
+				}
+			}
+
+			List<Long> page = new ArrayList<>(Math.max(0, best.size() - from));
+
+			while (best.size() > from) {
+				page.add(best.poll().productId());
+			}
+
+			Collections.reverse(page);
+
+			return new SearchResult(page, matches);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Ids of the products matching every term of the keyword, in productId order.
+	 */
+	public long[] matches(String keyword) {
+		lock.readLock().lock();
+		try {
+			List<Postings> lists = postingsOf(keyword);
+
+			if (lists.isEmpty()) {
+				return new long[0];
+			}
+
+			Postings rarest = lists.get(0);
+			long[] matches = new long[rarest.size];
+			int count = 0;
+			int[] cursors = new int[lists.size()];
+
+			candidates: for (int i = 0; i < rarest.size; i++) {
+				long productId = rarest.productIds[i];
+
+				for (int t = 1; t < lists.size(); t++) {
+					int at = lists.get(t).find(productId, cursors[t]);
+
+					cursors[t] = at < 0 ? -at - 1 : at;
+
+					if (at < 0) {
+						continue candidates;
+					}
+				}
+
+				matches[count++] = productId;
+			}
+
+			return Arrays.copyOf(matches, count);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return documents.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+
+		if (text == null) {
+			return tokens;
+		}
+
+		for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+			// One-letter terms stay, so queries like "vitamin c" or "size 9" still narrow the match
+			if (!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+
+		return tokens;
+	}
+
+	/**
+	 * The posting lists of the keyword's terms, rarest first so the candidates are as few as
+	 * possible; empty when a term matches nothing. Called under the read lock.
+	 */
+	private List<Postings> postingsOf(String keyword) {
+		Set<String> terms = new LinkedHashSet<>(tokenize(keyword));
+		List<Postings> lists = new ArrayList<>(terms.size());
+
+		for (String term : terms) {
+			Postings list = postings.get(term);
+
+			if (list == null) {
+				return List.of();
+			}
+
+			lists.add(list);
+		}
+
+		lists.sort(Comparator.comparingInt(list -> list.size));
+
+		return lists;
+	}
+
+	private void addDocument(Long productId, String productName, String description) {
+		Map<String, Integer> terms = new HashMap<>();
+
+		tokenize(productName).forEach(term -> terms.merge(term, NAME_WEIGHT, Integer::sum));
+		tokenize(description).forEach(term -> terms.merge(term, DESCRIPTION_WEIGHT, Integer::sum));
+
+		int length = 0;
+
+		for (Map.Entry<String, Integer> term : terms.entrySet()) {
+			postings.computeIfAbsent(term.getKey(), t -> new Postings()).put(productId, term.getValue());
+			length += term.getValue();
+		}
+
+		documents.put(productId, new Document(terms.keySet().toArray(String[]::new), length));
+		totalLength += length;
+	}
+
+	private void removeDocument(Long productId) {
+		Document document = documents.remove(productId);
+
+		if (document == null) {
+			return;
+		}
+
+		for (String term : document.terms()) {
+			Postings list = postings.get(term);
+			list.remove(productId);
+
+			if (list.size == 0) {
+				postings.remove(term);
+			}
+		}
+
+		totalLength -= document.length();
+	}
+
+	/**
+	 * Posting list of one term: productIds in ascending order and their weighted term
+	 * frequencies, in parallel arrays. Products are mostly added in productId order, which
+	 * appends.
+	 */
+	private static final class Postings {
+
+		private long[] productIds = new long[4];
+		private int[] frequencies = new int[4];
+		private int size;
+
+		// Position of the product at or after from, or (-(insertion point) - 1) if it is not listed
+		int find(long productId, int from) {
+			return Arrays.binarySearch(productIds, from, size, productId);
+		}
+
+		void put(long productId, int frequency) {
+			int at = size > 0 && productIds[size - 1] < productId ? -size - 1 : find(productId, 0);
+
+			if (at >= 0) {
+				frequencies[at] = frequency;
+				return;
+			}
+
+			at = -at - 1;
+
+			if (size == productIds.length) {
+				productIds = Arrays.copyOf(productIds, size * 2);
+				frequencies = Arrays.copyOf(frequencies, size * 2);
+			}
+
+			System.arraycopy(productIds, at, productIds, at + 1, size - at);
+			System.arraycopy(frequencies, at, frequencies, at + 1, size - at);
+			productIds[at] = productId;
+			frequencies[at] = frequency;
+			size++;
+		}
+
+		void remove(long productId) {
+			int at = find(productId, 0);
+
+			if (at < 0) {
+				return;
+			}
+
+			System.arraycopy(productIds, at + 1, productIds, at, size - at - 1);
+			System.arraycopy(frequencies, at + 1, frequencies, at, size - at - 1);
+			size--;
+		}
+	}
+
+}
@@ -6,6 +6,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import com.example.eshopee.entites.Product;
 import com.example.eshopee.payloads.ProductDTO;
+import com.example.eshopee.payloads.ProductFilter;
 import com.example.eshopee.payloads.ProductResponse;
 
 public interface ProductService {
@@ -14,9 +15,17 @@ public interface ProductService {
 
 	ProductResponse getAllProducts(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder);
 
+	ProductResponse getFilteredProducts(ProductFilter filter, Integer pageNumber, Integer pageSize, String sortBy,
+			String sortOrder);
+
+	ProductResponse getAllProductsAfter(String after, Integer pageSize, String sortBy, String sortOrder);
+
 	ProductResponse searchByCategory(Long categoryId, Integer pageNumber, Integer pageSize, String sortBy,
 			String sortOrder);
 
+	ProductResponse searchByCategoryAfter(Long categoryId, String after, Integer pageSize, String sortBy,
+			String sortOrder);
+
 	ProductDTO updateProduct(Long productId, Product product);
 
 	ProductDTO updateProductImage(Long productId, MultipartFile image) throws IOException;
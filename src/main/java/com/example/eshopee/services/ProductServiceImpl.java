@@ -1,30 +1,39 @@
 package com.example.eshopee.services;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import com.example.eshopee.entites.Cart;
+import com.example.eshopee.config.AppConstants;
 import com.example.eshopee.entites.Category;
 import com.example.eshopee.entites.Product;
+import com.example.eshopee.entites.ProductTombstone;
 import com.example.eshopee.exceptions.APIException;
 import com.example.eshopee.exceptions.ResourceNotFoundException;
-import com.example.eshopee.payloads.CartDTO;
 import com.example.eshopee.payloads.ProductDTO;
+import com.example.eshopee.payloads.ProductFilter;
 import com.example.eshopee.payloads.ProductResponse;
+import com.example.eshopee.repositories.CartItemRepo;
 import com.example.eshopee.repositories.CartRepo;
 import com.example.eshopee.repositories.CategoryRepo;
 import com.example.eshopee.repositories.ProductRepo;
+import com.example.eshopee.repositories.ProductTombstoneRepo;
 
 import jakarta.transaction.Transactional;
 
@@ -42,7 +51,13 @@ public class ProductServiceImpl implements ProductService {
 	private CartRepo cartRepo;
 
 	@Autowired
-	private CartService cartService;
+	private CartItemRepo cartItemRepo;
+
+	@Autowired
+	private ProductTombstoneRepo productTombstoneRepo;
+
+	@Autowired
+	private CartRepricer cartRepricer;
 
 	@Autowired
 	private FileService fileService;
@@ -50,6 +65,21 @@ public class ProductServiceImpl implements ProductService {
 	@Autowired
 	private ModelMapper modelMapper;
 
+	@Autowired
+	private ProductSearchIndex productSearchIndex;
+
+	@Autowired
+	private CategoryProductCache categoryProductCache;
+
+	@Autowired
+	private ProductFacetIndex productFacetIndex;
+
+	@Autowired
+	private HotStockCounters hotStockCounters;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
 	@Value("${project.image}")
 	private String path;
 
@@ -59,30 +89,20 @@ public class ProductServiceImpl implements ProductService {
 		Category category = categoryRepo.findById(categoryId)
 				.orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
 
-		boolean isProductNotPresent = true;
-
-		List<Product> products = category.getProducts();
-
-		//TODO: Can we directly find the count of products with the given name and description rather than fetching all the products and iterating over them?
-        for (Product prod : products) {
-            if (prod.getProductName().equals(product.getProductName())
-                    && prod.getDescription().equals(product.getDescription())) {
-
-                isProductNotPresent = false;
-                break;
-            }
-        }
+		boolean isProductNotPresent = !productRepo.existsByFingerprint(
+				Product.fingerprintOf(categoryId, product.getProductName(), product.getDescription()));
 
 		if (isProductNotPresent) {
 			product.setImage("default.png");
 
 			product.setCategory(category);
 
-			double specialPrice = product.getPrice() - ((product.getDiscount() * 0.01) * product.getPrice());
-			product.setSpecialPrice(specialPrice);
+			product.setSpecialPrice(Pricing.specialPrice(product.getPrice(), product.getDiscount()));
 
 			Product savedProduct = productRepo.save(product);
 
+			eventPublisher.publishEvent(ProductChangedEvent.saved(savedProduct));
+
 			return modelMapper.map(savedProduct, ProductDTO.class);
 		} else {
 			throw new APIException("Product already exists !!!");
@@ -90,7 +110,7 @@ public class ProductServiceImpl implements ProductService {
 		/*
 		- ProductDTO addProduct(Long categoryId, Product product)
 			i. Fetch the category from the categoryRepo using the categoryId.
-			ii. Check if the product already exists in the category.
+			ii. Check if the product already exists in the category by looking up its fingerprint.
 			iii. If the product doesn't exist, set the image of the product to "default.png".
 			iv. Set the category of the product.
 			v. Calculate the special price of the product.
@@ -108,21 +128,63 @@ public class ProductServiceImpl implements ProductService {
 
 		Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
 
-		Page<Product> pageProducts = productRepo.findAll(pageDetails);
-
-		List<Product> products = pageProducts.getContent();
+		Page<ProductDTO> pageProducts = productRepo.findAllProductDTOs(pageDetails);
 
-		return getProductResponse(pageProducts, products);
+		return getProductResponse(pageProducts);
 		/*
 		- ProductResponse getAllProducts(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder)
 			i. Create a Sort object using the sortBy and sortOrder.
 			ii. Create a Pageable object using the pageNumber, pageSize, and the Sort object.
-			iii. Fetch all the products using the productRepo.
-			iv. If the products list is empty, throw an APIException.
-			v. Return the ProductResponse object by passing the pageProducts and products to the getProductResponse method.
+			iii. Select the ProductDTO columns of the page directly, without loading Product entities.
+			iv. Return the ProductResponse object by passing the pageProducts to the getProductResponse method.
+		 */
+	}
+
+	@Override
+	public ProductResponse getFilteredProducts(ProductFilter filter, Integer pageNumber, Integer pageSize,
+			String sortBy, String sortOrder) {
+
+		if (filter.isEmpty()) {
+			ProductResponse productResponse = getAllProducts(pageNumber, pageSize, sortBy, sortOrder);
+			productResponse.setFacets(productFacetIndex.facets(filter));
+
+			return productResponse;
+		}
+
+		boolean ascending = sortOrder.equalsIgnoreCase("asc");
+
+		ProductFacetIndex.FacetPage facetPage = productFacetIndex.query(filter, sortBy, ascending, pageNumber,
+				pageSize);
+
+		Sort sortByAndOrder = ascending ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
+
+		Page<ProductDTO> pageProducts = new PageImpl<>(findProductDTOsInOrder(facetPage.productIds()),
+				PageRequest.of(pageNumber, pageSize, sortByAndOrder), facetPage.totalElements());
+
+		ProductResponse productResponse = getProductResponse(pageProducts);
+		productResponse.setFacets(facetPage.facets());
+
+		return productResponse;
+		/*
+		- ProductResponse getFilteredProducts(ProductFilter filter, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder)
+			i. Without a filter, page the products from the database as getAllProducts does and attach the facet counts.
+			ii. Otherwise, match, sort and page the product ids against the in-memory facet snapshot.
+			iii. Load the ProductDTOs of the page in one query, keeping the order of the ids.
+			iv. Return the ProductResponse with the facet counts of the filter.
 		 */
 	}
 
+	@Override
+	public ProductResponse getAllProductsAfter(String after, Integer pageSize, String sortBy, String sortOrder) {
+
+		Sort sort = KeysetCursor.sort(sortBy, sortOrder, "productId");
+
+		Window<ProductDTO> windowProducts = productRepo.scrollProductDTOs(null, sort,
+				KeysetCursor.position(after, sort), pageSize);
+
+		return getProductResponse(windowProducts, sort, pageSize);
+	}
+
 	@Override
 	public ProductResponse searchByCategory(Long categoryId, Integer pageNumber, Integer pageSize, String sortBy,
 											String sortOrder) {
@@ -130,29 +192,69 @@ public class ProductServiceImpl implements ProductService {
 		Category category = categoryRepo.findById(categoryId)
 				.orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
 
-		Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending()
-				: Sort.by(sortBy).descending();
+		boolean ascending = sortOrder.equalsIgnoreCase("asc");
+
+		Sort sortByAndOrder = ascending ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
 
 		Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
 
-		Page<Product> pageProducts = productRepo.findAll(pageDetails);
+		Page<ProductDTO> pageProducts;
 
-		List<Product> products = pageProducts.getContent();
+		if (categoryProductCache.caches(sortBy)) {
+			CategoryProductCache.IdPage idPage = categoryProductCache.getPage(categoryId, sortBy, ascending, pageNumber,
+					pageSize);
 
-		if (products.isEmpty()) {
+			pageProducts = new PageImpl<>(findProductDTOsInOrder(idPage.productIds()), pageDetails,
+					idPage.totalElements());
+		} else {
+			// productId breaks ties as in the cached lists, so equal keys do not shift between pages
+			Sort tieBreak = ascending ? Sort.by("productId").ascending() : Sort.by("productId").descending();
+
+			pageProducts = productRepo.findProductDTOsByCategoryId(categoryId,
+					PageRequest.of(pageNumber, pageSize, sortByAndOrder.and(tieBreak)));
+		}
+
+		if (pageProducts.getContent().isEmpty()) {
+			throw new APIException(category.getCategoryName() + " category doesn't contain any products !!!");
+		}
+
+		return getProductResponse(pageProducts);
+	}
+
+	@Override
+	public ProductResponse searchByCategoryAfter(Long categoryId, String after, Integer pageSize, String sortBy,
+												 String sortOrder) {
+
+		Category category = categoryRepo.findById(categoryId)
+				.orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
+
+		Sort sort = KeysetCursor.sort(sortBy, sortOrder, "productId");
+
+		Window<ProductDTO> windowProducts = productRepo.scrollProductDTOs(categoryId, sort,
+				KeysetCursor.position(after, sort), pageSize);
+
+		if (windowProducts.isEmpty()) {
 			throw new APIException(category.getCategoryName() + " category doesn't contain any products !!!");
 		}
 
-		return getProductResponse(pageProducts, products);
+		return getProductResponse(windowProducts, sort, pageSize);
 	}
 
-	private ProductResponse getProductResponse(Page<Product> pageProducts, List<Product> products) {
-		List<ProductDTO> productDTOs = products.stream().map(p -> modelMapper.map(p, ProductDTO.class))
-				.collect(Collectors.toList());
+	private ProductResponse getProductResponse(Window<ProductDTO> windowProducts, Sort sort, Integer pageSize) {
+		ProductResponse productResponse = new ProductResponse();
 
+		productResponse.setContent(windowProducts.getContent());
+		productResponse.setPageSize(pageSize);
+		productResponse.setLastPage(!windowProducts.hasNext());
+		productResponse.setNextCursor(KeysetCursor.next(windowProducts, sort));
+
+		return productResponse;
+	}
+
+	private ProductResponse getProductResponse(Page<ProductDTO> pageProducts) {
 		ProductResponse productResponse = new ProductResponse();
 
-		productResponse.setContent(productDTOs);
+		productResponse.setContent(pageProducts.getContent());
 		productResponse.setPageNumber(pageProducts.getNumber());
 		productResponse.setPageSize(pageProducts.getSize());
 		productResponse.setTotalElements(pageProducts.getTotalElements());
@@ -161,40 +263,64 @@ public class ProductServiceImpl implements ProductService {
 
 		return productResponse;
 		/*
-		- private ProductResponse getProductResponse(Page<Product> pageProducts, List<Product> products)
-			i. Convert the products list to a list of ProductDTO using the modelMapper.
-			ii. Create a ProductResponse object.
-			iii. Set the content, pageNumber, pageSize, totalElements, totalPages, and lastPage of the ProductResponse object.
+		- private ProductResponse getProductResponse(Page<ProductDTO> pageProducts)
+			i. Create a ProductResponse object.
+			ii. Set the content, pageNumber, pageSize, totalElements, totalPages, and lastPage of the ProductResponse object.
 
 		 */
 	}
 
 	@Override
 	public ProductResponse searchProductByKeyword(String keyword, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
-		Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending()
-				: Sort.by(sortBy).descending();
+		Pageable pageDetails;
+		Page<ProductDTO> pageProducts;
 
-		Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
+		if (sortBy.equalsIgnoreCase(AppConstants.SORT_SEARCH_BY)) {
+			ProductSearchIndex.SearchResult result = productSearchIndex.search(keyword, pageNumber, pageSize);
+
+			pageDetails = PageRequest.of(pageNumber, pageSize);
 
-		Page<Product> pageProducts = productRepo.findByProductNameLike(keyword, pageDetails);
+			pageProducts = new PageImpl<>(findProductDTOsInOrder(result.productIds()), pageDetails,
+					result.totalElements());
+		} else {
+			boolean ascending = sortOrder.equalsIgnoreCase("asc");
+
+			pageDetails = PageRequest.of(pageNumber, pageSize,
+					ascending ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending());
 
-		List<Product> products = pageProducts.getContent();
+			ProductFacetIndex.IdPage idPage = productFacetIndex.page(productSearchIndex.matches(keyword), sortBy,
+					ascending, pageNumber, pageSize);
 
-		if (products.isEmpty()) {
+			pageProducts = new PageImpl<>(findProductDTOsInOrder(idPage.productIds()), pageDetails,
+					idPage.totalElements());
+		}
+
+		if (pageProducts.isEmpty()) {
 			throw new APIException("Products not found with keyword: " + keyword);
 		}
 
-		return getProductResponse(pageProducts, products);
+		return getProductResponse(pageProducts);
 		/*
 		- ProductResponse searchProductByKeyword(String keyword, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder)
-			i. Create a Sort object using the sortBy and sortOrder.
-			ii. Create a Pageable object using the pageNumber, pageSize, and the Sort object.
-			iii. Fetch the products using the productRepo by the keyword.
+			i. Look the keyword up in the in-memory productSearchIndex instead of scanning the products table.
+			ii. If sorting by relevance, take the requested page of ranked ids straight from the index.
+			iii. Otherwise, sort and page the matching ids on the productFacetIndex columns, then load only that page.
 			iv. If the products list is empty, throw an APIException.
-			v. Return the ProductResponse object by passing the pageProducts and products to the getProductResponse method.
+			v. Return the ProductResponse object by passing the pageProducts to the getProductResponse method.
 		 */
 	}
 
+	private List<ProductDTO> findProductDTOsInOrder(List<Long> productIds) {
+		if (productIds.isEmpty()) {
+			return List.of();
+		}
+
+		Map<Long, ProductDTO> productsById = productRepo.findProductDTOsByIdIn(productIds).stream()
+				.collect(Collectors.toMap(ProductDTO::getProductId, Function.identity()));
+
+		return productIds.stream().map(productsById::get).filter(p -> p != null).collect(Collectors.toList());
+	}
+
 	@Override
 	public ProductDTO updateProduct(Long productId, Product product) {
 		/*
@@ -202,12 +328,12 @@ public class ProductServiceImpl implements ProductService {
 
 			i. Fetch the product from the productRepo using the productId.
 			ii. If the product is not found, throw an APIException.
-			iii. Set the image, productId, and category of the product.
-			iv. Calculate the special price of the product.
-			v. Save the product in the productRepo.
-			vi. Fetch the carts containing the product using the cartRepo.
-			vii. Convert the carts list to a list of CartDTO.
-			viii. Iterate over the cartDTOs list and update the product in the carts using the cartService.
+			iii. Set the image, productId, category and hot stock flag of the product.
+			iv. If another product of the category already has its name and description, throw an APIException.
+			v. Hand a hot product's stock to its counters.
+			vi. Calculate the special price of the product.
+			vii. Save the product in the productRepo.
+			viii. Reprice the product in every cart holding it using the cartRepricer.
 			ix. Return the saved product as ProductDTO.
 
 		 */
@@ -221,27 +347,36 @@ public class ProductServiceImpl implements ProductService {
 		product.setImage(productFromDB.getImage());
 		product.setProductId(productId);
 		product.setCategory(productFromDB.getCategory());
+		product.setHotStock(productFromDB.isHotStock());
 
-		double specialPrice = product.getPrice() - ((product.getDiscount() * 0.01) * product.getPrice());
-		product.setSpecialPrice(specialPrice);
+		Long categoryId = product.getCategory() == null ? null : product.getCategory().getCategoryId();
+		String fingerprint = Product.fingerprintOf(categoryId, product.getProductName(), product.getDescription());
 
-		Product savedProduct = productRepo.save(product);
+		// A legacy duplicate has no fingerprint and matches its twin's; it stays as it is until renamed
+		boolean legacyDuplicate = productFromDB.getFingerprint() == null && fingerprint.equals(Product.fingerprintOf(
+				categoryId, productFromDB.getProductName(), productFromDB.getDescription()));
 
-		List<Cart> carts = cartRepo.findCartsByProductId(productId);
+		if (!legacyDuplicate) {
+			if (productRepo.existsByFingerprintAndProductIdNot(fingerprint, productId)) {
+				throw new APIException("Product already exists !!!");
+			}
 
-		List<CartDTO> cartDTOs = carts.stream().map(cart -> {
-			CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
+			// Checked above, so a legacy duplicate renamed apart is fingerprinted too
+			product.setFingerprint(fingerprint);
+		}
 
-			List<ProductDTO> products = cart.getCartItems().stream()
-					.map(p -> modelMapper.map(p.getProduct(), ProductDTO.class)).collect(Collectors.toList());
+		// The counters own the stock of a hot product and carry the change to the row through their ledger
+		if (product.getQuantity() != null && hotStockCounters.setAvailable(productId, product.getQuantity())) {
+			product.setQuantity(productFromDB.getQuantity());
+		}
 
-			cartDTO.setProducts(products);
+		product.setSpecialPrice(Pricing.specialPrice(product.getPrice(), product.getDiscount()));
 
-			return cartDTO;
+		Product savedProduct = productRepo.save(product);
 
-		}).collect(Collectors.toList());
+		eventPublisher.publishEvent(ProductChangedEvent.saved(savedProduct));
 
-		cartDTOs.forEach(cart -> cartService.updateProductInCarts(cart.getCartId(), productId));
+		cartRepricer.reprice(productId);
 
 		return modelMapper.map(savedProduct, ProductDTO.class);
 
@@ -262,6 +397,8 @@ public class ProductServiceImpl implements ProductService {
 
 		Product updatedProduct = productRepo.save(productFromDB);
 
+		eventPublisher.publishEvent(ProductChangedEvent.saved(updatedProduct));
+
 		return modelMapper.map(updatedProduct, ProductDTO.class);
 	}
 
@@ -272,20 +409,22 @@ public class ProductServiceImpl implements ProductService {
 		Product product = productRepo.findById(productId)
 				.orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
 
-		List<Cart> carts = cartRepo.findCartsByProductId(productId);
-
-		carts.forEach(cart -> cartService.deleteProductFromCart(cart.getCartId(), productId));
+		cartRepo.deductProductFromCarts(productId);
+		cartItemRepo.deleteByProductId(productId);
 
 		productRepo.delete(product);
+		productTombstoneRepo.save(new ProductTombstone(productId, LocalDateTime.now()));
+
+		eventPublisher.publishEvent(ProductChangedEvent.deleted(product));
 
 		return "Product with productId: " + productId + " deleted successfully !!!";
 		/*
 		- String deleteProduct(Long productId)
 		 i. Fetch the product from the productRepo using the productId.
 		 ii. If the product is not found, throw an APIException.
-		 iii. Fetch the carts containing the product using the cartRepo.
-		 iv. Iterate over the carts list and delete the product from the carts using the cartService.
-		 v. Delete the product from the productRepo.
+		 iii. Deduct the product's lines from the totals of the carts holding it, in one update.
+		 iv. Delete the product's cart items in one statement.
+		 v. Delete the product from the productRepo, and record a tombstone for incremental exports.
 		 vi. Return a success message.
 
 		 */
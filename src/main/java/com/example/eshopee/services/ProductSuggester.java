@@ -0,0 +1,613 @@
+package com.example.eshopee.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.entites.OrderItem;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.payloads.SuggestionDTO;
+import com.example.eshopee.payloads.SuggestionStatsDTO;
+import com.example.eshopee.repositories.CategoryRepo;
+import com.example.eshopee.repositories.OrderItemRepo;
+import com.example.eshopee.repositories.ProductRepo;
+
+/**
+ * Typeahead over product and category names, held in a compressed (radix) trie.
+ *
+ * Every name is indexed from the start of each of its first words, so "iph" finds
+ * "Apple iPhone". Each node keeps the best {@link #MAX_SUGGESTIONS} entries of its subtree,
+ * ranked by popularity (units ordered), so a lookup is a walk down the prefix and a copy.
+ * Popularity is summed from order_items at startup and then raised as each order is placed.
+ *
+ * The trie keeps a running estimate of its heap footprint. Once it goes over
+ * project.suggest.max-bytes the least popular entries are evicted.
+ */
+@Component
+public class ProductSuggester {
+
+	public static final int MAX_SUGGESTIONS = 10;
+
+	private static final int MAX_WORD_STARTS = 4;
+	private static final int REBUILD_BATCH_SIZE = 1000;
+
+	// Approximate HotSpot sizes with compressed oops, used for the footprint estimate
+	private static final int NODE_BYTES = 32;
+	private static final int STRING_BYTES = 40;
+	private static final int ARRAY_BYTES = 16;
+	private static final int REFERENCE_BYTES = 4;
+	// Entry object plus its HashMap and TreeSet nodes
+	private static final int ENTRY_BYTES = 120;
+
+	private static final Node[] NO_CHILDREN = new Node[0];
+	private static final Entry[] NO_ENTRIES = new Entry[0];
+
+	private static final Comparator<Entry> BY_RANK = Comparator.comparingLong((Entry e) -> -e.popularity)
+			.thenComparing(e -> e.text).thenComparing(e -> e.type).thenComparingLong(e -> e.id);
+
+	@Autowired
+	private ProductRepo productRepo;
+
+	@Autowired
+	private CategoryRepo categoryRepo;
+
+	@Autowired
+	private OrderItemRepo orderItemRepo;
+
+	@Value("${project.suggest.max-bytes:67108864}")
+	private long maxBytes;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private Node root = new Node("");
+
+	private final Map<Long, Entry> products = new HashMap<>();
+	private final Map<Long, Entry> categories = new HashMap<>();
+
+	// Best first, so the last element is the next one to evict
+	private final TreeSet<Entry> ranked = new TreeSet<>(BY_RANK);
+
+	private long nodes = 1;
+	private long estimatedBytes = sizeOf(root);
+	private long evictedEntries;
+
+	private enum Type {
+		PRODUCT, CATEGORY
+	}
+
+	private record Entry(Type type, long id, String text, long popularity) {
+	}
+
+	private static final class Node {
+
+		String label;
+		Node[] children = NO_CHILDREN;
+		Entry[] entries = NO_ENTRIES;
+		Entry[] top = NO_ENTRIES;
+
+		Node(String label) {
+			this.label = label;
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		Map<Long, Long> productPopularity = new HashMap<>();
+		Map<Long, Long> categoryPopularity = new HashMap<>();
+
+		for (Object[] row : orderItemRepo.sumQuantityByProduct()) {
+			productPopularity.put((Long) row[0], (Long) row[1]);
+		}
+
+		lock.writeLock().lock();
+		try {
+			root = new Node("");
+			products.clear();
+			categories.clear();
+			ranked.clear();
+			nodes = 1;
+			estimatedBytes = sizeOf(root);
+			evictedEntries = 0;
+
+			Long lastId = 0L;
+			List<Object[]> batch;
+
+			do {
+				batch = productRepo.findSuggestableProductsAfter(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+
+				for (Object[] row : batch) {
+					lastId = (Long) row[0];
+					long popularity = productPopularity.getOrDefault(lastId, 0L);
+
+					add(new Entry(Type.PRODUCT, lastId, (String) row[1], popularity));
+
+					if (row[2] != null) {
+						categoryPopularity.merge((Long) row[2], popularity, Long::sum);
+					}
+				}
+			} while (batch.size() == REBUILD_BATCH_SIZE);
+
+			for (Category category : categoryRepo.findAll()) {
+				add(new Entry(Type.CATEGORY, category.getCategoryId(), category.getCategoryName(),
+						categoryPopularity.getOrDefault(category.getCategoryId(), 0L)));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProductChanged(ProductChangedEvent event) {
+		Product product = event.getProduct();
+
+		lock.writeLock().lock();
+		try {
+			Entry previous = products.get(product.getProductId());
+
+			if (previous != null) {
+				remove(previous);
+			}
+
+			if (!event.isDeleted()) {
+				add(new Entry(Type.PRODUCT, product.getProductId(), product.getProductName(),
+						previous == null ? 0 : previous.popularity()));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProductsImported(ProductsImportedEvent event) {
+		lock.writeLock().lock();
+		try {
+			for (Product product : event.getProducts()) {
+				add(new Entry(Type.PRODUCT, product.getProductId(), product.getProductName(), 0));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onOrderPlaced(OrderPlacedEvent event) {
+		Map<Long, Long> productUnits = new HashMap<>();
+		Map<Long, Long> categoryUnits = new HashMap<>();
+
+		for (OrderItem item : event.getOrderItems()) {
+			Product product = item.getProduct();
+
+			productUnits.merge(product.getProductId(), (long) item.getQuantity(), Long::sum);
+
+			if (product.getCategory() != null) {
+				categoryUnits.merge(product.getCategory().getCategoryId(), (long) item.getQuantity(), Long::sum);
+			}
+		}
+
+		lock.writeLock().lock();
+		try {
+			productUnits.forEach((productId, units) -> addPopularity(products.get(productId), units));
+			categoryUnits.forEach((categoryId, units) -> addPopularity(categories.get(categoryId), units));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCategoryChanged(CategoryChangedEvent event) {
+		Category category = event.getCategory();
+
+		lock.writeLock().lock();
+		try {
+			Entry previous = categories.get(category.getCategoryId());
+
+			if (previous != null) {
+				remove(previous);
+			}
+
+			if (!event.isDeleted()) {
+				add(new Entry(Type.CATEGORY, category.getCategoryId(), category.getCategoryName(),
+						previous == null ? 0 : previous.popularity()));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns up to limit product and category names with a word starting with prefix, most
+	 * popular first.
+	 */
+	public List<SuggestionDTO> suggest(String prefix, int limit) {
+		String key = normalize(prefix);
+
+		if (key.isEmpty() || limit <= 0) {
+			return Collections.emptyList();
+		}
+
+		lock.readLock().lock();
+		try {
+			Node node = root;
+			int offset = 0;
+
+			while (offset < key.length()) {
+				Node child = child(node, key.charAt(offset));
+
+				if (child == null) {
+					return Collections.emptyList();
+				}
+
+				int common = commonPrefix(child.label, key, offset);
+
+				if (offset + common == key.length()) {
+					node = child;
+					break;
+				}
+
+				if (common < child.label.length()) {
+					return Collections.emptyList();
+				}
+
+				node = child;
+				offset += common;
+			}
+
+			List<SuggestionDTO> suggestions = new ArrayList<>(Math.min(limit, node.top.length));
+
+			for (int i = 0; i < node.top.length && i < limit; i++) {
+				Entry entry = node.top[i];
+				suggestions.add(new SuggestionDTO(entry.text(), entry.type().name(), entry.id()));
+			}
+
+			return suggestions;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public SuggestionStatsDTO stats() {
+		lock.readLock().lock();
+		try {
+			return new SuggestionStatsDTO((long) ranked.size(), nodes, estimatedBytes, maxBytes, evictedEntries);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void add(Entry entry) {
+		Set<String> keys = keys(entry.text());
+
+		if (keys.isEmpty()) {
+			return;
+		}
+
+		for (String key : keys) {
+			insert(root, key, 0, entry);
+		}
+
+		(entry.type() == Type.PRODUCT ? products : categories).put(entry.id(), entry);
+		ranked.add(entry);
+		estimatedBytes += ENTRY_BYTES + STRING_BYTES + entry.text().length();
+
+		while (estimatedBytes > maxBytes && !ranked.isEmpty()) {
+			remove(ranked.last());
+			evictedEntries++;
+		}
+	}
+
+	/**
+	 * Re-ranks an indexed entry with units more ordered. An evicted entry is left out until the
+	 * next rebuild, which counts every order.
+	 */
+	private void addPopularity(Entry previous, long units) {
+		if (previous == null) {
+			return;
+		}
+
+		remove(previous);
+		add(new Entry(previous.type(), previous.id(), previous.text(), previous.popularity() + units));
+	}
+
+	private void remove(Entry entry) {
+		if (!ranked.remove(entry)) {
+			return;
+		}
+
+		(entry.type() == Type.PRODUCT ? products : categories).remove(entry.id());
+		estimatedBytes -= ENTRY_BYTES + STRING_BYTES + entry.text().length();
+
+		for (String key : keys(entry.text())) {
+			delete(root, key, 0, entry);
+		}
+	}
+
+	/**
+	 * Adds entry under key, below node whose label has already been matched up to offset.
+	 */
+	private void insert(Node node, String key, int offset, Entry entry) {
+		if (offset == key.length()) {
+			resize(node, () -> node.entries = append(node.entries, entry));
+			offerTop(node, entry);
+			return;
+		}
+
+		Node child = child(node, key.charAt(offset));
+
+		if (child == null) {
+			Node leaf = newNode(key.substring(offset));
+			resize(leaf, () -> leaf.entries = new Entry[] { entry });
+			offerTop(leaf, entry);
+			resize(node, () -> node.children = withChild(node.children, leaf));
+		} else {
+			int common = commonPrefix(child.label, key, offset);
+
+			if (common < child.label.length()) {
+				child = split(node, child, common);
+			}
+
+			insert(child, key, offset + common, entry);
+		}
+
+		offerTop(node, entry);
+	}
+
+	/**
+	 * Removes entry from under key, pruning empty nodes and merging single-child chains so the
+	 * trie stays compressed.
+	 */
+	private void delete(Node node, String key, int offset, Entry entry) {
+		if (offset == key.length()) {
+			resize(node, () -> node.entries = without(node.entries, entry));
+			dropFromTop(node, entry);
+			return;
+		}
+
+		Node child = child(node, key.charAt(offset));
+
+		if (child == null || commonPrefix(child.label, key, offset) < child.label.length()) {
+			return;
+		}
+
+		delete(child, key, offset + child.label.length(), entry);
+
+		if (child.entries.length == 0 && child.children.length == 0) {
+			resize(node, () -> node.children = withoutChild(node.children, child));
+			release(child);
+		} else if (child.entries.length == 0 && child.children.length == 1) {
+			Node grandchild = child.children[0];
+			String label = child.label + grandchild.label;
+
+			resize(grandchild, () -> grandchild.label = label);
+			resize(node, () -> node.children = withChild(withoutChild(node.children, child), grandchild));
+			release(child);
+		}
+
+		dropFromTop(node, entry);
+	}
+
+	/**
+	 * Splits child after its first length label characters, returning the new parent.
+	 */
+	private Node split(Node node, Node child, int length) {
+		Node parent = newNode(child.label.substring(0, length));
+
+		resize(node, () -> node.children = withoutChild(node.children, child));
+		resize(child, () -> child.label = child.label.substring(length));
+		resize(parent, () -> parent.children = new Node[] { child });
+		refreshTop(parent);
+		resize(node, () -> node.children = withChild(node.children, parent));
+
+		return parent;
+	}
+
+	/**
+	 * Adds a newly inserted entry of the subtree to the node's top list if it ranks high enough.
+	 */
+	private void offerTop(Node node, Entry entry) {
+		Entry[] top = node.top;
+
+		if (Arrays.asList(top).contains(entry)
+				|| (top.length == MAX_SUGGESTIONS && BY_RANK.compare(entry, top[top.length - 1]) > 0)) {
+			return;
+		}
+
+		int insertAt = 0;
+
+		while (insertAt < top.length && BY_RANK.compare(top[insertAt], entry) < 0) {
+			insertAt++;
+		}
+
+		Entry[] updated = new Entry[Math.min(top.length + 1, MAX_SUGGESTIONS)];
+		System.arraycopy(top, 0, updated, 0, insertAt);
+		updated[insertAt] = entry;
+		System.arraycopy(top, insertAt, updated, insertAt + 1, updated.length - insertAt - 1);
+
+		resize(node, () -> node.top = updated);
+	}
+
+	/**
+	 * Recomputes the node's top list from its entries and its children's top lists, but only if
+	 * the removed entry was on it.
+	 */
+	private void dropFromTop(Node node, Entry entry) {
+		if (Arrays.asList(node.top).contains(entry)) {
+			refreshTop(node);
+		}
+	}
+
+	private void refreshTop(Node node) {
+		List<Entry> candidates = new ArrayList<>(Arrays.asList(node.entries));
+
+		for (Node child : node.children) {
+			candidates.addAll(Arrays.asList(child.top));
+		}
+
+		candidates.sort(BY_RANK);
+
+		List<Entry> top = new ArrayList<>(MAX_SUGGESTIONS);
+
+		for (Entry candidate : candidates) {
+			// The same name can be reachable through several of its word starts
+			if (top.isEmpty() || !top.get(top.size() - 1).equals(candidate)) {
+				top.add(candidate);
+			}
+
+			if (top.size() == MAX_SUGGESTIONS) {
+				break;
+			}
+		}
+
+		resize(node, () -> node.top = top.toArray(NO_ENTRIES));
+	}
+
+	private Node newNode(String label) {
+		Node node = new Node(label);
+
+		nodes++;
+		estimatedBytes += sizeOf(node);
+
+		return node;
+	}
+
+	private void release(Node node) {
+		nodes--;
+		estimatedBytes -= sizeOf(node);
+	}
+
+	private void resize(Node node, Runnable change) {
+		estimatedBytes -= sizeOf(node);
+		change.run();
+		estimatedBytes += sizeOf(node);
+	}
+
+	private static long sizeOf(Node node) {
+		return NODE_BYTES + STRING_BYTES + node.label.length() + sizeOf(node.children) + sizeOf(node.entries)
+				+ sizeOf(node.top);
+	}
+
+	private static long sizeOf(Object[] array) {
+		return array.length == 0 ? 0 : ARRAY_BYTES + (long) REFERENCE_BYTES * array.length;
+	}
+
+	private static Node child(Node node, char c) {
+		int index = childIndex(node.children, c);
+
+		return index < 0 ? null : node.children[index];
+	}
+
+	private static int childIndex(Node[] children, char c) {
+		int low = 0;
+		int high = children.length - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			char midChar = children[mid].label.charAt(0);
+
+			if (midChar < c) {
+				low = mid + 1;
+			} else if (midChar > c) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+
+		return -(low + 1);
+	}
+
+	private static Node[] withChild(Node[] children, Node child) {
+		int insertAt = -(childIndex(children, child.label.charAt(0)) + 1);
+
+		Node[] copy = new Node[children.length + 1];
+		System.arraycopy(children, 0, copy, 0, insertAt);
+		copy[insertAt] = child;
+		System.arraycopy(children, insertAt, copy, insertAt + 1, children.length - insertAt);
+
+		return copy;
+	}
+
+	private static Node[] withoutChild(Node[] children, Node child) {
+		int index = childIndex(children, child.label.charAt(0));
+
+		if (children.length == 1) {
+			return NO_CHILDREN;
+		}
+
+		Node[] copy = new Node[children.length - 1];
+		System.arraycopy(children, 0, copy, 0, index);
+		System.arraycopy(children, index + 1, copy, index, children.length - index - 1);
+
+		return copy;
+	}
+
+	private static Entry[] append(Entry[] entries, Entry entry) {
+		Entry[] copy = Arrays.copyOf(entries, entries.length + 1);
+		copy[entries.length] = entry;
+
+		return copy;
+	}
+
+	private static Entry[] without(Entry[] entries, Entry entry) {
+		List<Entry> remaining = new ArrayList<>(Arrays.asList(entries));
+		remaining.remove(entry);
+
+		return remaining.isEmpty() ? NO_ENTRIES : remaining.toArray(NO_ENTRIES);
+	}
+
+	private static int commonPrefix(String label, String key, int offset) {
+		int length = Math.min(label.length(), key.length() - offset);
+		int i = 0;
+
+		while (i < length && label.charAt(i) == key.charAt(offset + i)) {
+			i++;
+		}
+
+		return i;
+	}
+
+	/**
+	 * The keys a name is indexed under: the normalized name from each of its first words on.
+	 */
+	private static Set<String> keys(String text) {
+		String normalized = normalize(text);
+		Set<String> keys = new LinkedHashSet<>();
+
+		if (normalized.isEmpty()) {
+			return keys;
+		}
+
+		int start = 0;
+
+		for (int word = 0; word < MAX_WORD_STARTS && start >= 0; word++) {
+			keys.add(normalized.substring(start));
+
+			int space = normalized.indexOf(' ', start);
+			start = space < 0 ? -1 : space + 1;
+		}
+
+		return keys;
+	}
+
+	static String normalize(String text) {
+		return text == null ? "" : text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+	}
+
+}
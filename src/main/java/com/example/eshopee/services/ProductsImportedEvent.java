@@ -0,0 +1,20 @@
+package com.example.eshopee.services;
+
+import java.util.List;
+
+import com.example.eshopee.entites.Product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@link ProductImporter} once per imported chunk, in place of one
+ * {@link ProductChangedEvent} per product.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductsImportedEvent {
+
+	private final List<Product> products;
+
+}
@@ -0,0 +1,19 @@
+package com.example.eshopee.services;
+
+import java.util.Collection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published whenever products.quantity moves without a product save: by {@link Inventory}, by
+ * {@link HotStockCounters} when it flushes its ledger and by {@link CartReservationSweeper}.
+ * Carries only the product ids; listeners read the quantity they need once the change commits.
+ */
+@Getter
+@AllArgsConstructor
+public class StockChangedEvent {
+
+	private final Collection<Long> productIds;
+
+}
@@ -8,6 +8,8 @@ public interface UserService {
 	
 	UserResponse getAllUsers(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder);
 	
+	UserResponse getAllUsersAfter(String after, Integer pageSize, String sortBy, String sortOrder);
+	
 	UserDTO getUserById(Long userId);
 	
 	UserDTO updateUser(Long userId, UserDTO userDTO);
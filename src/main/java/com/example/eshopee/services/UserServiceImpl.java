@@ -9,7 +9,10 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -27,6 +30,7 @@ import com.example.eshopee.payloads.ProductDTO;
 import com.example.eshopee.payloads.UserDTO;
 import com.example.eshopee.payloads.UserResponse;
 import com.example.eshopee.repositories.AddressRepo;
+import com.example.eshopee.repositories.KeysetSpecification;
 import com.example.eshopee.repositories.RoleRepo;
 import com.example.eshopee.repositories.UserRepo;
 
@@ -48,6 +52,9 @@ class UserServiceImpl implements UserService {
 	@Autowired
 	private CartService cartService;
 
+	@Autowired
+	private CartStore cartStore;
+
 	@Autowired
 	private PasswordEncoder passwordEncoder;
 
@@ -126,25 +133,7 @@ class UserServiceImpl implements UserService {
 			throw new APIException("No User exists !!!");
 		}
 
-		List<UserDTO> userDTOs = users.stream().map(user -> {
-			UserDTO dto = modelMapper.map(user, UserDTO.class);
-
-			if (user.getAddresses().size() != 0) {
-				dto.setAddress(modelMapper.map(user.getAddresses().stream().findFirst().get(), AddressDTO.class));
-			}
-
-			CartDTO cart = modelMapper.map(user.getCart(), CartDTO.class);
-
-			List<ProductDTO> products = user.getCart().getCartItems().stream()
-					.map(item -> modelMapper.map(item.getProduct(), ProductDTO.class)).collect(Collectors.toList());
-
-			dto.setCart(cart);
-
-			dto.getCart().setProducts(products);
-
-			return dto;
-
-		}).collect(Collectors.toList());
+		List<UserDTO> userDTOs = users.stream().map(this::getUserListingDTO).collect(Collectors.toList());
 
 		UserResponse userResponse = new UserResponse();
 		
@@ -158,6 +147,50 @@ class UserServiceImpl implements UserService {
 		return userResponse;
 	}
 
+	@Override
+	public UserResponse getAllUsersAfter(String after, Integer pageSize, String sortBy, String sortOrder) {
+		Sort sort = KeysetCursor.sort(sortBy, sortOrder, "userId");
+
+		Specification<User> afterCursor = KeysetSpecification.after(KeysetCursor.position(after, sort), sort);
+
+		Window<User> windowUsers = userRepo.findBy(afterCursor,
+				q -> q.sortBy(sort).limit(pageSize).scroll(ScrollPosition.keyset()));
+
+		if (windowUsers.isEmpty()) {
+			throw new APIException("No User exists !!!");
+		}
+
+		List<UserDTO> userDTOs = windowUsers.stream().map(this::getUserListingDTO).collect(Collectors.toList());
+
+		UserResponse userResponse = new UserResponse();
+
+		userResponse.setContent(userDTOs);
+		userResponse.setPageSize(pageSize);
+		userResponse.setLastPage(!windowUsers.hasNext());
+		userResponse.setNextCursor(KeysetCursor.next(windowUsers, sort));
+
+		return userResponse;
+	}
+
+	private UserDTO getUserListingDTO(User user) {
+		UserDTO dto = modelMapper.map(user, UserDTO.class);
+
+		if (user.getAddresses().size() != 0) {
+			dto.setAddress(modelMapper.map(user.getAddresses().stream().findFirst().get(), AddressDTO.class));
+		}
+
+		CartDTO cart = modelMapper.map(user.getCart(), CartDTO.class);
+
+		List<ProductDTO> products = user.getCart().getCartItems().stream()
+				.map(item -> modelMapper.map(item.getProduct(), ProductDTO.class)).collect(Collectors.toList());
+
+		dto.setCart(cart);
+
+		dto.getCart().setProducts(products);
+
+		return dto;
+	}
+
 	@Override
 	public UserDTO getUserById(Long userId) {
 		User user = userRepo.findById(userId)
@@ -232,9 +265,12 @@ class UserServiceImpl implements UserService {
 		User user = userRepo.findById(userId)
 				.orElseThrow(() -> new ResourceNotFoundException("User", "userId", userId));
 
-		List<CartItem> cartItems = user.getCart().getCartItems();
 		Long cartId = user.getCart().getCartId();
 
+		cartStore.drain(cartId);
+
+		List<CartItem> cartItems = user.getCart().getCartItems();
+
 		cartItems.forEach(item -> {
 
 			Long productId = item.getProduct().getProductId();
@@ -0,0 +1,128 @@
+package com.example.eshopee.repositories;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.entites.CartItem;
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.payloads.ProductDTO;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Compares one page of the product listing read through entities + ModelMapper against the
+ * ProductDTO projection. Run with: mvn test -Dtest=ProductListingBenchmark -Dbenchmarks=true
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class ProductListingBenchmark {
+
+	private static final int PRODUCTS = 500;
+	private static final int CARTS = 20;
+	private static final int PAGE_SIZE = 20;
+	private static final int ROUNDS = 10;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private ProductRepo productRepo;
+
+	private final ModelMapper modelMapper = new ModelMapper();
+
+	@BeforeEach
+	void seed() {
+		Category category = new Category();
+		category.setCategoryName("Benchmark");
+		entityManager.persist(category);
+
+		Cart[] carts = new Cart[CARTS];
+
+		for (int i = 0; i < CARTS; i++) {
+			carts[i] = new Cart();
+			entityManager.persist(carts[i]);
+		}
+
+		for (int i = 0; i < PRODUCTS; i++) {
+			Product product = new Product();
+			product.setProductName("Product " + i);
+			product.setDescription("Benchmark product " + i);
+			product.setQuantity(100);
+			product.setPrice(10 + i);
+			product.setCategory(category);
+			entityManager.persist(product);
+
+			// Every product sits in every cart, which is what the eager cart-item fan-out pays for
+			for (Cart cart : carts) {
+				CartItem item = new CartItem();
+				item.setCart(cart);
+				item.setProduct(product);
+				item.setQuantity(1);
+				entityManager.persist(item);
+			}
+		}
+
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void entityPathVersusProjection() {
+		Sort sort = Sort.by("productId");
+
+		IntFunction<List<ProductDTO>> entityPath = page -> productRepo.findAll(PageRequest.of(page, PAGE_SIZE, sort))
+				.getContent().stream().map(p -> modelMapper.map(p, ProductDTO.class)).collect(Collectors.toList());
+
+		IntFunction<List<ProductDTO>> projectionPath = page -> productRepo
+				.findAllProductDTOs(PageRequest.of(page, PAGE_SIZE, sort)).getContent();
+
+		measure("entity + ModelMapper", entityPath);
+		measure("ProductDTO projection", projectionPath);
+
+		measure("entity + ModelMapper", entityPath);
+		measure("ProductDTO projection", projectionPath);
+	}
+
+	private void measure(String name, IntFunction<List<ProductDTO>> listing) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+		int pages = PRODUCTS / PAGE_SIZE;
+		long bytes = 0;
+		long nanos = 0;
+
+		for (int round = 0; round < ROUNDS; round++) {
+			for (int page = 0; page < pages; page++) {
+				long startBytes = threads.getCurrentThreadAllocatedBytes();
+				long start = System.nanoTime();
+
+				listing.apply(page);
+
+				// Every request starts with an empty persistence context
+				entityManager.clear();
+
+				nanos += System.nanoTime() - start;
+				bytes += threads.getCurrentThreadAllocatedBytes() - startBytes;
+			}
+		}
+
+		long calls = (long) ROUNDS * pages;
+
+		System.out.printf("%-24s %8.1f us/page %10.1f KB/page%n", name, nanos / 1000.0 / calls, bytes / 1024.0 / calls);
+	}
+
+}
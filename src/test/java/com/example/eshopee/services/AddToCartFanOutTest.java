@@ -0,0 +1,120 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.entites.Product;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Add-to-cart must not load the cart lines of other carts holding the same product, so its
+ * cost is the same for a niche product and for one sitting in hundreds of carts.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+class AddToCartFanOutTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private CartService cartService;
+
+	@Autowired
+	private ProductService productService;
+
+	private Statistics statistics;
+
+	private TestFixtures fixtures;
+
+	private Category category;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		fixtures = new TestFixtures(entityManager);
+
+		category = fixtures.category("Fan-out");
+	}
+
+	@Test
+	void addToCartCostDoesNotGrowWithCartsHoldingTheProduct() {
+		Product niche = productInCarts("Niche product", 5);
+		Product popular = productInCarts("Popular product", 200);
+
+		Cart nicheBuyer = fixtures.cart(null);
+		Cart popularBuyer = fixtures.cart(null);
+
+		entityManager.flush();
+		entityManager.clear();
+
+		long[] nicheCost = addToCart(nicheBuyer.getCartId(), niche.getProductId());
+		long[] popularCost = addToCart(popularBuyer.getCartId(), popular.getProductId());
+
+		assertEquals(nicheCost[0], popularCost[0], "statements");
+		assertEquals(nicheCost[1], popularCost[1], "entity loads");
+	}
+
+	@Test
+	void updateProductRepricesEveryCartHoldingIt() {
+		// Three carts in all, one chunk, so they are repriced inside this transaction
+		Product product = productInCarts("Repriced product", 2);
+		Cart holder = fixtures.cart(null);
+		fixtures.item(holder, product, 2);
+
+		entityManager.flush();
+		entityManager.clear();
+
+		Product update = new Product();
+		update.setProductName(product.getProductName());
+		update.setDescription(product.getDescription());
+		update.setQuantity(product.getQuantity());
+		update.setPrice(25);
+		update.setDiscount(20);
+
+		productService.updateProduct(product.getProductId(), update);
+
+		entityManager.flush();
+		entityManager.clear();
+
+		Cart reloaded = entityManager.find(Cart.class, holder.getCartId());
+		assertEquals(40.0, reloaded.getTotalPrice());
+		assertEquals(20.0, reloaded.getCartItems().get(0).getProductPrice());
+	}
+
+	private long[] addToCart(Long cartId, Long productId) {
+		statistics.clear();
+
+		cartService.addProductToCart(cartId, productId, 1);
+		entityManager.flush();
+
+		long[] cost = { statistics.getPrepareStatementCount(), statistics.getEntityLoadCount() };
+
+		entityManager.clear();
+
+		return cost;
+	}
+
+	private Product productInCarts(String name, int carts) {
+		Product product = fixtures.product(category, name, 1000, 10);
+
+		for (int i = 0; i < carts; i++) {
+			fixtures.item(fixtures.cart(null), product, 1);
+		}
+
+		return product;
+	}
+
+}
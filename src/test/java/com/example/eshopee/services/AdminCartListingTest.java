@@ -0,0 +1,101 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.payloads.CartDTO;
+import com.example.eshopee.payloads.CartResponse;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * The admin cart listing runs the same number of queries for a page of carts however many
+ * lines they hold, and filters on lines and total.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+class AdminCartListingTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private CartService cartService;
+
+	private Statistics statistics;
+
+	private TestFixtures fixtures;
+
+	private Category category;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		fixtures = new TestFixtures(entityManager);
+
+		category = fixtures.category("Listing");
+	}
+
+	@Test
+	void queryCountDoesNotGrowWithLines() {
+		Cart small = cart(1);
+		Cart large = cart(20);
+		Cart empty = cart(0);
+
+		entityManager.flush();
+		entityManager.clear();
+
+		long smallPage = statementsFor("asc", small);
+		long largePage = statementsFor("desc", large);
+
+		assertEquals(smallPage, largePage, "statements for 1 line vs 20 lines");
+		assertEquals(3, largePage, "page, count and lines queries");
+
+		CartResponse nonEmpty = cartService.getAllCarts(0, 10, "totalPrice", "desc", true, null);
+		List<Long> cartIds = nonEmpty.getContent().stream().map(CartDTO::getCartId).toList();
+
+		assertEquals(List.of(large.getCartId(), small.getCartId()), cartIds, "non-empty carts by total");
+		assertEquals(20, nonEmpty.getContent().get(0).getProducts().size(), "lines of the large cart");
+		assertEquals(2L, nonEmpty.getTotalElements());
+
+		CartResponse all = cartService.getAllCarts(0, 10, "cartId", "asc", false, null);
+
+		assertEquals(List.of(small.getCartId(), large.getCartId(), empty.getCartId()),
+				all.getContent().stream().map(CartDTO::getCartId).toList(), "all carts by id");
+	}
+
+	// Statements to list a page holding only the expected cart
+	private long statementsFor(String sortOrder, Cart expected) {
+		statistics.clear();
+
+		CartResponse response = cartService.getAllCarts(0, 1, "totalPrice", sortOrder, true, 5.0);
+
+		assertEquals(expected.getCartId(), response.getContent().get(0).getCartId());
+
+		return statistics.getPrepareStatementCount();
+	}
+
+	private Cart cart(int lines) {
+		Cart cart = fixtures.cart(null);
+
+		for (int i = 0; i < lines; i++) {
+			fixtures.item(cart, fixtures.product(category, "Listed product " + cart.getCartId() + "-" + i, 10, 10), 1);
+		}
+
+		return cart;
+	}
+
+}
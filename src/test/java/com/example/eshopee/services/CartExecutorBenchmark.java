@@ -0,0 +1,142 @@
+package com.example.eshopee.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.payloads.CartDTO;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Many requests adding to the same cart at once, run directly on the request threads and
+ * through the per-cart executor. Reports throughput, failed requests and whether the cart's
+ * total and line still match the adds that succeeded. Run with:
+ * mvn test -Dtest=CartExecutorBenchmark -Dbenchmarks=true
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class CartExecutorBenchmark {
+
+	private static final int CLIENTS = 16;
+	private static final int ADDS_PER_CLIENT = 50;
+	private static final double PRICE = 10;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private CartService cartService;
+
+	@Autowired
+	private CartExecutor cartExecutor;
+
+	@AfterEach
+	void tearDown() {
+		transactionTemplate.executeWithoutResult(status -> new TestFixtures(entityManager).deleteAll());
+	}
+
+	@Test
+	void directVersusSerialized() throws Exception {
+		measure("direct", false);
+		measure("cart executor", true);
+
+		measure("direct", false);
+		measure("cart executor", true);
+	}
+
+	private void measure(String name, boolean serialized) throws Exception {
+		Long[] ids = seed();
+		Long cartId = ids[0];
+		Long productId = ids[1];
+
+		ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger failed = new AtomicInteger();
+		List<Future<Integer>> results = new ArrayList<>();
+
+		for (int c = 0; c < CLIENTS; c++) {
+			results.add(clients.submit(() -> {
+				start.await();
+
+				int added = 0;
+
+				for (int i = 0; i < ADDS_PER_CLIENT; i++) {
+					try {
+						if (serialized) {
+							CompletableFuture<CartDTO> add = cartExecutor.submit(cartId,
+									() -> cartService.addProductToCart(cartId, productId, 1));
+							add.join();
+						} else {
+							cartService.addProductToCart(cartId, productId, 1);
+						}
+
+						added++;
+					} catch (RuntimeException e) {
+						failed.incrementAndGet();
+					}
+				}
+
+				return added;
+			}));
+		}
+
+		long begin = System.nanoTime();
+		start.countDown();
+
+		int added = 0;
+
+		for (Future<Integer> result : results) {
+			added += result.get();
+		}
+
+		long nanos = System.nanoTime() - begin;
+
+		clients.shutdown();
+		clients.awaitTermination(1, TimeUnit.MINUTES);
+
+		Object[] cart = transactionTemplate.execute(status -> {
+			Cart c = entityManager.find(Cart.class, cartId);
+			int units = c.getCartItems().stream().mapToInt(item -> item.getQuantity()).sum();
+
+			return new Object[] { c.getTotalPrice(), units, c.getCartItems().size() };
+		});
+
+		boolean consistent = (Double) cart[0] == added * PRICE && (Integer) cart[1] == added && (Integer) cart[2] == 1;
+
+		System.out.printf("%-14s %6.0f adds/s  %4d failed  total %7.1f for %4d adds, %d line(s): %s%n", name,
+				CLIENTS * ADDS_PER_CLIENT / (nanos / 1e9), failed.get(), cart[0], added, cart[2],
+				consistent ? "consistent" : "INCONSISTENT");
+	}
+
+	private Long[] seed() {
+		return transactionTemplate.execute(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+			Product product = fixtures.product(fixtures.category("Contention"), "Contended product", 1_000_000, PRICE);
+			Cart cart = fixtures.cart(null);
+
+			return new Long[] { cart.getCartId(), product.getProductId() };
+		});
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.exceptions.CartQueueFullException;
+
+/**
+ * Requests are refused once the queue is full, background writers are not, and a cart's tasks
+ * still run in order. A task that fails its version check is run again.
+ */
+class CartExecutorTest {
+
+	private CartExecutor cartExecutor;
+
+	@BeforeEach
+	void setUp() {
+		cartExecutor = new CartExecutor();
+
+		ReflectionTestUtils.setField(cartExecutor, "threads", 1);
+		ReflectionTestUtils.setField(cartExecutor, "queueCapacity", 2);
+		cartExecutor.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		cartExecutor.shutdown();
+	}
+
+	@Test
+	void requestsAreRefusedOnceTheQueueIsFull() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		StringBuilder order = new StringBuilder();
+
+		CompletableFuture<String> running = cartExecutor.submit(1L, () -> {
+			started.countDown();
+			await(release);
+			return order.append('a').toString();
+		});
+
+		started.await();
+
+		cartExecutor.submit(1L, () -> order.append('b').toString());
+		cartExecutor.submit(2L, () -> "other cart");
+
+		assertThrows(CartQueueFullException.class, () -> cartExecutor.submit(1L, () -> "refused"));
+
+		CompletableFuture<String> background = cartExecutor.submitBackground(1L, () -> order.append('c').toString());
+
+		release.countDown();
+
+		assertEquals("a", running.get());
+		assertEquals("abc", background.get());
+		assertEquals("ok", cartExecutor.submit(1L, () -> "ok").get(), "accepted again once drained");
+	}
+
+	@Test
+	void aTaskThatFailsItsVersionCheckIsRunAgain() throws Exception {
+		AtomicInteger runs = new AtomicInteger();
+
+		CompletableFuture<Integer> retried = cartExecutor.submit(1L, () -> {
+			if (runs.incrementAndGet() == 1) {
+				throw new ObjectOptimisticLockingFailureException(Cart.class, 1L);
+			}
+
+			return runs.get();
+		});
+
+		assertEquals(2, retried.get());
+
+		CompletableFuture<Integer> failing = cartExecutor.submit(1L, () -> {
+			runs.incrementAndGet();
+			throw new ObjectOptimisticLockingFailureException(Cart.class, 1L);
+		});
+
+		ExecutionException e = assertThrows(ExecutionException.class, failing::get);
+
+		assertInstanceOf(ObjectOptimisticLockingFailureException.class, e.getCause());
+		assertEquals(5, runs.get(), "given up after three runs");
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
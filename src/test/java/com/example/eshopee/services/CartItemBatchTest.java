@@ -0,0 +1,174 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.entites.CartItem;
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.exceptions.APIException;
+import com.example.eshopee.payloads.CartDTO;
+import com.example.eshopee.payloads.CartItemOperation;
+import com.example.eshopee.repositories.CartItemRepo;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Batch cart updates: the operations on one product fold in request order, stock follows the
+ * difference of each line, and one line that cannot be reserved rolls back the whole batch,
+ * for carts in the database and carts held by the cart store alike.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class CartItemBatchTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private CartService cartService;
+
+	@Autowired
+	private CartStore cartStore;
+
+	@Autowired
+	private CartItemRepo cartItemRepo;
+
+	@Autowired
+	private Inventory inventory;
+
+	@TempDir
+	private Path dir;
+
+	private Object mode;
+
+	private Object logPath;
+
+	// Lamp: 10 in stock, 2 in the cart. Rug: 5 in stock, 1 in the cart. Stool: 1 in stock.
+	private Long cartId;
+	private Long lamp;
+	private Long rug;
+	private Long stool;
+
+	@BeforeEach
+	void setUp() {
+		mode = ReflectionTestUtils.getField(cartStore, "mode");
+		logPath = ReflectionTestUtils.getField(cartStore, "logPath");
+		ReflectionTestUtils.setField(cartStore, "logPath", dir.resolve("carts.log"));
+
+		transactionTemplate.executeWithoutResult(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+			Category category = fixtures.category("Batch");
+
+			Product lampProduct = fixtures.product(category, "Batch lamp", 10, 20);
+			Product rugProduct = fixtures.product(category, "Batch rug", 5, 30);
+			Product stoolProduct = fixtures.product(category, "Batch stool", 1, 15);
+
+			Cart cart = fixtures.cart(null);
+			fixtures.item(cart, lampProduct, 2);
+			fixtures.item(cart, rugProduct, 1);
+
+			cartId = cart.getCartId();
+			lamp = lampProduct.getProductId();
+			rug = rugProduct.getProductId();
+			stool = stoolProduct.getProductId();
+		});
+	}
+
+	@AfterEach
+	void tearDown() {
+		((Map<?, ?>) ReflectionTestUtils.getField(cartStore, "carts")).clear();
+		ReflectionTestUtils.setField(cartStore, "mode", mode);
+		ReflectionTestUtils.setField(cartStore, "logPath", logPath);
+
+		transactionTemplate.executeWithoutResult(status -> new TestFixtures(entityManager).deleteAll());
+	}
+
+	@Test
+	void operationsOnOneProductFoldInRequestOrder() {
+		CartDTO cart = cartService.updateCartItems(cartId, List.of(operation("add", lamp, 3),
+				operation("update", lamp, 4), operation("update", rug, 3), operation("remove", rug, null),
+				operation("remove", stool, null), operation("add", stool, 1)));
+
+		assertEquals(Map.of(lamp, 4, stool, 1), lines());
+		assertEquals(95.0, cart.getTotalPrice());
+
+		// Lamp reserves the two units it grew by, rug releases its one unit, stool reserves its last
+		assertEquals(8, inventory.available(lamp), "lamp");
+		assertEquals(6, inventory.available(rug), "rug");
+		assertEquals(0, inventory.available(stool), "stool");
+	}
+
+	@Test
+	void aLineThatCannotBeReservedRollsBackTheBatch() {
+		// Lamp sorts first by productId, so its units are reserved before the stool fails
+		APIException refused = assertThrows(APIException.class, () -> cartService.updateCartItems(cartId,
+				List.of(operation("add", lamp, 3), operation("remove", rug, null), operation("add", stool, 2))));
+
+		assertEquals("Please, make an order of the Batch stool less than or equal to the quantity 1.",
+				refused.getMessage());
+
+		assertEquals(Map.of(lamp, 2, rug, 1), lines());
+		assertEquals(10, inventory.available(lamp), "lamp");
+		assertEquals(5, inventory.available(rug), "rug");
+		assertEquals(1, inventory.available(stool), "stool");
+	}
+
+	@Test
+	void cartsInTheCartStoreAreEditedInMemory() {
+		ReflectionTestUtils.setField(cartStore, "mode", "memory");
+
+		assertThrows(APIException.class, () -> cartService.updateCartItems(cartId,
+				List.of(operation("update", lamp, 5), operation("add", stool, 2))));
+
+		assertEquals(Map.of(lamp, 2, rug, 1), storedLines(), "after the refused batch");
+		assertEquals(10, inventory.available(lamp), "lamp after the refused batch");
+
+		CartDTO cart = cartService.updateCartItems(cartId,
+				List.of(operation("update", lamp, 5), operation("remove", rug, null)));
+
+		assertEquals(100.0, cart.getTotalPrice());
+		assertEquals(Map.of(lamp, 5), storedLines());
+		assertEquals(7, inventory.available(lamp), "lamp");
+		assertEquals(6, inventory.available(rug), "rug");
+
+		cartStore.flush();
+
+		assertEquals(Map.of(lamp, 5), lines());
+	}
+
+	private static CartItemOperation operation(String op, Long productId, Integer quantity) {
+		return new CartItemOperation(op, productId, quantity);
+	}
+
+	private Map<Long, Integer> lines() {
+		return transactionTemplate.execute(status -> cartItemRepo.findAll().stream()
+				.filter(item -> item.getCart().getCartId().equals(cartId))
+				.collect(Collectors.toMap(item -> item.getProduct().getProductId(), CartItem::getQuantity)));
+	}
+
+	private Map<Long, Integer> storedLines() {
+		return cartStore.read(cartId).lines().stream()
+				.collect(Collectors.toMap(CartStore.Line::productId, CartStore.Line::quantity));
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.entites.CartItem;
+import com.example.eshopee.entites.Product;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+
+/**
+ * Duplicate cart lines left from before the unique key are merged into the oldest one, and the
+ * key is added back.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class CartItemDedupeTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private CartItemDedupe cartItemDedupe;
+
+	@AfterEach
+	void tearDown() {
+		transactionTemplate.executeWithoutResult(status -> new TestFixtures(entityManager).deleteAll());
+	}
+
+	@Test
+	void duplicateLinesAreMergedAndTheKeyAdded() {
+		transactionTemplate.executeWithoutResult(status -> entityManager
+				.createNativeQuery("ALTER TABLE cart_items DROP CONSTRAINT uk_cart_items_cart_product").executeUpdate());
+
+		Long[] ids = transactionTemplate.execute(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+
+			Product product = fixtures.product(fixtures.category("Duplicates"), "Duplicated product", 100, 10);
+			Product other = fixtures.product(product.getCategory(), "Single product", 100, 4);
+			Cart cart = fixtures.cart(null);
+
+			CartItem oldest = fixtures.item(cart, product, 2);
+			fixtures.item(cart, other, 1);
+			fixtures.item(cart, product, 3);
+
+			return new Long[] { cart.getCartId(), oldest.getCartItemId() };
+		});
+
+		cartItemDedupe.dedupe();
+
+		transactionTemplate.executeWithoutResult(status -> {
+			Cart cart = entityManager.find(Cart.class, ids[0]);
+
+			assertEquals(2, cart.getCartItems().size(), "lines");
+			assertEquals(5, entityManager.find(CartItem.class, ids[1]).getQuantity(), "merged quantity");
+			assertEquals(54.0, cart.getTotalPrice(), "total");
+		});
+
+		assertThrows(PersistenceException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+			Cart cart = entityManager.find(Cart.class, ids[0]);
+
+			new TestFixtures(entityManager).item(cart, cart.getCartItems().get(0).getProduct(), 1);
+			entityManager.flush();
+		}));
+	}
+
+}
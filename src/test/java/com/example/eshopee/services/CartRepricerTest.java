@@ -0,0 +1,114 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.payloads.RepriceProgressDTO;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * A fan-out larger than one chunk is repriced after commit, chunk by chunk, on the
+ * background thread.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class CartRepricerTest {
+
+	private static final int CARTS = 10;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private CartRepricer cartRepricer;
+
+	@AfterEach
+	void tearDown() {
+		transactionTemplate.executeWithoutResult(status -> new TestFixtures(entityManager).deleteAll());
+	}
+
+	@Test
+	void repricesLargeFanOutInChunksAfterCommit() throws InterruptedException {
+		List<Long> cartIds = new ArrayList<>();
+
+		Product product = transactionTemplate.execute(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+
+			Product p = fixtures.product(fixtures.category("Repricing"), "Chunked product", 100, 10);
+
+			for (int i = 0; i < CARTS; i++) {
+				Cart cart = fixtures.cart(null);
+				fixtures.item(cart, p, i + 1);
+
+				// Another 5.0 of lines the repricing must leave alone
+				cart.setTotalPrice(cart.getTotalPrice() + 5.0);
+
+				cartIds.add(cart.getCartId());
+			}
+
+			return p;
+		});
+
+		Product update = new Product();
+		update.setProductName(product.getProductName());
+		update.setDescription(product.getDescription());
+		update.setQuantity(product.getQuantity());
+		update.setPrice(20);
+		update.setDiscount(50);
+
+		productService.updateProduct(product.getProductId(), update);
+		update.setPrice(40);
+		productService.updateProduct(product.getProductId(), update);
+
+		RepriceProgressDTO progress = awaitFinished(product.getProductId());
+
+		assertEquals("COMPLETED", progress.getStatus());
+		assertEquals(CARTS, progress.getRepricedCarts());
+
+		transactionTemplate.executeWithoutResult(status -> {
+			for (int i = 0; i < CARTS; i++) {
+				Cart cart = entityManager.find(Cart.class, cartIds.get(i));
+
+				assertEquals(5.0 + 20 * (i + 1), cart.getTotalPrice());
+				assertEquals(20.0, cart.getCartItems().get(0).getProductPrice());
+			}
+		});
+	}
+
+	private RepriceProgressDTO awaitFinished(Long productId) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+
+		while (System.nanoTime() < deadline) {
+			RepriceProgressDTO progress = cartRepricer.progress().stream()
+					.filter(p -> p.getProductId().equals(productId)).findFirst().orElseThrow();
+
+			if (progress.getFinishedAt() != null) {
+				return progress;
+			}
+
+			Thread.sleep(20);
+		}
+
+		throw new AssertionError("Repricing did not finish");
+	}
+
+}
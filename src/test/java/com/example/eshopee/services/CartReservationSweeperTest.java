@@ -0,0 +1,145 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.entites.CartItem;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.payloads.ReservationSweepStatsDTO;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Expired cart lines give their units back to the product, in several batches, and leave
+ * their carts; lines inside the TTL and lines of carts held in memory stay.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class CartReservationSweeperTest {
+
+	private static final int STOCK = 100;
+	private static final int EXPIRED_CARTS = 8;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private CartReservationSweeper cartReservationSweeper;
+
+	@Autowired
+	private CartStore cartStore;
+
+	@AfterEach
+	void tearDown() {
+		((Map<?, ?>) ReflectionTestUtils.getField(cartStore, "carts")).clear();
+
+		transactionTemplate.executeWithoutResult(status -> new TestFixtures(entityManager).deleteAll());
+	}
+
+	@Test
+	void returnsExpiredReservationsInBatches() {
+		List<Long> expiredCartIds = new ArrayList<>();
+		Long[] fresh = new Long[1];
+
+		Long productId = transactionTemplate.execute(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+
+			Product product = fixtures.product(fixtures.category("Reservations"), "Reserved product", STOCK, 10);
+
+			for (int i = 0; i <= EXPIRED_CARTS; i++) {
+				boolean expired = i < EXPIRED_CARTS;
+
+				Cart cart = fixtures.cart(null);
+
+				CartItem item = fixtures.item(cart, product, i + 1);
+				item.setReservedAt(LocalDateTime.now().minusMinutes(expired ? 60 + i : 5));
+
+				if (expired) {
+					expiredCartIds.add(cart.getCartId());
+				} else {
+					fresh[0] = cart.getCartId();
+				}
+			}
+
+			return product.getProductId();
+		});
+
+		cartReservationSweeper.sweep();
+
+		// 1 + 2 + ... + 8 units come back from the expired lines
+		int returned = EXPIRED_CARTS * (EXPIRED_CARTS + 1) / 2;
+
+		transactionTemplate.executeWithoutResult(status -> {
+			assertEquals(STOCK + returned, entityManager.find(Product.class, productId).getQuantity(), "stock");
+
+			for (Long cartId : expiredCartIds) {
+				Cart cart = entityManager.find(Cart.class, cartId);
+
+				assertEquals(0, cart.getCartItems().size(), "lines of expired cart " + cartId);
+				assertEquals(0.0, cart.getTotalPrice(), "total of expired cart " + cartId);
+			}
+
+			Cart cart = entityManager.find(Cart.class, fresh[0]);
+
+			assertEquals(1, cart.getCartItems().size(), "lines of fresh cart");
+			assertEquals(10.0 * (EXPIRED_CARTS + 1), cart.getTotalPrice(), "total of fresh cart");
+		});
+
+		ReservationSweepStatsDTO stats = cartReservationSweeper.stats();
+
+		assertEquals(EXPIRED_CARTS, stats.getLastRunLines());
+		assertEquals(returned, stats.getLastRunUnits());
+	}
+
+	@Test
+	void leavesTheLinesOfACartHeldInMemory() {
+		List<Long> cartIds = new ArrayList<>();
+
+		Long productId = transactionTemplate.execute(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+
+			Product product = fixtures.product(fixtures.category("Reservations"), "Held product", STOCK, 10);
+
+			for (int i = 0; i < 3; i++) {
+				Cart cart = fixtures.cart(null);
+				fixtures.item(cart, product, 1).setReservedAt(LocalDateTime.now().minusMinutes(60));
+
+				cartIds.add(cart.getCartId());
+			}
+
+			return product.getProductId();
+		});
+
+		cartStore.read(cartIds.get(1));
+
+		cartReservationSweeper.sweep();
+
+		transactionTemplate.executeWithoutResult(status -> {
+			assertEquals(STOCK + 2, entityManager.find(Product.class, productId).getQuantity(), "stock");
+
+			for (int i = 0; i < 3; i++) {
+				assertEquals(i == 1 ? 1 : 0, entityManager.find(Cart.class, cartIds.get(i)).getCartItems().size(),
+						"lines of cart " + i);
+			}
+		});
+
+		assertEquals(2, cartReservationSweeper.stats().getLastRunLines());
+	}
+
+}
@@ -0,0 +1,225 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.entites.CartItem;
+import com.example.eshopee.repositories.CartItemRepo;
+import com.example.eshopee.repositories.CartRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * The write-behind cart store: work on a cart's rows done while the cart is not in memory,
+ * edits written to the database at a flush, a cart that cannot be written kept apart from the
+ * others, and carts replayed from a log whose last line was torn by a crash. Each test logs to
+ * a file of its own and starts with no carts in memory.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class CartStoreTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private CartStore cartStore;
+
+	@Autowired
+	private CartItemRepo cartItemRepo;
+
+	@Autowired
+	private CartRepo cartRepo;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@TempDir
+	private Path dir;
+
+	private Object logPath;
+
+	@BeforeEach
+	void setUp() {
+		logPath = ReflectionTestUtils.getField(cartStore, "logPath");
+		ReflectionTestUtils.setField(cartStore, "logPath", dir.resolve("carts.log"));
+	}
+
+	@AfterEach
+	void tearDown() {
+		((Map<?, ?>) ReflectionTestUtils.getField(cartStore, "carts")).clear();
+		ReflectionTestUtils.setField(cartStore, "logPath", logPath);
+
+		transactionTemplate.executeWithoutResult(status -> new TestFixtures(entityManager).deleteAll());
+	}
+
+	@Test
+	void aLoadWaitsForWorkOnTheCartsRowsToCommit() throws Exception {
+		Long cartId = cartWithOneLine("Unheld cart product");
+		Long otherCartId = cartWithOneLine("Other cart product");
+
+		CountDownLatch working = new CountDownLatch(1);
+		CompletableFuture<CartStore.Lines> load = new CompletableFuture<>();
+
+		Integer deleted = cartStore.unlessHeld(List.of(cartId), cartIds -> {
+			assertEquals(List.of(cartId), cartIds);
+
+			CompletableFuture.runAsync(() -> {
+				working.countDown();
+				load.complete(cartStore.read(cartId));
+			});
+
+			await(working);
+
+			// Other carts load meanwhile
+			assertEquals(1, CompletableFuture.supplyAsync(() -> cartStore.read(otherCartId)).join().lines().size());
+
+			// Gives the load every chance to run ahead if it could
+			sleep(200);
+
+			return cartItemRepo.deleteByIdIn(List.of(cartItemRepo.findCartItemByProductIdAndCartId(cartId,
+					productOf(cartId)).getCartItemId()));
+		});
+
+		assertEquals(1, deleted);
+		assertEquals(0, load.get().lines().size(), "lines loaded from the rows");
+
+		assertNull(cartStore.unlessHeld(List.of(cartId, otherCartId), cartIds -> 1), "work on carts in memory");
+	}
+
+	@Test
+	void editsReachTheDatabaseAtTheNextFlush() throws Exception {
+		Long cartId = cartWithOneLine("Flushed cart product");
+		Long productId = cartItemRepo.findAll().get(0).getProduct().getProductId();
+
+		transactionTemplate.executeWithoutResult(status -> cartStore.edit(cartId).put(productId, 4, 10, 0));
+
+		assertEquals(1, lineQuantities(cartId).get(0), "before the flush");
+		assertEquals(1, Files.readAllLines(dir.resolve("carts.log")).size(), "logged edits");
+
+		cartStore.flush();
+
+		assertEquals(List.of(4), lineQuantities(cartId));
+		assertEquals(40.0, transactionTemplate.execute(status -> cartRepo.findById(cartId).get().getTotalPrice()));
+		assertEquals(List.of(), Files.readAllLines(dir.resolve("carts.log")), "log after the flush");
+	}
+
+	@Test
+	void aCartThatCannotBeWrittenDoesNotHoldBackTheOthers() throws Exception {
+		Long goodCartId = cartWithOneLine("Flushed cart product");
+		Long badCartId = cartWithOneLine("Unwritable cart product");
+		Long goodProductId = productOf(goodCartId);
+		Long badProductId = productOf(badCartId);
+
+		transactionTemplate.executeWithoutResult(status -> entityManager
+				.createNativeQuery("ALTER TABLE cart_items ADD CONSTRAINT ck_cart_items_test CHECK (quantity < 1000)")
+				.executeUpdate());
+
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				cartStore.edit(goodCartId).put(goodProductId, 4, 10, 0);
+				cartStore.edit(badCartId).put(badProductId, 5000, 10, 0);
+			});
+
+			cartStore.flush();
+
+			assertEquals(List.of(4), lineQuantities(goodCartId));
+			assertEquals(List.of(1), lineQuantities(badCartId), "write refused");
+			assertEquals(1, Files.readAllLines(dir.resolve("carts.log")).size(), "still logged");
+		} finally {
+			transactionTemplate.executeWithoutResult(status -> entityManager
+					.createNativeQuery("ALTER TABLE cart_items DROP CONSTRAINT ck_cart_items_test").executeUpdate());
+		}
+
+		cartStore.flush();
+
+		assertEquals(List.of(5000), lineQuantities(badCartId));
+		assertEquals(List.of(), Files.readAllLines(dir.resolve("carts.log")), "log after the flush");
+	}
+
+	@Test
+	void replayStopsAtATornLastLine() throws Exception {
+		Long cartId = cartWithOneLine("Replayed cart product");
+		Long productId = cartItemRepo.findAll().get(0).getProduct().getProductId();
+
+		String complete = logLine(cartId, productId, 3);
+		String torn = logLine(cartId, productId, 7);
+
+		Files.writeString(dir.resolve("carts.log"),
+				logLine(cartId, productId, 2) + complete + torn.substring(0, torn.length() / 2),
+				StandardCharsets.UTF_8);
+
+		cartStore.replay();
+
+		assertEquals(List.of(3), lineQuantities(cartId));
+		assertEquals(30.0, transactionTemplate.execute(status -> cartRepo.findById(cartId).get().getTotalPrice()));
+		assertEquals(List.of(), Files.readAllLines(dir.resolve("carts.log")), "log after the replay");
+	}
+
+	private String logLine(Long cartId, Long productId, int quantity) throws Exception {
+		return objectMapper.writeValueAsString(Map.of("cartId", cartId, "lines",
+				List.of(Map.of("productId", productId, "quantity", quantity, "productPrice", 10.0, "discount", 0.0)),
+				"dropped", false)) + "\n";
+	}
+
+	private Long productOf(Long cartId) {
+		return transactionTemplate.execute(
+				status -> cartRepo.findById(cartId).get().getCartItems().get(0).getProduct().getProductId());
+	}
+
+	private List<Integer> lineQuantities(Long cartId) {
+		return transactionTemplate.execute(status -> cartRepo.findById(cartId).get().getCartItems().stream()
+				.map(CartItem::getQuantity).toList());
+	}
+
+	private Long cartWithOneLine(String productName) {
+		return transactionTemplate.execute(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+
+			Cart cart = fixtures.cart(null);
+			fixtures.item(cart, fixtures.product(fixtures.category("Stored carts"), productName, 10, 10), 1);
+
+			return cart.getCartId();
+		});
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.exceptions.APIException;
+import com.example.eshopee.payloads.ProductDTO;
+import com.example.eshopee.payloads.ProductResponse;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Category pages are sliced from the cached lists in (sort key, productId) order, the lists
+ * follow product changes and imports, and only indexed sort keys are cached; pages by other
+ * keys come from the database.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+class CategoryProductCacheTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private CategoryProductCache categoryProductCache;
+
+	@Autowired
+	private ProductService productService;
+
+	private TestFixtures fixtures;
+
+	private Category category;
+
+	@BeforeEach
+	void setUp() {
+		fixtures = new TestFixtures(entityManager);
+
+		category = fixtures.category("Cached");
+	}
+
+	@Test
+	void pagesFollowProductChanges() {
+		Product thirty = fixtures.product(category, "Cached product 30", 1, 30);
+		Product ten = fixtures.product(category, "Cached product 10", 1, 10);
+		Product twenty = fixtures.product(category, "Cached product 20", 1, 20);
+
+		CategoryProductCache.IdPage first = page("price", true, 0, 2);
+
+		assertEquals(List.of(ten.getProductId(), twenty.getProductId()), first.productIds());
+		assertEquals(3, first.totalElements());
+		assertEquals(List.of(thirty.getProductId(), twenty.getProductId()), page("price", false, 0, 2).productIds());
+
+		ten.setPrice(40);
+		categoryProductCache.onProductChanged(ProductChangedEvent.saved(ten));
+
+		assertEquals(List.of(twenty.getProductId(), thirty.getProductId(), ten.getProductId()),
+				page("price", true, 0, 10).productIds());
+
+		categoryProductCache.onProductChanged(ProductChangedEvent.deleted(thirty));
+
+		assertEquals(List.of(twenty.getProductId(), ten.getProductId()), page("price", true, 0, 10).productIds());
+		assertEquals(List.of(twenty.getProductId()), page("productId", false, 0, 1).productIds());
+	}
+
+	@Test
+	void importedProductsReloadTheirCategory() {
+		Product first = fixtures.product(category, "Cached product A", 1, 10);
+
+		assertEquals(List.of(first.getProductId()), page("productId", true, 0, 10).productIds());
+
+		Product imported = fixtures.product(category, "Cached product B", 1, 10);
+
+		categoryProductCache.onProductsImported(new ProductsImportedEvent(List.of(imported)));
+
+		assertEquals(List.of(first.getProductId(), imported.getProductId()), page("productId", true, 0, 10).productIds());
+	}
+
+	@Test
+	void onlyIndexedSortKeysAreCached() {
+		assertFalse(categoryProductCache.caches("quantity"));
+		assertThrows(APIException.class, () -> page("productName", true, 0, 10));
+	}
+
+	@Test
+	void otherSortKeysArePagedByTheDatabase() {
+		fixtures.product(fixtures.category("Elsewhere"), "Cached product A", 1, 10);
+		Product b = fixtures.product(category, "Cached product B", 1, 30);
+		Product a = fixtures.product(category, "Cached product A", 1, 20);
+		Product c = fixtures.product(category, "Cached product C", 1, 10);
+		entityManager.flush();
+
+		ProductResponse first = productService.searchByCategory(category.getCategoryId(), 0, 2, "productName", "asc");
+
+		assertEquals(List.of(a.getProductId(), b.getProductId()), idsOf(first));
+		assertEquals(3, first.getTotalElements());
+
+		assertEquals(List.of(c.getProductId(), a.getProductId(), b.getProductId()), idsOf(
+				productService.searchByCategory(category.getCategoryId(), 0, 10, "specialPrice", "asc")));
+	}
+
+	private static List<Long> idsOf(ProductResponse response) {
+		return response.getContent().stream().map(ProductDTO::getProductId).toList();
+	}
+
+	private CategoryProductCache.IdPage page(String sortBy, boolean ascending, int pageNumber, int pageSize) {
+		return categoryProductCache.getPage(category.getCategoryId(), sortBy, ascending, pageNumber, pageSize);
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.entites.Order;
+import com.example.eshopee.entites.OrderItem;
+import com.example.eshopee.payloads.OrderDTO;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Placing an order runs the same number of statements for a cart of one line as for a cart of
+ * twenty, empties the cart and leaves the stock the cart reserved alone.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+class CheckoutStatementsTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private OrderService orderService;
+
+	private Statistics statistics;
+
+	private TestFixtures fixtures;
+
+	private Category category;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		fixtures = new TestFixtures(entityManager);
+
+		category = fixtures.category("Checkout");
+	}
+
+	@Test
+	void statementCountDoesNotGrowWithLines() {
+		Cart warmUp = cart("warmup@checkout.test", 2);
+		Cart small = cart("small@checkout.test", 1);
+		Cart large = cart("large@checkout.test", 20);
+
+		entityManager.flush();
+		entityManager.clear();
+
+		// The first checkout also fetches a block of order item ids
+		checkout(warmUp, 2);
+
+		long smallOrder = checkout(small, 1);
+		long largeOrder = checkout(large, 20);
+
+		assertEquals(smallOrder, largeOrder, "statements for 1 line vs 20 lines");
+		assertEquals(9, largeOrder, "cart, user and lines reads, payment and order inserts, one batch of "
+				+ "order items, order summary insert, total reset and lines delete");
+	}
+
+	// Statements to place an order for the cart, which is then checked for the order and stock
+	private long checkout(Cart cart, int lines) {
+		statistics.clear();
+
+		OrderDTO orderDTO = orderService.placeOrder(cart.getUser().getEmail(), cart.getCartId(), "Card");
+
+		long statements = statistics.getPrepareStatementCount();
+
+		entityManager.flush();
+		entityManager.clear();
+
+		Order order = entityManager.find(Order.class, orderDTO.getOrderId());
+		Cart emptied = entityManager.find(Cart.class, cart.getCartId());
+
+		assertEquals(lines, order.getOrderItems().size(), "order items");
+		assertEquals(10.0 * lines, order.getTotalAmount());
+		assertEquals(0, emptied.getCartItems().size(), "lines left in the cart");
+		assertEquals(0.0, emptied.getTotalPrice());
+
+		for (OrderItem item : order.getOrderItems()) {
+			assertEquals(9, item.getProduct().getQuantity(), "stock after checkout");
+		}
+
+		return statements;
+	}
+
+	// A cart of lines, each reserving one unit of its own product
+	private Cart cart(String email, int lines) {
+		Cart cart = fixtures.cart(fixtures.user(email));
+
+		for (int i = 0; i < lines; i++) {
+			fixtures.item(cart, fixtures.product(category, "Checkout product " + cart.getCartId() + "-" + i, 9, 10), 1);
+		}
+
+		return cart;
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.entites.User;
+import com.example.eshopee.payloads.ProductDTO;
+import com.example.eshopee.payloads.ProductResponse;
+import com.example.eshopee.payloads.UserDTO;
+import com.example.eshopee.payloads.UserResponse;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Cursor listings over a sort key that is null for some rows visit every row exactly once,
+ * with the nulls first going up and last going down, both for products (scrolled by
+ * ProductRepoImpl) and for the listings scrolled through Spring Data.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+class CursorNullKeysTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private UserService userService;
+
+	// Ids in ascending order of quantity (null, null, 1, 1, 3) and of last name (null, null, Alpha, Bravo)
+	private List<Long> products;
+	private List<Long> users;
+
+	@BeforeEach
+	void setUp() {
+		TestFixtures fixtures = new TestFixtures(entityManager);
+		Category category = fixtures.category("Cursor");
+
+		Long unknownA = fixtures.product(category, "Cursor a", 0, 10).getProductId();
+		Long three = fixtures.product(category, "Cursor b", 3, 10).getProductId();
+		Long oneA = fixtures.product(category, "Cursor c", 1, 10).getProductId();
+		Long unknownB = fixtures.product(category, "Cursor d", 0, 10).getProductId();
+		Long oneB = fixtures.product(category, "Cursor e", 1, 10).getProductId();
+
+		Long bravo = user(fixtures, "bravo@cursor.test", "Bravo");
+		Long unnamedA = user(fixtures, "unnamed-a@cursor.test", null);
+		Long alpha = user(fixtures, "alpha@cursor.test", "Alpha");
+		Long unnamedB = user(fixtures, "unnamed-b@cursor.test", null);
+
+		entityManager.flush();
+		entityManager.createQuery("update Product p set p.quantity = null where p.productId in :ids")
+				.setParameter("ids", List.of(unknownA, unknownB)).executeUpdate();
+		entityManager.clear();
+
+		products = List.of(unknownA, unknownB, oneA, oneB, three);
+		users = List.of(unnamedA, unnamedB, alpha, bravo);
+	}
+
+	@Test
+	void productsPageThroughNullQuantities() {
+		assertEquals(products, scroll(after -> {
+			ProductResponse page = productService.getAllProductsAfter(after, 2, "quantity", "asc");
+			return new Page(page.getContent().stream().map(ProductDTO::getProductId).toList(), page.getNextCursor());
+		}));
+
+		assertEquals(reversed(products), scroll(after -> {
+			ProductResponse page = productService.getAllProductsAfter(after, 2, "quantity", "desc");
+			return new Page(page.getContent().stream().map(ProductDTO::getProductId).toList(), page.getNextCursor());
+		}));
+	}
+
+	@Test
+	void usersPageThroughNullLastNames() {
+		assertEquals(users, scroll(after -> {
+			UserResponse page = userService.getAllUsersAfter(after, 1, "lastName", "asc");
+			return new Page(page.getContent().stream().map(UserDTO::getUserId).toList(), page.getNextCursor());
+		}));
+
+		assertEquals(reversed(users), scroll(after -> {
+			UserResponse page = userService.getAllUsersAfter(after, 1, "lastName", "desc");
+			return new Page(page.getContent().stream().map(UserDTO::getUserId).toList(), page.getNextCursor());
+		}));
+	}
+
+	private Long user(TestFixtures fixtures, String email, String lastName) {
+		User user = fixtures.user(email);
+		user.setLastName(lastName);
+		user.setCart(fixtures.cart(user));
+
+		return user.getUserId();
+	}
+
+	private record Page(List<Long> ids, String nextCursor) {
+	}
+
+	private static List<Long> scroll(Function<String, Page> listing) {
+		List<Long> ids = new ArrayList<>();
+		Page page = listing.apply(null);
+
+		for (int pages = 1; page.nextCursor() != null; pages++) {
+			ids.addAll(page.ids());
+			page = listing.apply(page.nextCursor());
+
+			assertTrue(pages < 10, "the listing keeps returning pages");
+		}
+
+		ids.addAll(page.ids());
+
+		return ids;
+	}
+
+	private static List<Long> reversed(List<Long> ids) {
+		List<Long> reversed = new ArrayList<>(ids);
+		Collections.reverse(reversed);
+
+		return reversed;
+	}
+
+}
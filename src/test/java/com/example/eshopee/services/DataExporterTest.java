@@ -0,0 +1,167 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.entites.Order;
+import com.example.eshopee.entites.Product;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Product exports: every column in CSV and NDJSON, and incremental exports that pick up catalog
+ * changes but not stock moved by carts, and end with the products deleted since. Incremental order exports
+ * pick up orders changed since, whenever they were placed.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class DataExporterTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private DataExporter dataExporter;
+
+	@Autowired
+	private Inventory inventory;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@AfterEach
+	void tearDown() {
+		transactionTemplate.executeWithoutResult(status -> new TestFixtures(entityManager).deleteAll());
+	}
+
+	@Test
+	void sinceIncludesCatalogChangesAndDeletesButNotStockMoves() throws Exception {
+		List<Long> ids = seed();
+
+		LocalDateTime since = LocalDateTime.now();
+		Thread.sleep(5);
+
+		productService.updateProduct(ids.get(0), update("Lamp", 10, 30));
+		productService.deleteProduct(ids.get(1));
+		inventory.reserve(ids.get(2), 2);
+
+		List<JsonNode> rows = objectMapper.readerFor(JsonNode.class)
+				.<JsonNode>readValues(export(since, DataExporter.Format.NDJSON)).readAll();
+
+		assertEquals(2, rows.size(), "rows");
+
+		assertEquals(ids.get(0), rows.get(0).get("productId").asLong());
+		assertEquals(30.0, rows.get(0).get("price").asDouble());
+		assertFalse(rows.get(0).get("deleted").asBoolean());
+
+		assertEquals(ids.get(1), rows.get(1).get("productId").asLong());
+		assertTrue(rows.get(1).get("deleted").asBoolean());
+		assertTrue(rows.get(1).get("productName").isNull());
+	}
+
+	@Test
+	void csvQuotesValuesAndKeepsTombstonesInTheProductColumns() {
+		List<Long> ids = seed();
+
+		LocalDateTime since = LocalDateTime.now().minusMinutes(1);
+
+		productService.deleteProduct(ids.get(2));
+
+		String[] lines = export(since, DataExporter.Format.CSV).split("\n");
+
+		assertEquals("productId,categoryId,productName,description,image,quantity,price,discount,specialPrice,"
+				+ "updatedAt,deleted", lines[0]);
+		assertEquals(4, lines.length, "header, two products and a tombstone");
+		assertTrue(lines[2].startsWith(ids.get(1) + ","), lines[2]);
+		assertTrue(lines[2].contains(",\"Sofa, \"\"the big one\"\"\",\"Sofa, \"\"the big one\"\" description\","),
+				lines[2]);
+		assertTrue(lines[2].endsWith(",false"), lines[2]);
+		assertTrue(lines[3].startsWith(ids.get(2) + ",,,,,,,,,"), lines[3]);
+		assertTrue(lines[3].endsWith(",true"), lines[3]);
+	}
+
+	@Test
+	void sinceIncludesOrdersWhoseStatusChanged() throws Exception {
+		List<Long> ids = transactionTemplate.execute(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+
+			Order placed = fixtures.order("buyer@retailx.com", LocalDate.now().minusDays(3), "Card");
+			Order untouched = fixtures.order("buyer@retailx.com", LocalDate.now().minusDays(3), "Card");
+
+			return List.of(placed.getOrderId(), untouched.getOrderId());
+		});
+
+		LocalDateTime since = LocalDateTime.now();
+		Thread.sleep(5);
+
+		orderService.updateOrderStatus("buyer@retailx.com", ids.get(0), "Shipped");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		dataExporter.exportOrders(since, DataExporter.Format.NDJSON, out);
+
+		List<JsonNode> rows = objectMapper.readerFor(JsonNode.class)
+				.<JsonNode>readValues(out.toString(StandardCharsets.UTF_8)).readAll();
+
+		assertEquals(1, rows.size(), "rows");
+		assertEquals(ids.get(0), rows.get(0).get("orderId").asLong());
+		assertEquals("Shipped", rows.get(0).get("orderStatus").asText());
+	}
+
+	private List<Long> seed() {
+		return transactionTemplate.execute(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+			Category category = fixtures.category("Exported");
+
+			Product lamp = fixtures.product(category, "Lamp", 10, 25);
+			Product sofa = fixtures.product(category, "Sofa, \"the big one\"", 1, 900);
+			Product rug = fixtures.product(category, "Rug", 3, 120);
+
+			return List.of(lamp.getProductId(), sofa.getProductId(), rug.getProductId());
+		});
+	}
+
+	private static Product update(String name, int quantity, double price) {
+		Product product = new Product();
+		product.setProductName(name);
+		product.setDescription(name + " description");
+		product.setQuantity(quantity);
+		product.setPrice(price);
+
+		return product;
+	}
+
+	private String export(LocalDateTime since, DataExporter.Format format) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		dataExporter.exportProducts(since, format, out);
+
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,195 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.HotStockMovement;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.repositories.HotStockMovementRepo;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Hot stock movements are stored with the reservation that made them, rolled back with it, and
+ * applied to products.quantity by a flush or, after a crash, at startup. Stock changes never let
+ * the shards sell units they no longer hold.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class HotStockCountersTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private HotStockCounters hotStockCounters;
+
+	@Autowired
+	private HotStockMovementRepo movementRepo;
+
+	@AfterEach
+	void tearDown() {
+		transactionTemplate.executeWithoutResult(status -> new TestFixtures(entityManager).deleteAll());
+	}
+
+	@Test
+	void reservationsAreStoredUntilFlushedAndRolledBackWithTheirTransaction() {
+		Long productId = seed(10);
+
+		hotStockCounters.enable(productId);
+
+		transactionTemplate.executeWithoutResult(status -> assertTrue(hotStockCounters.reserve(productId, 3)));
+		transactionTemplate.executeWithoutResult(status -> {
+			assertTrue(hotStockCounters.reserve(productId, 4));
+			status.setRollbackOnly();
+		});
+
+		assertEquals(7L, hotStockCounters.available(productId));
+		assertEquals(1L, movementRepo.countByProductId(productId));
+		assertEquals(10, quantity(productId), "not flushed yet");
+
+		hotStockCounters.disable(productId);
+
+		assertEquals(0L, movementRepo.count());
+		assertEquals(7, quantity(productId));
+	}
+
+	@Test
+	void movementsLeftByACrashAreAppliedBeforeTheShardsAreSeeded() {
+		Long productId = seed(10);
+
+		hotStockCounters.enable(productId);
+
+		// Acknowledged reservations of a process that died before flushing them
+		transactionTemplate.executeWithoutResult(status -> {
+			movementRepo.save(new HotStockMovement(null, productId, -2));
+			movementRepo.save(new HotStockMovement(null, productId, -3));
+		});
+
+		hotStockCounters.load();
+
+		assertEquals(5L, hotStockCounters.available(productId));
+		assertEquals(5, quantity(productId));
+		assertEquals(0L, movementRepo.count());
+
+		hotStockCounters.disable(productId);
+	}
+
+	@Test
+	void loweredStockIsTakenFromEveryShard() {
+		Long productId = seed(100);
+
+		hotStockCounters.enable(productId);
+
+		transactionTemplate.executeWithoutResult(status -> assertTrue(hotStockCounters.setAvailable(productId, 0)));
+
+		assertEquals(0L, hotStockCounters.available(productId));
+
+		for (int i = 0; i < 8; i++) {
+			assertEquals(Boolean.FALSE, transactionTemplate.execute(status -> hotStockCounters.reserve(productId, 1)), "sold out");
+		}
+
+		hotStockCounters.disable(productId);
+
+		assertEquals(0, quantity(productId));
+	}
+
+	@Test
+	void releasedUnitsCanBeTakenOnlyOnceTheirTransactionCommits() {
+		Long productId = seed(0);
+
+		hotStockCounters.enable(productId);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			assertTrue(hotStockCounters.release(productId, 5));
+			assertFalse(hotStockCounters.reserve(productId, 1), "not committed yet");
+			status.setRollbackOnly();
+		});
+
+		assertEquals(0L, hotStockCounters.available(productId));
+
+		transactionTemplate.executeWithoutResult(status -> assertTrue(hotStockCounters.release(productId, 5)));
+
+		assertEquals(5L, hotStockCounters.available(productId));
+
+		hotStockCounters.disable(productId);
+
+		assertEquals(5, quantity(productId));
+	}
+
+	@Test
+	void disablingWaitsForAnOpenReservation() throws Exception {
+		Long productId = seed(10);
+
+		hotStockCounters.enable(productId);
+
+		CountDownLatch reserved = new CountDownLatch(1);
+		CountDownLatch commit = new CountDownLatch(1);
+		ExecutorService threads = Executors.newFixedThreadPool(2);
+
+		try {
+			Future<?> buyer = threads.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+				assertTrue(hotStockCounters.reserve(productId, 4));
+				reserved.countDown();
+				await(commit);
+			}));
+
+			await(reserved);
+
+			Future<?> disabled = threads.submit(() -> hotStockCounters.disable(productId));
+
+			assertThrows(TimeoutException.class, () -> disabled.get(200, TimeUnit.MILLISECONDS));
+
+			commit.countDown();
+			buyer.get(10, TimeUnit.SECONDS);
+			disabled.get(10, TimeUnit.SECONDS);
+		} finally {
+			commit.countDown();
+			threads.shutdown();
+		}
+
+		assertEquals(6, quantity(productId));
+		assertEquals(0L, movementRepo.count());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private Long seed(int quantity) {
+		return transactionTemplate.execute(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+
+			return fixtures.product(fixtures.category("Hot counters"), "Hot counters product", quantity, 10).getProductId();
+		});
+	}
+
+	private int quantity(Long productId) {
+		return transactionTemplate.execute(status -> entityManager.find(Product.class, productId).getQuantity());
+	}
+
+}
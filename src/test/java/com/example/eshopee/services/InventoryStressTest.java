@@ -0,0 +1,175 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.exceptions.APIException;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Buyers race for the last units of one hot SKU through add-to-cart, with the stock on the
+ * products row and in hot stock mode. Every unit must end up in exactly one cart: no oversell
+ * and no stock lost. The races run with a few threads in every build; the throughput of a
+ * larger race is measured only with: mvn test -Dtest=InventoryStressTest -Dbenchmarks=true
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class InventoryStressTest {
+
+	// More attempts than units, so every race sells out
+	private static final Race SMALL = new Race(20, 4, 10);
+	private static final Race LARGE = new Race(200, 16, 40);
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private CartService cartService;
+
+	@Autowired
+	private HotStockCounters hotStockCounters;
+
+	private record Race(int stock, int buyers, int attemptsPerBuyer) {
+	}
+
+	@AfterEach
+	void tearDown() {
+		transactionTemplate.executeWithoutResult(status -> new TestFixtures(entityManager).deleteAll());
+	}
+
+	@Test
+	void concurrentAddToCartNeverOversells() throws Exception {
+		run(SMALL, false);
+	}
+
+	@Test
+	void concurrentAddToCartOnHotStockNeverOversells() throws Exception {
+		run(SMALL, true);
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+	void addToCartThroughputOnOneSku() throws Exception {
+		report(LARGE, "products row", run(LARGE, false));
+		report(LARGE, "hot stock", run(LARGE, true));
+	}
+
+	/**
+	 * Runs the race and checks that the stock was sold exactly once; returns how long it took.
+	 */
+	private long run(Race race, boolean hotStock) throws Exception {
+		List<Long> cartIds = new ArrayList<>();
+		Long productId = seed(race, cartIds);
+
+		if (hotStock) {
+			hotStockCounters.enable(productId);
+		}
+
+		long nanos = race(race, productId, cartIds);
+
+		if (hotStock) {
+			assertEquals(0L, hotStockCounters.available(productId), "units in shards");
+
+			hotStockCounters.disable(productId);
+		}
+
+		return nanos;
+	}
+
+	private Long seed(Race race, List<Long> cartIds) {
+		return transactionTemplate.execute(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+
+			Product product = fixtures.product(fixtures.category("Hot SKU"), "Hot product", race.stock(), 10);
+
+			for (int i = 0; i < race.buyers(); i++) {
+				cartIds.add(fixtures.cart(null).getCartId());
+			}
+
+			return product.getProductId();
+		});
+	}
+
+	private long race(Race race, Long productId, List<Long> cartIds) throws Exception {
+		ExecutorService buyers = Executors.newFixedThreadPool(race.buyers());
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Integer>> results = new ArrayList<>();
+
+		for (Long cartId : cartIds) {
+			results.add(buyers.submit(() -> {
+				start.await();
+
+				int added = 0;
+
+				for (int attempt = 0; attempt < race.attemptsPerBuyer(); attempt++) {
+					try {
+						cartService.addProductToCart(cartId, productId, 1);
+						added++;
+					} catch (APIException e) {
+						// Sold out
+					}
+				}
+
+				return added;
+			}));
+		}
+
+		long begin = System.nanoTime();
+		start.countDown();
+
+		int added = 0;
+
+		for (Future<Integer> result : results) {
+			added += result.get();
+		}
+
+		long nanos = System.nanoTime() - begin;
+
+		buyers.shutdown();
+		buyers.awaitTermination(1, TimeUnit.MINUTES);
+
+		// Carries hot stock movements to the row; nothing to do otherwise
+		hotStockCounters.flush();
+
+		Integer left = transactionTemplate.execute(
+				status -> entityManager.find(Product.class, productId).getQuantity());
+
+		Long inCarts = transactionTemplate.execute(status -> entityManager
+				.createQuery("SELECT SUM(ci.quantity) FROM CartItem ci WHERE ci.product.id = ?1", Long.class)
+				.setParameter(1, productId).getSingleResult());
+
+		assertEquals(race.stock(), added, "successful adds");
+		assertEquals(0, left, "stock left");
+		assertEquals(race.stock(), inCarts, "units in carts");
+
+		return nanos;
+	}
+
+	private static void report(Race race, String mode, long nanos) {
+		int attempts = race.buyers() * race.attemptsPerBuyer();
+
+		System.out.printf("%-12s %d add-to-cart attempts on one SKU from %d threads: %.0f ops/s%n", mode, attempts,
+				race.buyers(), attempts / (nanos / 1e9));
+	}
+
+}
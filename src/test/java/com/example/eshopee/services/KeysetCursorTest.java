@@ -0,0 +1,96 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import com.example.eshopee.exceptions.APIException;
+
+/**
+ * Tokens carry the keys of a page's last row and the sort they were issued for.
+ */
+class KeysetCursorTest {
+
+	@Test
+	void sortBreaksTiesOnTheId() {
+		assertEquals(Sort.by(Sort.Direction.DESC, "price").and(Sort.by(Sort.Direction.DESC, "productId")),
+				KeysetCursor.sort("price", "desc", "productId"));
+		assertEquals(Sort.by(Sort.Direction.ASC, "productId"), KeysetCursor.sort("productId", "asc", "productId"));
+	}
+
+	@Test
+	void tokenRoundTripsTheLastRowsKeys() {
+		Sort sort = KeysetCursor.sort("orderDate", "asc", "orderId");
+
+		Map<String, Object> last = new LinkedHashMap<>();
+		last.put("orderDate", LocalDate.of(2024, 2, 29));
+		last.put("orderId", 42L);
+
+		Window<String> window = Window.from(List.of("first", "last"),
+				i -> i == 0 ? ScrollPosition.forward(Map.of("orderDate", LocalDate.of(2024, 1, 1), "orderId", 1L))
+						: ScrollPosition.forward(last),
+				true);
+
+		String token = KeysetCursor.next(window, sort);
+		KeysetScrollPosition position = KeysetCursor.position(token, sort);
+
+		assertEquals(last, position.getKeys());
+		assertTrue(position.scrollsForward());
+		assertTrue(token.matches("[A-Za-z0-9_-]+"), "URL safe: " + token);
+	}
+
+	@Test
+	void tokenRoundTripsANullKey() {
+		Sort sort = KeysetCursor.sort("quantity", "asc", "productId");
+
+		Map<String, Object> last = new LinkedHashMap<>();
+		last.put("quantity", null);
+		last.put("productId", 7L);
+
+		Window<String> window = Window.from(List.of("row"), i -> ScrollPosition.forward(last), true);
+
+		assertEquals(last, KeysetCursor.position(KeysetCursor.next(window, sort), sort).getKeys());
+	}
+
+	@Test
+	void lastWindowHasNoTokenAndABlankTokenStartsAtTheTop() {
+		Sort sort = KeysetCursor.sort("price", "asc", "productId");
+
+		Window<String> window = Window.from(List.of("only"),
+				i -> ScrollPosition.forward(Map.of("price", 5.0, "productId", 7L)), false);
+
+		assertNull(KeysetCursor.next(window, sort));
+		assertTrue(KeysetCursor.position(" ", sort).isInitial());
+		assertTrue(KeysetCursor.position(null, sort).isInitial());
+	}
+
+	@Test
+	void tokenIsRefusedForAnotherSortOrGarbage() {
+		Sort sort = KeysetCursor.sort("price", "asc", "productId");
+
+		Window<String> window = Window.from(List.of("row"),
+				i -> ScrollPosition.forward(Map.of("price", 5.0, "productId", 7L)), true);
+
+		String token = KeysetCursor.next(window, sort);
+
+		APIException mismatch = assertThrows(APIException.class,
+				() -> KeysetCursor.position(token, KeysetCursor.sort("price", "desc", "productId")));
+
+		assertEquals("Cursor was issued for a different sort order", mismatch.getMessage());
+		assertThrows(APIException.class, () -> KeysetCursor.position("not a cursor!", sort));
+		assertThrows(APIException.class, () -> KeysetCursor.position(token.substring(0, token.length() - 4), sort));
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.entites.Order;
+import com.example.eshopee.payloads.OrderDTO;
+import com.example.eshopee.payloads.OrderResponse;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * A user's order history is listed newest first, page by page, from the order summaries
+ * (backfilled here for orders written directly) in one query per page however many items the
+ * orders hold, and status changes show up in the listing.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+class OrderHistoryTest {
+
+	private static final String EMAIL = "buyer@history.test";
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderSummaryBackfill orderSummaryBackfill;
+
+	private Statistics statistics;
+
+	private TestFixtures fixtures;
+
+	private Category category;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		fixtures = new TestFixtures(entityManager);
+
+		category = fixtures.category("History");
+	}
+
+	@Test
+	void pagesOfHistoryAreOneQueryEach() {
+		List<Long> newestFirst = new ArrayList<>();
+		Map<Long, Integer> items = new HashMap<>();
+
+		for (int i = 0; i < 5; i++) {
+			Long orderId = order(EMAIL, LocalDate.of(2024, 1, 1).plusDays(i), i % 2 == 0 ? 1 : 10);
+
+			newestFirst.add(0, orderId);
+			items.put(orderId, i % 2 == 0 ? 1 : 10);
+		}
+
+		// Another user's order, newer than all of them
+		order("other@history.test", LocalDate.of(2024, 2, 1), 1);
+
+		entityManager.flush();
+		entityManager.clear();
+
+		orderSummaryBackfill.backfill();
+
+		entityManager.flush();
+		entityManager.clear();
+
+		List<Long> listed = new ArrayList<>();
+		String after = null;
+		boolean lastPage = false;
+
+		while (!lastPage) {
+			statistics.clear();
+
+			OrderResponse page = orderService.getOrdersByUser(EMAIL, after, 2, false);
+
+			assertEquals(1, statistics.getPrepareStatementCount(), "order summaries query");
+
+			for (OrderDTO order : page.getContent()) {
+				assertEquals(items.get(order.getOrderId()), order.getOrderItems().size(), "items of " + order.getOrderId());
+				assertEquals("Card", order.getPayment().getPaymentMethod());
+
+				listed.add(order.getOrderId());
+			}
+
+			entityManager.clear();
+
+			after = page.getNextCursor();
+			lastPage = page.isLastPage();
+		}
+
+		assertEquals(newestFirst, listed, "orders newest first");
+
+		statistics.clear();
+
+		OrderResponse summary = orderService.getOrdersByUser(EMAIL, null, 10, true);
+
+		assertEquals(1, statistics.getPrepareStatementCount(), "order summaries query");
+		assertEquals(newestFirst, summary.getContent().stream().map(OrderDTO::getOrderId).toList());
+		assertTrue(summary.getContent().stream().allMatch(order -> order.getOrderItems().isEmpty()));
+		assertNull(summary.getNextCursor());
+
+		orderService.updateOrderStatus(EMAIL, newestFirst.get(0), "Order Shipped");
+
+		assertEquals("Order Shipped", orderService.getOrdersByUser(EMAIL, null, 1, true).getContent().get(0)
+				.getOrderStatus());
+	}
+
+	private Long order(String email, LocalDate orderDate, int items) {
+		Order order = fixtures.order(email, orderDate, "Card");
+
+		for (int i = 0; i < items; i++) {
+			fixtures.orderItem(order, fixtures.product(category, "History product " + order.getOrderId() + "-" + i, 10, 10), 1);
+		}
+
+		return order.getOrderId();
+	}
+
+}
@@ -0,0 +1,171 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.entites.OrderIdempotencyKey;
+import com.example.eshopee.exceptions.APIException;
+import com.example.eshopee.exceptions.OrderInFlightException;
+import com.example.eshopee.payloads.OrderDTO;
+import com.example.eshopee.repositories.OrderIdempotencyKeyRepo;
+import com.example.eshopee.repositories.OrderRepo;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Concurrent requests with one Idempotency-Key place a single order and all get it back; the
+ * key cannot be reused for another request. A placement whose key was taken over while it
+ * waited does not run, and leaves the key to the request that took it.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class OrderIdempotencyTest {
+
+	private static final int RETRIES = 16;
+	private static final String EMAIL = "buyer@idempotency.test";
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private OrderIdempotency orderIdempotency;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderRepo orderRepo;
+
+	@Autowired
+	private OrderIdempotencyKeyRepo idempotencyKeyRepo;
+
+	@Autowired
+	private CartExecutor cartExecutor;
+
+	@AfterEach
+	void tearDown() {
+		transactionTemplate.executeWithoutResult(status -> new TestFixtures(entityManager).deleteAll());
+	}
+
+	@Test
+	void duplicatesWaitForTheFirstOrder() throws Exception {
+		Long cartId = seed();
+
+		ExecutorService clients = Executors.newFixedThreadPool(RETRIES);
+		CountDownLatch start = new CountDownLatch(1);
+		List<CompletableFuture<OrderDTO>> responses = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < RETRIES; i++) {
+				responses.add(CompletableFuture.supplyAsync(() -> {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+
+					return orderIdempotency.place("retry-1", EMAIL, cartId, "Card",
+							() -> orderService.placeOrder(EMAIL, cartId, "Card")).join();
+				}, clients));
+			}
+
+			start.countDown();
+
+			Set<Long> orderIds = responses.stream().map(response -> response.join().getOrderId())
+					.collect(Collectors.toSet());
+
+			assertEquals(1, orderIds.size(), "orders returned");
+			assertEquals(1, orderRepo.findAllByEmail(EMAIL).size(), "orders placed");
+		} finally {
+			clients.shutdown();
+		}
+
+		OrderDTO retried = orderIdempotency.place("retry-1", EMAIL, cartId, "Card",
+				() -> orderService.placeOrder(EMAIL, cartId, "Card")).join();
+
+		assertEquals(responses.get(0).join().getOrderId(), retried.getOrderId());
+		assertEquals(20.0, retried.getTotalAmount());
+
+		assertThrows(APIException.class, () -> orderIdempotency.place("retry-1", EMAIL, cartId, "Cash",
+				() -> orderService.placeOrder(EMAIL, cartId, "Cash")));
+	}
+
+	@Test
+	void placementDoesNotRunOnceItsKeyWasTakenOver() {
+		Long cartId = seed();
+		CountDownLatch busy = new CountDownLatch(1);
+		AtomicBoolean placed = new AtomicBoolean();
+
+		// Holds the cart's executor, so the placement waits behind it
+		cartExecutor.submit(cartId, () -> {
+			try {
+				busy.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			return null;
+		});
+
+		CompletableFuture<OrderDTO> response = orderIdempotency.place("taken-over", EMAIL, cartId, "Card", () -> {
+			placed.set(true);
+			return orderService.placeOrder(EMAIL, cartId, "Card");
+		});
+
+		// Another instance takes the key over, as if the lease had run out while the placement waited
+		LocalDateTime takenOverAt = LocalDateTime.now().plusSeconds(1).withNano(0);
+
+		transactionTemplate.executeWithoutResult(status -> entityManager
+				.createQuery("UPDATE OrderIdempotencyKey k SET k.claimedAt = ?1").setParameter(1, takenOverAt)
+				.executeUpdate());
+
+		busy.countDown();
+
+		CompletionException failure = assertThrows(CompletionException.class, response::join);
+
+		assertInstanceOf(OrderInFlightException.class, failure.getCause());
+		assertFalse(placed.get(), "placement ran");
+
+		OrderIdempotencyKey key = idempotencyKeyRepo.findByEmailAndIdempotencyKey(EMAIL, "taken-over").orElseThrow();
+
+		assertEquals(takenOverAt, key.getClaimedAt(), "lease of the request that took the key over");
+		assertEquals(0, orderRepo.findAllByEmail(EMAIL).size(), "orders placed");
+	}
+
+	private Long seed() {
+		return transactionTemplate.execute(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+
+			Cart cart = fixtures.cart(fixtures.user(EMAIL));
+			fixtures.item(cart, fixtures.product(fixtures.category("Idempotent"), "Idempotent product", 10, 10), 2);
+
+			return cart.getCartId();
+		});
+	}
+
+}
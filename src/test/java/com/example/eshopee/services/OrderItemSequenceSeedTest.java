@@ -0,0 +1,62 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * The order item sequence is moved past order items written with ids from the old IDENTITY
+ * column, and never moved back.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class OrderItemSequenceSeedTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private OrderItemSequenceSeed orderItemSequenceSeed;
+
+	@AfterEach
+	void tearDown() {
+		transactionTemplate.executeWithoutResult(status -> new TestFixtures(entityManager).deleteAll());
+	}
+
+	@Test
+	void sequenceIsMovedPastLegacyIds() {
+		long legacyId = nextValue() + 10_000;
+
+		transactionTemplate.executeWithoutResult(status -> entityManager
+				.createNativeQuery("INSERT INTO order_items (order_item_id, quantity, discount, ordered_product_price) "
+						+ "VALUES (?1, 1, 0, 10)")
+				.setParameter(1, legacyId).executeUpdate());
+
+		orderItemSequenceSeed.seed();
+
+		long seeded = nextValue();
+
+		// A fetched value hands out the 50 ids up to it
+		assertTrue(seeded - 49 > legacyId, "first id handed out after " + legacyId + ": " + (seeded - 49));
+
+		orderItemSequenceSeed.seed();
+
+		assertTrue(nextValue() > seeded, "moved back");
+	}
+
+	private long nextValue() {
+		return transactionTemplate.execute(status -> ((Number) entityManager
+				.createNativeQuery("SELECT NEXT VALUE FOR order_items_seq").getSingleResult()).longValue());
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.config.AppConstants;
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.entites.Order;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.entites.User;
+import com.example.eshopee.payloads.OrderDTO;
+import com.example.eshopee.payloads.OrderStatusDTO;
+import com.example.eshopee.repositories.OrderQueueRepo;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Orders placed asynchronously come back pending, are finalized in groups by the workers and
+ * end up like a synchronous order; one whose cart was emptied meanwhile fails.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class OrderQueueTest {
+
+	private static final int BUYERS = 10;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderQueueRepo orderQueueRepo;
+
+	@AfterEach
+	void tearDown() {
+		transactionTemplate.executeWithoutResult(status -> new TestFixtures(entityManager).deleteAll());
+	}
+
+	@Test
+	void pendingOrdersAreFinalizedByTheWorkers() throws InterruptedException {
+		List<Long> cartIds = new ArrayList<>();
+		List<String> emails = new ArrayList<>();
+
+		transactionTemplate.executeWithoutResult(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+
+			Product product = fixtures.product(fixtures.category("Queued"), "Queued product", 100, 10);
+
+			for (int i = 0; i < BUYERS; i++) {
+				User user = fixtures.user("buyer" + i + "@queue.test");
+
+				Cart cart = fixtures.cart(user);
+				fixtures.item(cart, product, i + 1);
+
+				cartIds.add(cart.getCartId());
+				emails.add(user.getEmail());
+			}
+		});
+
+		List<OrderDTO> pending = new ArrayList<>();
+
+		// The first cart is emptied after its order is accepted, before a worker can get to it
+		pending.add(transactionTemplate.execute(status -> {
+			OrderDTO order = orderService.placeOrderAsync(emails.get(0), cartIds.get(0), "Card");
+
+			entityManager.createQuery("DELETE FROM CartItem ci WHERE ci.cart.id = ?1").setParameter(1, cartIds.get(0))
+					.executeUpdate();
+
+			return order;
+		}));
+
+		for (int i = 1; i < BUYERS; i++) {
+			OrderDTO order = orderService.placeOrderAsync(emails.get(i), cartIds.get(i), "Card");
+
+			assertEquals(AppConstants.ORDER_PENDING, order.getOrderStatus());
+			assertEquals(10.0 * (i + 1), order.getTotalAmount());
+
+			pending.add(order);
+		}
+
+		long deadline = System.currentTimeMillis() + 10_000;
+
+		while (orderQueueRepo.count() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+
+		assertEquals(0, orderQueueRepo.count(), "orders still queued");
+
+		for (int i = 0; i < BUYERS; i++) {
+			OrderStatusDTO status = orderService.getOrderStatus(emails.get(i), pending.get(i).getOrderId());
+
+			assertNull(status.getOrdersAhead());
+			assertEquals(i == 0 ? AppConstants.ORDER_FAILED : AppConstants.ORDER_ACCEPTED, status.getOrderStatus());
+		}
+
+		transactionTemplate.executeWithoutResult(status -> {
+			for (int i = 1; i < BUYERS; i++) {
+				Order order = entityManager.find(Order.class, pending.get(i).getOrderId());
+				Cart cart = entityManager.find(Cart.class, cartIds.get(i));
+
+				assertEquals(1, order.getOrderItems().size(), "items of order " + i);
+				assertEquals(i + 1, order.getOrderItems().get(0).getQuantity(), "quantity of order " + i);
+				assertEquals("Card", order.getPayment().getPaymentMethod());
+				assertEquals(0, cart.getCartItems().size(), "lines left in cart " + i);
+			}
+		});
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.example.eshopee.services;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.example.eshopee.entites.CartItem;
+
+/**
+ * Compares the double arithmetic carts used to do against {@link Pricing}: time and bytes
+ * allocated per call, and how far a running total ends from the exact one after many adds and
+ * removes. Run with: mvn test -Dtest=PricingBenchmark -Dbenchmarks=true
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class PricingBenchmark {
+
+	private static final int LINES = 50;
+	private static final int OPERATIONS = 1_000_000;
+	private static final int ROUNDS = 5;
+
+	private final Random random = new Random(42);
+
+	private final double[] prices = new double[LINES];
+	private final double[] discounts = new double[LINES];
+	private final int[] quantities = new int[LINES];
+	private final List<CartItem> items = new ArrayList<>();
+
+	// Keeps results alive so the JIT cannot drop the work
+	private double sink;
+
+	PricingBenchmark() {
+		for (int i = 0; i < LINES; i++) {
+			prices[i] = (random.nextInt(100_000) + 1) / 100.0;
+			discounts[i] = random.nextInt(10_000) / 100.0;
+			quantities[i] = random.nextInt(9) + 1;
+
+			CartItem item = new CartItem();
+			item.setProductPrice(prices[i]);
+			item.setQuantity(quantities[i]);
+			items.add(item);
+		}
+	}
+
+	@Test
+	void doubleArithmeticVersusPricingKernel() {
+		for (int round = 0; round < ROUNDS; round++) {
+			boolean report = round == ROUNDS - 1;
+
+			runningTotal("running total, double", report, (total, i) -> total + prices[i] * quantities[i],
+					(total, i) -> total - prices[i] * quantities[i]);
+			runningTotal("running total, Pricing", report,
+					(total, i) -> Pricing.addLine(total, prices[i], quantities[i]),
+					(total, i) -> Pricing.addLine(total, prices[i], -quantities[i]));
+
+			measure("special price, double", report,
+					i -> prices[i] - ((discounts[i] * 0.01) * prices[i]));
+			measure("special price, Pricing", report, i -> Pricing.specialPrice(prices[i], discounts[i]));
+
+			measure("cart total, stream", report,
+					i -> items.stream().mapToDouble(item -> item.getProductPrice() * item.getQuantity()).sum());
+			measure("cart total, Pricing", report,
+					i -> Pricing.total(items, CartItem::getProductPrice, CartItem::getQuantity));
+		}
+
+		System.out.printf("special prices off a whole cent: %d of %d with double, none with Pricing%n", offCent(),
+				LINES);
+	}
+
+	private interface Step {
+		double apply(double total, int line);
+	}
+
+	// Adds a random line OPERATIONS times, then takes every one of them off again
+	private void runningTotal(String name, boolean report, Step add, Step remove) {
+		int[] order = new int[OPERATIONS];
+
+		for (int i = 0; i < OPERATIONS; i++) {
+			order[i] = random.nextInt(LINES);
+		}
+
+		long start = System.nanoTime();
+		long startBytes = allocatedBytes();
+
+		double total = 0;
+
+		for (int i = 0; i < OPERATIONS; i++) {
+			total = add.apply(total, order[i]);
+		}
+
+		for (int i = 0; i < OPERATIONS; i++) {
+			total = remove.apply(total, order[i]);
+		}
+
+		long bytes = allocatedBytes() - startBytes;
+		long nanos = System.nanoTime() - start;
+
+		sink += total;
+
+		if (report) {
+			System.out.printf("%-26s %8.1f ns/op %8.3f B/op  ends at %s instead of 0.0%n", name,
+					nanos / (2.0 * OPERATIONS), bytes / (2.0 * OPERATIONS), total);
+		}
+	}
+
+	private void measure(String name, boolean report, IntToDoubleFunction call) {
+		long start = System.nanoTime();
+		long startBytes = allocatedBytes();
+
+		int calls = OPERATIONS / LINES;
+
+		for (int i = 0; i < calls; i++) {
+			sink += call.applyAsDouble(i % LINES);
+		}
+
+		long bytes = allocatedBytes() - startBytes;
+		long nanos = System.nanoTime() - start;
+
+		if (report) {
+			System.out.printf("%-26s %8.1f ns/op %8.3f B/op%n", name, (double) nanos / calls, (double) bytes / calls);
+		}
+	}
+
+	private int offCent() {
+		int off = 0;
+
+		for (int i = 0; i < LINES; i++) {
+			double special = prices[i] - ((discounts[i] * 0.01) * prices[i]);
+
+			if (Pricing.toAmount(Pricing.toMinor(special)) != special) {
+				off++;
+			}
+		}
+
+		return off;
+	}
+
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.eshopee.entites.CartItem;
+
+/**
+ * Totals stay on whole cents however many lines come and go, and discounts round half up.
+ */
+class PricingTest {
+
+	@Test
+	void specialPriceRoundsTheDiscountHalfUp() {
+		assertEquals(17.99, Pricing.specialPrice(19.99, 10));
+		// 15% of 0.10 is 1.5 cents
+		assertEquals(0.08, Pricing.specialPrice(0.10, 15));
+		assertEquals(66.67, Pricing.specialPrice(100, 33.33));
+		assertEquals(0.0, Pricing.specialPrice(49.99, 100));
+		assertEquals(49.99, Pricing.specialPrice(49.99, 0));
+	}
+
+	@Test
+	void runningTotalDoesNotDrift() {
+		double total = 0;
+
+		for (int i = 0; i < 10_000; i++) {
+			total = Pricing.addLine(total, 0.1, 3);
+		}
+
+		assertEquals(3000.0, total);
+
+		for (int i = 0; i < 10_000; i++) {
+			total = Pricing.addLine(total, 0.1, -3);
+		}
+
+		assertEquals(0.0, total);
+	}
+
+	@Test
+	void totalSumsTheLinesInMinorUnits() {
+		List<CartItem> items = List.of(item(0.1, 1), item(0.2, 1), item(19.99, 3));
+
+		assertEquals(60.27, Pricing.total(items, CartItem::getProductPrice, CartItem::getQuantity));
+	}
+
+	@Test
+	void overflowThrows() {
+		assertThrows(ArithmeticException.class, () -> Pricing.lineTotal(Long.MAX_VALUE / 2, 3));
+	}
+
+	private static CartItem item(double price, int quantity) {
+		CartItem item = new CartItem();
+		item.setProductPrice(price);
+		item.setQuantity(quantity);
+
+		return item;
+	}
+
+}
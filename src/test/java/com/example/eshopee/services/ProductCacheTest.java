@@ -0,0 +1,131 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.controllers.CacheController;
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.payloads.CacheStatsDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * The product cache drops a product as soon as it is written, so the writing transaction reads
+ * the new values, and again once that transaction completes, so a rollback leaves nothing
+ * uncommitted behind. /api/admin/caches reports its hits, misses and evictions.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class ProductCacheTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ProductCache productCache;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private CacheController cacheController;
+
+	private Object maximumSize;
+
+	private List<Long> productIds;
+
+	@BeforeEach
+	void setUp() {
+		maximumSize = ReflectionTestUtils.getField(productCache, "maximumSize");
+
+		productIds = transactionTemplate.execute(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+			Category category = fixtures.category("Cached products");
+
+			return List.of(fixtures.product(category, "Cached lamp", 5, 20).getProductId(),
+					fixtures.product(category, "Cached rug", 5, 30).getProductId(),
+					fixtures.product(category, "Cached stool", 5, 15).getProductId());
+		});
+	}
+
+	@AfterEach
+	void tearDown() {
+		ReflectionTestUtils.setField(productCache, "maximumSize", maximumSize);
+		productCache.init();
+
+		transactionTemplate.executeWithoutResult(status -> new TestFixtures(entityManager).deleteAll());
+	}
+
+	@Test
+	void aWriteInvalidatesTheProductAtOnceAndAgainWhenItsTransactionCompletes() {
+		Long lamp = productIds.get(0);
+
+		assertEquals(20.0, productCache.get(lamp).getPrice());
+
+		transactionTemplate.executeWithoutResult(status -> {
+			productService.updateProduct(lamp, update("Cached lamp", 25));
+
+			assertEquals(25.0, productCache.get(lamp).getPrice(), "read later in the writing transaction");
+		});
+
+		assertEquals(25.0, productCache.get(lamp).getPrice(), "after the commit");
+
+		transactionTemplate.executeWithoutResult(status -> {
+			productService.updateProduct(lamp, update("Cached lamp", 40));
+
+			assertEquals(40.0, productCache.get(lamp).getPrice(), "uncommitted");
+
+			status.setRollbackOnly();
+		});
+
+		assertEquals(25.0, productCache.get(lamp).getPrice(), "after the rollback");
+	}
+
+	@Test
+	void statsReportHitsMissesAndEvictions() {
+		ReflectionTestUtils.setField(productCache, "maximumSize", 2L);
+		productCache.init();
+
+		productCache.get(productIds.get(0));
+		productCache.get(productIds.get(0));
+		productCache.getAll(productIds);
+
+		// Evictions run in Caffeine's maintenance, which may otherwise still be pending
+		((Cache<?, ?>) ReflectionTestUtils.getField(productCache, "cache")).cleanUp();
+
+		CacheStatsDTO stats = cacheController.getCacheStats().getBody().get(0);
+
+		assertEquals("products", stats.getName());
+		assertEquals(2, stats.getHitCount(), "hits");
+		assertEquals(3, stats.getMissCount(), "misses");
+		assertEquals(2, stats.getMaximumSize());
+		assertEquals(2, stats.getSize());
+		assertEquals(1, stats.getEvictionCount(), "evictions");
+	}
+
+	private static Product update(String name, double price) {
+		Product product = new Product();
+		product.setProductName(name);
+		product.setDescription(name + " description");
+		product.setQuantity(5);
+		product.setPrice(price);
+
+		return product;
+	}
+
+}
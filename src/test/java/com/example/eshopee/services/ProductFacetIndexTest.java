@@ -0,0 +1,164 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.payloads.FacetCountDTO;
+import com.example.eshopee.payloads.FacetsDTO;
+import com.example.eshopee.payloads.ProductFilter;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Filters and facet counts of the facet index, and the snapshots swapped in when a product is
+ * updated or deleted or its stock moves.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class ProductFacetIndexTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ProductFacetIndex productFacetIndex;
+
+	@Autowired
+	private Inventory inventory;
+
+	private Category books;
+	private Category games;
+
+	// Books: 10 (5 units), 30 (none), 60 (2 units). Games: 25 (1 unit), 300 (3 units).
+	private List<Product> products;
+
+	@BeforeEach
+	void setUp() {
+		transactionTemplate.executeWithoutResult(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+
+			books = fixtures.category("Facet books");
+			games = fixtures.category("Facet games");
+
+			products = List.of(fixtures.product(books, "Facet book 10", 5, 10),
+					fixtures.product(books, "Facet book 30", 0, 30),
+					fixtures.product(books, "Facet book 60", 2, 60),
+					fixtures.product(games, "Facet game 25", 1, 25),
+					fixtures.product(games, "Facet game 300", 3, 300));
+		});
+
+		productFacetIndex.rebuild();
+	}
+
+	@AfterEach
+	void tearDown() {
+		transactionTemplate.executeWithoutResult(status -> new TestFixtures(entityManager).deleteAll());
+		productFacetIndex.rebuild();
+	}
+
+	@Test
+	void priceRangeIsInclusiveAndFacetsIgnoreTheirOwnFilter() {
+		ProductFacetIndex.FacetPage page = productFacetIndex.query(filter(null, 25.0, 60.0, null), "specialPrice", true,
+				0, 10);
+
+		assertEquals(List.of(id(3), id(1), id(2)), page.productIds());
+		assertEquals(3, page.totalElements());
+
+		FacetsDTO facets = page.facets();
+
+		assertEquals(List.of(count(books, 2), count(games, 1)), facets.getCategories());
+		assertEquals(List.of(1L, 2L, 1L, 0L, 1L, 0L),
+				facets.getPriceBands().stream().map(FacetCountDTO::getCount).toList(), "price bands, unfiltered by price");
+		assertEquals(2L, facets.getInStock());
+
+		ProductFilter inStockBooks = filter(books.getCategoryId(), null, null, true);
+
+		assertEquals(List.of(id(2), id(0)),
+				productFacetIndex.query(inStockBooks, "specialPrice", false, 0, 10).productIds());
+		assertEquals(List.of(id(2)), productFacetIndex.query(inStockBooks, "productId", true, 1, 1).productIds());
+	}
+
+	@Test
+	void stockMovesAndDeletesSwapInANewSnapshot() {
+		ProductFilter inStock = filter(null, null, null, true);
+
+		assertEquals(4, productFacetIndex.query(inStock, "productId", true, 0, 10).totalElements());
+
+		inventory.reserve(id(2), 2);
+		inventory.release(id(1), 4);
+
+		// Patched in on the next refresh, not by the reservation itself
+		assertEquals(List.of(id(0), id(2), id(3), id(4)),
+				productFacetIndex.query(inStock, "productId", true, 0, 10).productIds());
+
+		productFacetIndex.refreshStock();
+
+		assertEquals(List.of(id(0), id(1), id(3), id(4)),
+				productFacetIndex.query(inStock, "productId", true, 0, 10).productIds());
+		assertEquals(List.of(id(0), id(1), id(4), id(3)),
+				productFacetIndex.query(inStock, "quantity", false, 0, 10).productIds());
+
+		productFacetIndex.onProductChanged(ProductChangedEvent.deleted(products.get(0)));
+
+		assertEquals(List.of(count(books, 1), count(games, 2)), productFacetIndex.facets(inStock).getCategories());
+	}
+
+	@Test
+	void anUpdatedProductIsPatchedInAsARebuildWouldPlaceIt() {
+		ProductFilter all = filter(null, null, null, null);
+		ProductFilter inStockGames = filter(games.getCategoryId(), 20.0, 500.0, true);
+
+		// Caches the price, specialPrice and discount orders, which the update then has to patch
+		productFacetIndex.query(all, "price", true, 0, 10);
+		productFacetIndex.query(inStockGames, "discount", true, 0, 10);
+
+		Product moved = transactionTemplate.execute(status -> {
+			Product product = entityManager.find(Product.class, id(0));
+			product.setPrice(400);
+			product.setSpecialPrice(400);
+			product.setCategory(entityManager.find(Category.class, games.getCategoryId()));
+
+			return product;
+		});
+
+		productFacetIndex.onProductChanged(ProductChangedEvent.saved(moved));
+
+		List<Long> byPrice = productFacetIndex.query(all, "price", false, 0, 10).productIds();
+		ProductFacetIndex.FacetPage page = productFacetIndex.query(inStockGames, "specialPrice", true, 0, 10);
+
+		assertEquals(List.of(id(0), id(4), id(2), id(1), id(3)), byPrice);
+		assertEquals(List.of(id(3), id(4), id(0)), page.productIds());
+
+		productFacetIndex.rebuild();
+
+		assertEquals(byPrice, productFacetIndex.query(all, "price", false, 0, 10).productIds());
+		assertEquals(page, productFacetIndex.query(inStockGames, "specialPrice", true, 0, 10));
+	}
+
+	private Long id(int product) {
+		return products.get(product).getProductId();
+	}
+
+	private static FacetCountDTO count(Category category, long count) {
+		return new FacetCountDTO(String.valueOf(category.getCategoryId()), count);
+	}
+
+	private static ProductFilter filter(Long categoryId, Double minPrice, Double maxPrice, Boolean inStock) {
+		return new ProductFilter(categoryId, minPrice, maxPrice, null, inStock);
+	}
+
+}
@@ -0,0 +1,189 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.exceptions.APIException;
+import com.example.eshopee.payloads.ProductImportError;
+import com.example.eshopee.payloads.ProductImportReport;
+import com.example.eshopee.repositories.ProductRepo;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Product imports: CSV fields quoted around commas, quotes and line breaks, NDJSON rows, duplicates
+ * dropped within a chunk and against the products already stored, and the rows reported as
+ * failed, including a row the database rejects, which fails alone rather than with its chunk,
+ * and a line over the length limit, which fails as a row of its own.
+ * The test profile imports in chunks of two rows.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class ProductImporterTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ProductImporter productImporter;
+
+	@Autowired
+	private ProductRepo productRepo;
+
+	@AfterEach
+	void tearDown() {
+		transactionTemplate.executeWithoutResult(status -> new TestFixtures(entityManager).deleteAll());
+	}
+
+	@Test
+	void csvQuotedFieldsKeepTheirCommasQuotesAndLineBreaks() throws Exception {
+		Long categoryId = category();
+
+		ProductImportReport report = importProducts(ProductImporter.CSV,
+				"categoryId,productName,description,quantity,price,discount\n"
+						+ categoryId + ",\"Lamp, brass\",\"A \"\"tall\"\" lamp\nfor the hall\",4,20,10\n"
+						+ "\n"
+						+ categoryId + ",Rug,Wool rug,3\n"
+						+ categoryId + ",Stool,Pine stool,-1,15,0\n");
+
+		assertEquals(3, report.getTotalRows(), "total");
+		assertEquals(1, report.getImportedRows(), "imported");
+		assertEquals(0, report.getDuplicateRows(), "duplicates");
+		assertEquals(2, report.getFailedRows(), "failed");
+		assertEquals(List.of(new ProductImportError(2L, "Expected 6 columns but found 4"),
+				new ProductImportError(3L, "quantity must be zero or more")), report.getErrors());
+
+		List<Product> products = productRepo.findAll(Sort.by("productId"));
+
+		assertEquals(1, products.size(), "products");
+		assertEquals("Lamp, brass", products.get(0).getProductName());
+		assertEquals("A \"tall\" lamp\nfor the hall", products.get(0).getDescription());
+		assertEquals(4, products.get(0).getQuantity());
+		assertEquals(18.0, products.get(0).getSpecialPrice());
+	}
+
+	@Test
+	void csvUnterminatedQuoteSkipsTheRestOfTheUpload() throws Exception {
+		Long categoryId = category();
+
+		ProductImportReport report = importProducts(ProductImporter.CSV,
+				"categoryId,productName,description,quantity,price\n"
+						+ categoryId + ",Lamp,Brass lamp,4,20\n"
+						+ categoryId + ",\"Rug,Wool rug,3,5\n"
+						+ categoryId + ",Stool,Pine stool,1,15\n");
+
+		assertEquals(2, report.getTotalRows(), "total");
+		assertEquals(1, report.getImportedRows(), "imported");
+		assertEquals(1, report.getFailedRows(), "failed");
+		assertEquals(2L, report.getErrors().get(0).getRow());
+	}
+
+	@Test
+	void ndjsonDropsDuplicatesWithinAChunkAndAgainstStoredProducts() throws Exception {
+		Long categoryId = transactionTemplate.execute(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+			Category category = fixtures.category("Imported goods");
+			fixtures.product(category, "Sofa", 1, 100.0);
+
+			return category.getCategoryId();
+		});
+
+		ProductImportReport report = importProducts(ProductImporter.NDJSON,
+				row(categoryId, "Chair", "Oak chair")
+						+ row(categoryId, " chair", "oak   CHAIR")
+						+ row(categoryId, "Sofa", "Sofa description")
+						+ row(categoryId, "Chair", "Oak chair")
+						+ "{\"categoryId\": " + categoryId + ", \"productName\": \n"
+						+ row(categoryId + 1000, "Table", "Oak table"));
+
+		assertEquals(6, report.getTotalRows(), "total");
+		assertEquals(1, report.getImportedRows(), "imported");
+		assertEquals(3, report.getDuplicateRows(), "duplicates");
+		assertEquals(2, report.getFailedRows(), "failed");
+		assertEquals(List.of(new ProductImportError(5L, "Malformed JSON"),
+				new ProductImportError(6L, "Category not found with categoryId: " + (categoryId + 1000))),
+				report.getErrors());
+
+		assertEquals(List.of("Sofa", "Chair"),
+				productRepo.findAll(Sort.by("productId")).stream().map(Product::getProductName).toList());
+	}
+
+	@Test
+	void ndjsonLineOverTheLengthLimitFailsAsItsOwnRow() throws Exception {
+		Long categoryId = category();
+
+		ProductImportReport report = importProducts(ProductImporter.NDJSON,
+				row(categoryId, "Chair", "Oak chair").replace("\n", "\r\n")
+						+ row(categoryId, "Bench", "x".repeat(70_000))
+						+ row(categoryId, "Desk", "Oak desk"));
+
+		assertEquals(3, report.getTotalRows(), "total");
+		assertEquals(2, report.getImportedRows(), "imported");
+		assertEquals(List.of(new ProductImportError(2L, "Line longer than 65536 characters")), report.getErrors());
+
+		assertEquals(List.of("Chair", "Desk"),
+				productRepo.findAll(Sort.by("productId")).stream().map(Product::getProductName).toList());
+	}
+
+	@Test
+	void aRowTheDatabaseRejectsFailsAloneAndNumbersMustBeFinite() throws Exception {
+		Long categoryId = category();
+
+		ProductImportReport report = importProducts(ProductImporter.NDJSON,
+				row(categoryId, "Chair", "Oak chair")
+						+ row(categoryId, "Bench " + "x".repeat(300), "Oak bench")
+						+ row(categoryId, "Desk", "Oak desk")
+						+ "{\"categoryId\": " + categoryId + ", \"productName\": \"Shelf\", \"description\": "
+						+ "\"Oak shelf\", \"quantity\": 3, \"price\": \"NaN\"}\n"
+						+ "{\"categoryId\": " + categoryId + ", \"productName\": \"Stand\", \"description\": "
+						+ "\"Oak stand\", \"quantity\": 3, \"price\": 40, \"discount\": \"-Infinity\"}\n");
+
+		assertEquals(5, report.getTotalRows(), "total");
+		assertEquals(2, report.getImportedRows(), "imported");
+		assertEquals(3, report.getFailedRows(), "failed");
+		assertEquals(2L, report.getErrors().get(0).getRow());
+		assertEquals(List.of(new ProductImportError(4L, "Invalid price: NaN"),
+				new ProductImportError(5L, "Invalid discount: -Infinity")), report.getErrors().subList(1, 3));
+
+		assertEquals(List.of("Chair", "Desk"),
+				productRepo.findAll(Sort.by("productId")).stream().map(Product::getProductName).toList());
+	}
+
+	@Test
+	void otherContentTypesAreRefused() {
+		assertThrows(APIException.class, () -> importProducts("application/json", "[]"));
+	}
+
+	private Long category() {
+		return transactionTemplate
+				.execute(status -> new TestFixtures(entityManager).category("Imported goods").getCategoryId());
+	}
+
+	private static String row(Long categoryId, String name, String description) {
+		return "{\"categoryId\": " + categoryId + ", \"productName\": \"" + name + "\", \"description\": \""
+				+ description + "\", \"quantity\": 3, \"price\": 40}\n";
+	}
+
+	private ProductImportReport importProducts(String contentType, String body) throws Exception {
+		return productImporter.importProducts(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+				contentType);
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Matching, one-character terms included, BM25 ranking and paging of the search index, and its
+ * postings after products are re-indexed or removed.
+ */
+class ProductSearchIndexTest {
+
+	private ProductSearchIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new ProductSearchIndex();
+
+		index.index(5L, "Red running shoes", "Light shoes for road running");
+		index.index(3L, "Blue sandals", "Open shoes for the beach");
+		index.index(9L, "Running socks", "Socks that go with red shoes");
+		index.index(1L, "Garden hose", "Twenty metres of hose");
+	}
+
+	@Test
+	void matchesEveryTermAndRanksNameHitsFirst() {
+		ProductSearchIndex.SearchResult result = index.search("shoes", 0, 10);
+
+		assertEquals(List.of(5L, 3L, 9L), result.productIds());
+		assertEquals(3, result.totalElements());
+
+		assertEquals(List.of(5L, 9L), index.search("RED shoes", 0, 10).productIds());
+		assertEquals(0, index.search("red hose", 0, 10).totalElements());
+	}
+
+	@Test
+	void oneCharacterTermsAreIndexed() {
+		index.index(12L, "Vitamin C tablets", "A month of vitamin C");
+		index.index(14L, "Vitamin D drops", "Vitamin D for the winter");
+		index.index(16L, "Size 9 boots", "Leather boots");
+
+		assertEquals(List.of(12L), index.search("vitamin c", 0, 10).productIds());
+		assertArrayEquals(new long[] { 16L }, index.matches("9"));
+		assertArrayEquals(new long[] { 12L }, index.matches("a"));
+	}
+
+	@Test
+	void pagesAreSlicesOfTheFullRanking() {
+		for (long productId = 10; productId < 40; productId++) {
+			index.index(productId, "Shoe " + productId, "shoes " + "shoes ".repeat((int) (productId % 7)));
+		}
+
+		ProductSearchIndex.SearchResult all = index.search("shoes", 0, 100);
+		List<Long> paged = new ArrayList<>();
+
+		for (int page = 0; page < 5; page++) {
+			ProductSearchIndex.SearchResult result = index.search("shoes", page, 7);
+
+			assertEquals(all.totalElements(), result.totalElements());
+			paged.addAll(result.productIds());
+		}
+
+		assertEquals(33, all.totalElements());
+		assertEquals(all.productIds(), paged);
+		assertEquals(List.of(), index.search("shoes", 5, 7).productIds(), "past the last page");
+	}
+
+	@Test
+	void equalScoresAreOrderedByProductId() {
+		index.index(20L, "Twin kettle", "Steel kettle");
+		index.index(12L, "Twin kettle", "Steel kettle");
+		index.index(16L, "Twin kettle", "Steel kettle");
+
+		assertEquals(List.of(12L, 16L), index.search("kettle", 0, 2).productIds());
+		assertEquals(List.of(20L), index.search("kettle", 1, 2).productIds());
+	}
+
+	@Test
+	void reindexingAndRemovalUpdateThePostings() {
+		index.index(5L, "Red rain boots", "Boots for wet days");
+		index.remove(3L);
+
+		assertArrayEquals(new long[] { 9L }, index.matches("shoes"));
+		assertArrayEquals(new long[] { 5L, 9L }, index.matches("red"));
+		assertArrayEquals(new long[] { 5L }, index.matches("boots wet"));
+		assertArrayEquals(new long[0], index.matches("sandals"));
+		assertEquals(3, index.size());
+	}
+
+}
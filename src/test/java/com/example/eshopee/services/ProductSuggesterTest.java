@@ -0,0 +1,157 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.entites.Order;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.payloads.SuggestionDTO;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Typeahead: names found from the start of any of their words, ranked by units ordered, kept
+ * in step with renames, deletes and new orders, and trimmed from the least popular end when
+ * over budget.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class ProductSuggesterTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ProductSuggester productSuggester;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@AfterEach
+	void tearDown() {
+		transactionTemplate.executeWithoutResult(status -> new TestFixtures(entityManager).deleteAll());
+		productSuggester.rebuild();
+	}
+
+	@Test
+	void wordStartsAreRankedByUnitsOrdered() {
+		List<Long> ids = seed();
+		productSuggester.rebuild();
+
+		assertEquals(List.of("Apple iPhone", "iPad Air", "Iron board"), texts(productSuggester.suggest("I", 10)));
+		assertEquals(List.of("Apple iPhone", "iPad Air"), texts(productSuggester.suggest("ip", 10)));
+		assertEquals(List.of("Apple iPhone"), texts(productSuggester.suggest("i", 1)));
+		assertEquals(List.of(), productSuggester.suggest("iq", 10));
+
+		assertEquals(List.of(new SuggestionDTO("Apple iPhone", "PRODUCT", ids.get(0))),
+				productSuggester.suggest("apple", 10));
+		assertEquals("CATEGORY", productSuggester.suggest("gad", 10).get(0).getType());
+	}
+
+	@Test
+	void renamesKeepTheirPopularityAndDeletesDropOut() {
+		List<Long> ids = seed();
+		productSuggester.rebuild();
+
+		productService.updateProduct(ids.get(0), update("iPhone 15"));
+		productService.deleteProduct(ids.get(2));
+
+		assertEquals(List.of("iPhone 15", "iPad Air"), texts(productSuggester.suggest("i", 10)));
+		assertEquals(List.of(), productSuggester.suggest("apple", 10));
+		assertEquals(List.of(), productSuggester.suggest("board", 10));
+	}
+
+	@Test
+	void placedOrdersRaiseTheirProductsRank() {
+		List<Long> ids = seed();
+		productSuggester.rebuild();
+
+		Long cartId = transactionTemplate.execute(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+
+			Cart cart = fixtures.cart(fixtures.user("buyer@example.com"));
+			fixtures.item(cart, entityManager.find(Product.class, ids.get(2)), 6);
+
+			return cart.getCartId();
+		});
+
+		orderService.placeOrder("buyer@example.com", cartId, "card");
+
+		assertEquals(List.of("Iron board", "Apple iPhone", "iPad Air"), texts(productSuggester.suggest("i", 10)));
+	}
+
+	@Test
+	void overBudgetTheLeastPopularAreEvicted() {
+		seed();
+		productSuggester.rebuild();
+
+		long maxBytes = (long) ReflectionTestUtils.getField(productSuggester, "maxBytes");
+		long estimatedBytes = productSuggester.stats().getEstimatedBytes();
+
+		try {
+			ReflectionTestUtils.setField(productSuggester, "maxBytes", estimatedBytes - 1);
+			productSuggester.rebuild();
+
+			assertEquals(1, productSuggester.stats().getEvictedEntries(), "evicted");
+			assertEquals(List.of("Apple iPhone", "iPad Air"), texts(productSuggester.suggest("i", 10)));
+		} finally {
+			ReflectionTestUtils.setField(productSuggester, "maxBytes", maxBytes);
+		}
+	}
+
+	/**
+	 * Three products of one category, of which 5 and 2 units have been ordered.
+	 */
+	private List<Long> seed() {
+		return transactionTemplate.execute(status -> {
+			TestFixtures fixtures = new TestFixtures(entityManager);
+			Category category = fixtures.category("Smart gadgets");
+
+			Product iphone = fixtures.product(category, "Apple iPhone", 10, 900);
+			Product ipad = fixtures.product(category, "iPad Air", 10, 600);
+			Product iron = fixtures.product(category, "Iron board", 10, 30);
+
+			Order first = fixtures.order("first@example.com", LocalDate.now(), "card");
+			fixtures.orderItem(first, iphone, 3);
+			fixtures.orderItem(first, ipad, 2);
+
+			Order second = fixtures.order("second@example.com", LocalDate.now(), "card");
+			fixtures.orderItem(second, iphone, 2);
+
+			return List.of(iphone.getProductId(), ipad.getProductId(), iron.getProductId());
+		});
+	}
+
+	private static Product update(String name) {
+		Product product = new Product();
+		product.setProductName(name);
+		product.setDescription(name + " description");
+		product.setQuantity(10);
+		product.setPrice(900.0);
+
+		return product;
+	}
+
+	private static List<String> texts(List<SuggestionDTO> suggestions) {
+		return suggestions.stream().map(SuggestionDTO::getText).toList();
+	}
+
+}
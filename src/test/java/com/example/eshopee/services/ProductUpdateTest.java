@@ -0,0 +1,100 @@
+package com.example.eshopee.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.exceptions.APIException;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * An update that would give a product the name and description of another product in its
+ * category is refused like a duplicate add; keeping its own name is fine. A legacy duplicate
+ * without a fingerprint can still be written and have its price changed, and is fingerprinted
+ * once renamed apart.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+class ProductUpdateTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private ProductService productService;
+
+	@Test
+	void renamingIntoAnotherProductIsRefused() {
+		TestFixtures fixtures = new TestFixtures(entityManager);
+		Category category = fixtures.category("Renamed");
+
+		Product kettle = fixtures.product(category, "Kettle", 5, 30);
+		Product toaster = fixtures.product(category, "Toaster", 5, 40);
+		entityManager.flush();
+
+		APIException refused = assertThrows(APIException.class,
+				() -> productService.updateProduct(toaster.getProductId(), update("Kettle", "Kettle description", 40)));
+
+		assertEquals("Product already exists !!!", refused.getMessage());
+
+		assertEquals(35.0, productService.updateProduct(kettle.getProductId(),
+				update("Kettle", "Kettle description", 35)).getPrice());
+	}
+
+	@Test
+	void aLegacyDuplicateCanBeWrittenUntilItIsRenamedApart() {
+		TestFixtures fixtures = new TestFixtures(entityManager);
+		Category category = fixtures.category("Legacy");
+
+		fixtures.product(category, "Kettle", 5, 30);
+		Product duplicate = fixtures.product(category, "Toaster", 5, 40);
+		entityManager.flush();
+
+		// As the backfill leaves a row written before the column with the same name and description
+		entityManager.createQuery("UPDATE Product p SET p.productName = 'Kettle', p.description = 'Kettle description', "
+				+ "p.fingerprint = NULL WHERE p.productId = ?1").setParameter(1, duplicate.getProductId()).executeUpdate();
+		entityManager.clear();
+
+		Product legacy = entityManager.find(Product.class, duplicate.getProductId());
+		legacy.setQuantity(7);
+		entityManager.flush();
+		entityManager.clear();
+
+		assertNull(entityManager.find(Product.class, duplicate.getProductId()).getFingerprint());
+
+		assertEquals(45.0, productService.updateProduct(duplicate.getProductId(),
+				update("Kettle", "Kettle description", 45)).getPrice(), "price of a legacy duplicate");
+		entityManager.flush();
+		entityManager.clear();
+
+		assertNull(entityManager.find(Product.class, duplicate.getProductId()).getFingerprint());
+
+		productService.updateProduct(duplicate.getProductId(), update("Kettle lid", "Kettle lid description", 5));
+		entityManager.flush();
+		entityManager.clear();
+
+		assertEquals(Product.fingerprintOf(category.getCategoryId(), "Kettle lid", "Kettle lid description"),
+				entityManager.find(Product.class, duplicate.getProductId()).getFingerprint());
+	}
+
+	private static Product update(String name, String description, double price) {
+		Product product = new Product();
+		product.setProductName(name);
+		product.setDescription(description);
+		product.setQuantity(5);
+		product.setPrice(price);
+
+		return product;
+	}
+
+}
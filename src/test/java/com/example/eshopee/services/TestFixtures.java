@@ -0,0 +1,153 @@
+package com.example.eshopee.services;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.example.eshopee.config.AppConstants;
+import com.example.eshopee.entites.Cart;
+import com.example.eshopee.entites.CartItem;
+import com.example.eshopee.entites.Category;
+import com.example.eshopee.entites.Order;
+import com.example.eshopee.entites.OrderItem;
+import com.example.eshopee.entites.Payment;
+import com.example.eshopee.entites.Product;
+import com.example.eshopee.entites.User;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Rows for the service tests, persisted in the caller's transaction.
+ *
+ * The tests share one Spring context and one H2 database (see application-h2.properties). A
+ * test class that commits rows calls {@link #deleteAll()} after each test, so every class
+ * starts from empty tables.
+ */
+final class TestFixtures {
+
+	private final EntityManager entityManager;
+
+	TestFixtures(EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	Category category(String name) {
+		Category category = new Category();
+		category.setCategoryName(name);
+		entityManager.persist(category);
+
+		return category;
+	}
+
+	/**
+	 * A product at price, with no discount, so its special price is the same.
+	 */
+	Product product(Category category, String name, int quantity, double price) {
+		Product product = new Product();
+		product.setProductName(name);
+		product.setDescription(name + " description");
+		product.setQuantity(quantity);
+		product.setPrice(price);
+		product.setSpecialPrice(price);
+		product.setCategory(category);
+		entityManager.persist(product);
+
+		return product;
+	}
+
+	User user(String email) {
+		User user = new User();
+		user.setFirstName("Buyer");
+		user.setLastName("Tester");
+		user.setMobileNumber("9876543210");
+		user.setEmail(email);
+		entityManager.persist(user);
+
+		return user;
+	}
+
+	/**
+	 * An empty cart, of the user when one is given.
+	 */
+	Cart cart(User user) {
+		Cart cart = new Cart();
+		cart.setUser(user);
+		cart.setTotalPrice(0.0);
+		entityManager.persist(cart);
+
+		return cart;
+	}
+
+	/**
+	 * A line of quantity units at the product's special price, added to the cart's total.
+	 */
+	CartItem item(Cart cart, Product product, int quantity) {
+		CartItem item = new CartItem();
+		item.setCart(cart);
+		item.setProduct(product);
+		item.setQuantity(quantity);
+		item.setProductPrice(product.getSpecialPrice());
+		entityManager.persist(item);
+
+		cart.getCartItems().add(item);
+		cart.setTotalPrice(Pricing.addLine(cart.getTotalPrice(), product.getSpecialPrice(), quantity));
+
+		return item;
+	}
+
+	/**
+	 * An accepted order with a payment and no items yet.
+	 */
+	Order order(String email, LocalDate orderDate, String paymentMethod) {
+		Payment payment = new Payment();
+		payment.setPaymentMethod(paymentMethod);
+		entityManager.persist(payment);
+
+		Order order = new Order();
+		order.setEmail(email);
+		order.setOrderDate(orderDate);
+		order.setPayment(payment);
+		order.setTotalAmount(0.0);
+		order.setOrderStatus(AppConstants.ORDER_ACCEPTED);
+		entityManager.persist(order);
+
+		return order;
+	}
+
+	/**
+	 * An item of quantity units at the product's special price, added to the order's total.
+	 */
+	OrderItem orderItem(Order order, Product product, int quantity) {
+		OrderItem item = new OrderItem();
+		item.setOrder(order);
+		item.setProduct(product);
+		item.setQuantity(quantity);
+		item.setOrderedProductPrice(product.getSpecialPrice());
+		entityManager.persist(item);
+
+		order.getOrderItems().add(item);
+		order.setTotalAmount(Pricing.addLine(order.getTotalAmount(), product.getSpecialPrice(), quantity));
+
+		return item;
+	}
+
+	/**
+	 * Empties every table. Run in a transaction of its own, after the test's work has finished.
+	 */
+	@SuppressWarnings("unchecked")
+	void deleteAll() {
+		List<String> tables = entityManager.createNativeQuery(
+				"SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_TYPE = 'BASE TABLE'")
+				.getResultList();
+
+		entityManager.createNativeQuery("SET REFERENTIAL_INTEGRITY FALSE").executeUpdate();
+
+		for (String table : tables) {
+			// H2 can hand out duplicate identity values to concurrent inserts after a restart
+			entityManager.createNativeQuery("TRUNCATE TABLE " + table + " CONTINUE IDENTITY").executeUpdate();
+		}
+
+		entityManager.createNativeQuery("SET REFERENTIAL_INTEGRITY TRUE").executeUpdate();
+		entityManager.clear();
+	}
+
+}